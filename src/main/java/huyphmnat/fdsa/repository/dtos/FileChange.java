@@ -0,0 +1,25 @@
+package huyphmnat.fdsa.repository.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A file that differs between two commits
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class FileChange {
+    private FileChangeType type;
+    /**
+     * Path at the newer commit; for deletions, the path that was removed
+     */
+    private String path;
+    /**
+     * Path at the older commit, only set for renames
+     */
+    private String oldPath;
+}
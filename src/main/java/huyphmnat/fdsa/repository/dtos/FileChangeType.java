@@ -0,0 +1,8 @@
+package huyphmnat.fdsa.repository.dtos;
+
+public enum FileChangeType {
+    ADDED,
+    MODIFIED,
+    DELETED,
+    RENAMED
+}
@@ -16,4 +16,6 @@ public class Repository {
     private String description;
     private String identifier;
     private String ownerId;
+    private String sourceUrl;
+    private String lastIndexedCommit;
 }
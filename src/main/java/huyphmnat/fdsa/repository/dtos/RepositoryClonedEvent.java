@@ -16,5 +16,6 @@ public class RepositoryClonedEvent {
     private String identifier;
     private String sourceUrl;
     private String filesystemPath;
+    private String headCommit;
 }
 
@@ -0,0 +1,23 @@
+package huyphmnat.fdsa.repository.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * The repository moved from {@code fromCommit} (the last indexed commit, {@code null} if it was never indexed)
+ * to {@code toCommit}
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RepositorySyncedEvent {
+    private UUID id;
+    private String identifier;
+    private String fromCommit;
+    private String toCommit;
+}
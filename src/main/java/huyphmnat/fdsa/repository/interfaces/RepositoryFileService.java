@@ -1,8 +1,10 @@
 package huyphmnat.fdsa.repository.interfaces;
 
 import huyphmnat.fdsa.repository.dtos.DirectoryContent;
+import huyphmnat.fdsa.repository.dtos.FileChange;
 import huyphmnat.fdsa.repository.dtos.FileContent;
 
+import java.util.List;
 import java.util.UUID;
 
 public interface RepositoryFileService {
@@ -16,9 +18,35 @@ public interface RepositoryFileService {
 
     void addFile(UUID repositoryId, String path, byte[] content, String commitMessage);
 
-    DirectoryContent listDirectory(UUID repositoryId, String path);
-
-    FileContent readFile(UUID repositoryId, String path);
+    default DirectoryContent listDirectory(UUID repositoryId, String path) {
+        return listDirectory(repositoryId, path, null);
+    }
+
+    /**
+     * List a directory as of a commit, read from the git object database
+     *
+     * @param ref branch, tag or commit id; {@code null} for HEAD
+     */
+    DirectoryContent listDirectory(UUID repositoryId, String path, String ref);
+
+    default FileContent readFile(UUID repositoryId, String path) {
+        return readFile(repositoryId, path, null);
+    }
+
+    /**
+     * Read a file as of a commit, from the git object database
+     *
+     * @param ref branch, tag or commit id; {@code null} for HEAD
+     */
+    FileContent readFile(UUID repositoryId, String path, String ref);
+
+    /**
+     * Files added, modified, deleted or renamed between two commits
+     *
+     * @param fromCommit older commit, {@code null} to list every file of {@code toCommit} as added
+     * @throws IllegalArgumentException if either commit is unknown
+     */
+    List<FileChange> listChanges(UUID repositoryId, String fromCommit, String toCommit);
 }
 
 
@@ -5,6 +5,7 @@ import huyphmnat.fdsa.repository.dtos.CreateRepositoryRequest;
 import huyphmnat.fdsa.repository.dtos.Repository;
 
 import java.util.List;
+import java.util.UUID;
 
 public interface RepositoryService {
 
@@ -19,5 +20,16 @@ public interface RepositoryService {
     List<Repository> listRepositoriesByOwner(String owner);
 
     void deleteRepository(String identifier);
+
+    /**
+     * Bring the repository up to date (fast-forward from its upstream if it was cloned) and publish a
+     * {@code repository.synced} event so the search index catches up on the commits since the last indexed one
+     */
+    Repository syncRepository(String identifier);
+
+    /**
+     * Record that the search index now reflects {@code commitId}
+     */
+    void recordIndexedCommit(UUID repositoryId, String commitId);
 }
 
@@ -36,6 +36,18 @@ public class RepositoryEntity {
     @Column(nullable = false)
     private String ownerId;
 
+    /**
+     * Upstream the repository was cloned from, {@code null} for repositories created here
+     */
+    @Column(length = 2048)
+    private String sourceUrl;
+
+    /**
+     * Commit whose tree is in the search index, {@code null} until the first ingestion has finished
+     */
+    @Column(length = 40)
+    private String lastIndexedCommit;
+
     @Column(nullable = false)
     private Instant createdAt;
 
@@ -0,0 +1,205 @@
+package huyphmnat.fdsa.repository.internal.services;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEditor;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.IOException;
+
+/**
+ * Builds a commit directly in the object database of a (bare) repository: changed files are inserted as
+ * blobs and edited into an in-memory index of HEAD's tree, which is written as the new tree. Nothing is
+ * checked out and no file content other than the changed paths is read or hashed.
+ */
+class BareChangeSet implements RepositoryChangeSet {
+
+    private static final String GITKEEP = ".gitkeep";
+
+    private final GitRepositoryCache.Handle handle;
+    private final RevCommit parent;
+    private final DirCache index;
+    private final ObjectInserter inserter;
+
+    BareChangeSet(GitRepositoryCache.Handle handle) throws IOException {
+        this.handle = handle;
+        Repository repository = handle.repository();
+        try (ObjectReader reader = repository.newObjectReader();
+             RevWalk walk = new RevWalk(reader)) {
+            ObjectId head = repository.resolve(Constants.HEAD);
+            parent = head == null ? null : walk.parseCommit(head);
+            index = DirCache.newInCore();
+            if (parent != null) {
+                DirCacheBuilder builder = index.builder();
+                builder.addTree(new byte[0], DirCacheEntry.STAGE_0, reader, parent.getTree());
+                builder.finish();
+            }
+        }
+        inserter = repository.newObjectInserter();
+    }
+
+    @Override
+    public void addFile(String path, byte[] content) {
+        if (isFile(path) || isFolder(path)) {
+            throw new RuntimeException("File already exists: " + path);
+        }
+        if (hasFileAncestor(path)) {
+            throw new RuntimeException("Failed to add file: " + path);
+        }
+        edit(putFile(path, insertBlob(path, content)));
+    }
+
+    @Override
+    public void updateFile(String path, byte[] content) {
+        if (!isFile(path)) {
+            throw new RuntimeException("File not found: " + path);
+        }
+        edit(putFile(path, insertBlob(path, content)));
+    }
+
+    @Override
+    public void deleteFile(String path) {
+        if (!isFile(path)) {
+            throw new RuntimeException("File not found: " + path);
+        }
+        edit(new DirCacheEditor.DeletePath(path));
+    }
+
+    @Override
+    public void createFolder(String path) {
+        if (isFile(path) || hasFileAncestor(path)) {
+            throw new RuntimeException("Failed to create folder: " + path);
+        }
+        String gitkeep = path.isEmpty() ? GITKEEP : path + "/" + GITKEEP;
+        if (!isFile(gitkeep)) {
+            edit(putFile(gitkeep, insertBlob(path, new byte[0])));
+        }
+    }
+
+    @Override
+    public void deleteFolder(String path) {
+        if (isFile(path)) {
+            throw new RuntimeException("Path is not a folder: " + path);
+        }
+        if (!isFolder(path)) {
+            throw new RuntimeException("Folder not found: " + path);
+        }
+        edit(new DirCacheEditor.DeleteTree(path));
+    }
+
+    @Override
+    public void commit(String message) {
+        Repository repository = handle.repository();
+        try (RevWalk walk = new RevWalk(repository)) {
+            ObjectId tree = index.writeTree(inserter);
+            if (parent != null ? tree.equals(parent.getTree()) : index.getEntryCount() == 0) {
+                return; // nothing to commit
+            }
+
+            PersonIdent ident = new PersonIdent(repository);
+            CommitBuilder commit = new CommitBuilder();
+            commit.setTreeId(tree);
+            if (parent != null) {
+                commit.setParentId(parent);
+            }
+            commit.setAuthor(ident);
+            commit.setCommitter(ident);
+            commit.setMessage(message);
+            ObjectId commitId = inserter.insert(commit);
+            inserter.flush();
+
+            // HEAD is symbolic, so this moves the current branch; it only moves if nobody committed meanwhile
+            RefUpdate update = repository.updateRef(Constants.HEAD);
+            update.setNewObjectId(commitId);
+            update.setExpectedOldObjectId(parent != null ? parent : ObjectId.zeroId());
+            update.setRefLogMessage((parent == null ? "commit (initial): " : "commit: ")
+                    + message.lines().findFirst().orElse(""), false);
+            RefUpdate.Result result = update.update(walk);
+            switch (result) {
+                case NEW, FAST_FORWARD -> {
+                }
+                case LOCK_FAILURE, REJECTED ->
+                        throw new IllegalStateException("Repository was changed by another commit, retry the change");
+                default -> throw new RuntimeException("Failed to update HEAD: " + result);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to commit changes", e);
+        }
+    }
+
+    @Override
+    public void discard() {
+        // Changes only live in the in-memory index; blobs already inserted are unreachable and pruned by gc
+        index.clear();
+        if (parent != null) {
+            try (ObjectReader reader = handle.repository().newObjectReader()) {
+                DirCacheBuilder builder = index.builder();
+                builder.addTree(new byte[0], DirCacheEntry.STAGE_0, reader, parent.getTree());
+                builder.finish();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read HEAD of repository", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        inserter.close();
+        handle.close();
+    }
+
+    private boolean isFile(String path) {
+        return !path.isEmpty() && index.getEntry(path) != null;
+    }
+
+    private boolean isFolder(String path) {
+        return index.getEntriesWithin(path).length > 0;
+    }
+
+    private boolean hasFileAncestor(String path) {
+        for (int slash = path.indexOf('/'); slash > 0; slash = path.indexOf('/', slash + 1)) {
+            if (isFile(path.substring(0, slash))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ObjectId insertBlob(String path, byte[] content) {
+        try {
+            return inserter.insert(Constants.OBJ_BLOB, content);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write " + path, e);
+        }
+    }
+
+    private void edit(DirCacheEditor.PathEdit edit) {
+        DirCacheEditor editor = index.editor();
+        editor.add(edit);
+        editor.finish();
+    }
+
+    private static DirCacheEditor.PathEdit putFile(String path, ObjectId blob) {
+        return new DirCacheEditor.PathEdit(path) {
+            @Override
+            public void apply(DirCacheEntry entry) {
+                // Existing files keep their mode (e.g. executable)
+                if (entry.getRawMode() == 0) {
+                    entry.setFileMode(FileMode.REGULAR_FILE);
+                }
+                entry.setObjectId(blob);
+            }
+        };
+    }
+}
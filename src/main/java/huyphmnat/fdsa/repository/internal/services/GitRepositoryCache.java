@@ -0,0 +1,136 @@
+package huyphmnat.fdsa.repository.internal.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryCache;
+import org.eclipse.jgit.util.FS;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Long-lived JGit {@link Repository} handles, keyed by repository root. Opening a repository reads its
+ * config, refs and pack indexes from disk; keeping the handle open keeps those, and the pack windows cached
+ * for it, warm across requests.
+ * <p>
+ * Handles are leased with {@link #open(Path)} and must be closed after use. A lease holds its own reference
+ * on the repository (JGit counts {@link Repository#incrementOpen() opens}), so a handle evicted while in use
+ * is only really closed once its last lease is.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GitRepositoryCache {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${repository.git.handle-cache.max-size:256}")
+    private long maxSize = 256;
+
+    @Value("${repository.git.handle-cache.idle-seconds:600}")
+    private long idleSeconds = 600;
+
+    private Cache<Path, Repository> repositories;
+
+    @PostConstruct
+    public void init() {
+        repositories = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(Duration.ofSeconds(idleSeconds))
+                .removalListener((Path root, Repository repository, RemovalCause cause) -> {
+                    // Leases never swap the handle, so a replacement is the same instance and stays open
+                    if (repository != null && cause != RemovalCause.REPLACED) {
+                        log.debug("Releasing repository handle {} ({})", root, cause);
+                        repository.close();
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, repositories, "gitRepositories");
+    }
+
+    /**
+     * Lease the handle of the repository at {@code repoRoot}, opening it if it is not cached yet.
+     *
+     * @throws IOException if there is no repository at {@code repoRoot}
+     */
+    public Handle open(Path repoRoot) throws IOException {
+        Path key = repoRoot.toAbsolutePath().normalize();
+        try {
+            // The lease is taken inside compute, so an eviction cannot close the handle in between
+            Repository repository = repositories.asMap().compute(key, (root, cached) -> {
+                Repository handle = cached != null ? cached : openRepository(root);
+                handle.incrementOpen();
+                return handle;
+            });
+            return new Handle(repository);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Drop the cached handle of a repository, e.g. before its directory is deleted. Open leases keep working
+     * until they are closed.
+     */
+    public void invalidate(Path repoRoot) {
+        repositories.invalidate(repoRoot.toAbsolutePath().normalize());
+    }
+
+    @PreDestroy
+    public void close() {
+        repositories.invalidateAll();
+        repositories.cleanUp();
+    }
+
+    private static Repository openRepository(Path root) {
+        try {
+            log.debug("Opening repository handle {}", root);
+            return RepositoryCache.FileKey.lenient(root.toFile(), FS.DETECTED).open(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A lease on a cached repository handle; closing it releases the lease, not the repository.
+     */
+    public static final class Handle implements AutoCloseable {
+
+        private final Repository repository;
+
+        private Handle(Repository repository) {
+            this.repository = repository;
+        }
+
+        public Repository repository() {
+            return repository;
+        }
+
+        /**
+         * Porcelain commands on the cached repository. Closing the returned {@link Git} leaves the repository
+         * open.
+         */
+        public Git git() {
+            return Git.wrap(repository);
+        }
+
+        @Override
+        public void close() {
+            repository.close();
+        }
+    }
+}
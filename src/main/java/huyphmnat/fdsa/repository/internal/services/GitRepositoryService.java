@@ -1,18 +1,48 @@
 package huyphmnat.fdsa.repository.internal.services;
 
+import huyphmnat.fdsa.repository.dtos.FileChange;
+import huyphmnat.fdsa.repository.dtos.FileChangeType;
+import lombok.RequiredArgsConstructor;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.MergeCommand;
+import org.eclipse.jgit.api.PullResult;
 import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheCheckout;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.FetchResult;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.TrackingRefUpdate;
+import org.eclipse.jgit.treewalk.AbstractTreeIterator;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 @Component
+@RequiredArgsConstructor
 public class GitRepositoryService {
 
+    private final GitRepositoryCache repositoryCache;
+
     public void stageAll(Path repoRoot) {
-        try (Git git = Git.open(repoRoot.toFile())) {
+        try (GitRepositoryCache.Handle handle = repositoryCache.open(repoRoot)) {
+            Git git = handle.git();
             git.add().addFilepattern(".").call();
         } catch (IOException | GitAPIException e) {
             throw new RuntimeException("Failed to stage changes", e);
@@ -20,7 +50,8 @@ public class GitRepositoryService {
     }
 
     public void commit(Path repoRoot, String message) {
-        try (Git git = Git.open(repoRoot.toFile())) {
+        try (GitRepositoryCache.Handle handle = repositoryCache.open(repoRoot)) {
+            Git git = handle.git();
             if (git.status().call().isClean()) {
                 return; // nothing to commit
             }
@@ -32,5 +63,140 @@ public class GitRepositoryService {
             throw new RuntimeException("Failed to commit changes", e);
         }
     }
-}
 
+    /**
+     * Put the index and working tree back to HEAD and remove untracked files, dropping changes that were
+     * written but not committed. Unlike {@code git reset --hard}, no ref is updated, so it also works while the
+     * branch is locked.
+     */
+    public void resetWorkTree(Path repoRoot) {
+        try (GitRepositoryCache.Handle handle = repositoryCache.open(repoRoot)) {
+            Repository repository = handle.repository();
+            ObjectId tree = repository.resolve(Constants.HEAD + "^{tree}");
+            if (tree == null) {
+                try (ObjectInserter inserter = repository.newObjectInserter()) {
+                    tree = inserter.insert(new TreeFormatter());
+                    inserter.flush();
+                }
+            }
+            DirCache index = repository.lockDirCache();
+            try {
+                DirCacheCheckout checkout = new DirCacheCheckout(repository, index, tree);
+                checkout.setFailOnConflict(false);
+                checkout.checkout();
+            } finally {
+                index.unlock();
+            }
+            handle.git().clean().setCleanDirectories(true).call();
+        } catch (IOException | GitAPIException e) {
+            throw new RuntimeException("Failed to reset working tree", e);
+        }
+    }
+
+    /**
+     * @return the commit HEAD points to, or {@code null} for a repository without commits
+     */
+    public String headCommit(Path repoRoot) {
+        try (GitRepositoryCache.Handle handle = repositoryCache.open(repoRoot)) {
+            ObjectId head = handle.repository().resolve(Constants.HEAD);
+            return head == null ? null : head.name();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to resolve HEAD", e);
+        }
+    }
+
+    /**
+     * Fetch the upstream and fast-forward the current branch. Local commits that are not upstream make the
+     * histories diverge, which is reported instead of merged. A bare repository has nothing to merge into,
+     * so its branch is fetched into directly.
+     */
+    public void pullFastForward(Path repoRoot) {
+        try (GitRepositoryCache.Handle handle = repositoryCache.open(repoRoot)) {
+            Git git = handle.git();
+            if (handle.repository().isBare()) {
+                fetchFastForward(git);
+                return;
+            }
+            PullResult result = git.pull()
+                    .setFastForward(MergeCommand.FastForwardMode.FF_ONLY)
+                    .call();
+            if (!result.isSuccessful()) {
+                throw new IllegalStateException("Repository has diverged from its upstream and cannot be fast-forwarded");
+            }
+        } catch (IOException | GitAPIException e) {
+            throw new RuntimeException("Failed to pull from upstream", e);
+        }
+    }
+
+    private static void fetchFastForward(Git git) throws IOException, GitAPIException {
+        String branch = Constants.R_HEADS + git.getRepository().getBranch();
+        // Without a forced (+) refspec the fetch refuses to move the branch unless it fast-forwards
+        FetchResult result = git.fetch()
+                .setRefSpecs(new RefSpec(branch + ":" + branch))
+                .call();
+        TrackingRefUpdate update = result.getTrackingRefUpdate(branch);
+        if (update != null && update.getResult() == RefUpdate.Result.REJECTED) {
+            throw new IllegalStateException("Repository has diverged from its upstream and cannot be fast-forwarded");
+        }
+    }
+
+    /**
+     * Files that differ between two commits, with renames detected. The trees are compared directly in the
+     * object database, so unchanged subtrees are skipped without being read.
+     *
+     * @param fromCommit older commit, {@code null} to list every file of {@code toCommit} as added
+     * @throws IllegalArgumentException if either commit does not exist in the repository
+     */
+    public List<FileChange> diff(Path repoRoot, String fromCommit, String toCommit) {
+        try (GitRepositoryCache.Handle handle = repositoryCache.open(repoRoot);
+             ObjectReader reader = handle.repository().newObjectReader();
+             DiffFormatter formatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+            Repository repository = handle.repository();
+            formatter.setRepository(repository);
+            formatter.setDetectRenames(true);
+
+            List<FileChange> changes = new ArrayList<>();
+            for (DiffEntry entry : formatter.scan(treeOf(repository, reader, fromCommit), treeOf(repository, reader, toCommit))) {
+                changes.add(toFileChange(entry));
+            }
+            return changes;
+        } catch (MissingObjectException e) {
+            throw new IllegalArgumentException("Unknown commit: " + e.getObjectId().name(), e);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to diff " + fromCommit + ".." + toCommit, e);
+        }
+    }
+
+    /**
+     * Close the cached handle of a repository whose directory is about to be deleted or replaced.
+     */
+    public void release(Path repoRoot) {
+        repositoryCache.invalidate(repoRoot);
+    }
+
+    private static AbstractTreeIterator treeOf(Repository repository, ObjectReader reader, String commit) throws IOException {
+        if (commit == null) {
+            return new EmptyTreeIterator();
+        }
+        ObjectId commitId = repository.resolve(commit + "^{commit}");
+        if (commitId == null) {
+            throw new IllegalArgumentException("Unknown commit: " + commit);
+        }
+        try (RevWalk walk = new RevWalk(reader)) {
+            return new CanonicalTreeParser(null, reader, walk.parseCommit(commitId).getTree());
+        }
+    }
+
+    private static FileChange toFileChange(DiffEntry entry) {
+        return switch (entry.getChangeType()) {
+            case ADD, COPY -> FileChange.builder().type(FileChangeType.ADDED).path(entry.getNewPath()).build();
+            case MODIFY -> FileChange.builder().type(FileChangeType.MODIFIED).path(entry.getNewPath()).build();
+            case DELETE -> FileChange.builder().type(FileChangeType.DELETED).path(entry.getOldPath()).build();
+            case RENAME -> FileChange.builder()
+                    .type(FileChangeType.RENAMED)
+                    .path(entry.getNewPath())
+                    .oldPath(entry.getOldPath())
+                    .build();
+        };
+    }
+}
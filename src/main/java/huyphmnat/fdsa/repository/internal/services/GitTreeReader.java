@@ -0,0 +1,151 @@
+package huyphmnat.fdsa.repository.internal.services;
+
+import huyphmnat.fdsa.repository.dtos.DirectoryEntry;
+import huyphmnat.fdsa.repository.dtos.Entry;
+import huyphmnat.fdsa.repository.dtos.FileEntry;
+import huyphmnat.fdsa.repository.dtos.FileEntryType;
+import lombok.RequiredArgsConstructor;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Reads directories and files of a commit straight from the object database (loose objects and packs),
+ * so reads see exactly what was committed and never touch the working tree.
+ */
+@Component
+@RequiredArgsConstructor
+public class GitTreeReader {
+
+    private final GitRepositoryCache repositoryCache;
+
+    /**
+     * Result of reading a file: its content and the blob size
+     */
+    public record Blob(byte[] content, long size) {
+    }
+
+    /**
+     * Entries directly under {@code treePath} at {@code ref}, directories first. File sizes come from the
+     * object headers, without inflating the blobs.
+     *
+     * @param ref commit-ish, {@code null} for HEAD
+     * @param treePath path relative to the repository root, empty for the root
+     */
+    public List<Entry> listDirectory(Path repoRoot, String ref, String treePath) {
+        try (GitRepositoryCache.Handle handle = repositoryCache.open(repoRoot);
+             ObjectReader reader = handle.repository().newObjectReader()) {
+            ObjectId rootTree = resolveTree(handle.repository(), ref);
+            if (rootTree == null) {
+                // No commits yet: only the (empty) root exists
+                if (treePath.isEmpty()) {
+                    return List.of();
+                }
+                throw new RuntimeException("Directory not found: " + treePath);
+            }
+
+            ObjectId directory = rootTree;
+            if (!treePath.isEmpty()) {
+                try (TreeWalk lookup = TreeWalk.forPath(reader, treePath, rootTree)) {
+                    if (lookup == null) {
+                        throw new RuntimeException("Directory not found: " + treePath);
+                    }
+                    if (!lookup.isSubtree()) {
+                        throw new RuntimeException("Path is not a directory: " + treePath);
+                    }
+                    directory = lookup.getObjectId(0);
+                }
+            }
+
+            List<Entry> entries = new ArrayList<>();
+            try (TreeWalk walk = new TreeWalk(reader)) {
+                walk.addTree(directory);
+                walk.setRecursive(false);
+                while (walk.next()) {
+                    String name = walk.getNameString();
+                    if (name.startsWith(".git") || walk.getFileMode(0) == FileMode.GITLINK) {
+                        continue;
+                    }
+                    String path = treePath.isEmpty() ? name : treePath + "/" + name;
+                    if (walk.isSubtree()) {
+                        entries.add(DirectoryEntry.builder()
+                                .path(path)
+                                .name(name)
+                                .type(FileEntryType.DIRECTORY)
+                                .build());
+                    } else {
+                        entries.add(FileEntry.builder()
+                                .path(path)
+                                .name(name)
+                                .type(FileEntryType.FILE)
+                                .size(reader.getObjectSize(walk.getObjectId(0), Constants.OBJ_BLOB))
+                                .build());
+                    }
+                }
+            }
+            entries.sort(Comparator
+                    .comparing((Entry e) -> e.getType() == FileEntryType.FILE)
+                    .thenComparing(Entry::getName));
+            return entries;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list directory: " + treePath, e);
+        }
+    }
+
+    /**
+     * @param ref commit-ish, {@code null} for HEAD
+     * @param treePath path of the file relative to the repository root
+     */
+    public Blob readFile(Path repoRoot, String ref, String treePath) {
+        try (GitRepositoryCache.Handle handle = repositoryCache.open(repoRoot);
+             ObjectReader reader = handle.repository().newObjectReader()) {
+            ObjectId rootTree = resolveTree(handle.repository(), ref);
+            if (rootTree == null || treePath.isEmpty()) {
+                throw new RuntimeException("File not found: " + treePath);
+            }
+
+            try (TreeWalk lookup = TreeWalk.forPath(reader, treePath, rootTree)) {
+                if (lookup == null) {
+                    throw new RuntimeException("File not found: " + treePath);
+                }
+                if (lookup.isSubtree() || lookup.getFileMode(0) == FileMode.GITLINK) {
+                    throw new RuntimeException("Path is not a file: " + treePath);
+                }
+                ObjectLoader loader = reader.open(lookup.getObjectId(0), Constants.OBJ_BLOB);
+                return new Blob(loader.getCachedBytes(Integer.MAX_VALUE), loader.getSize());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read file: " + treePath, e);
+        }
+    }
+
+    /**
+     * @return the root tree of {@code ref}, or {@code null} if HEAD has no commit yet
+     * @throws IllegalArgumentException if an explicit ref does not exist
+     */
+    private static ObjectId resolveTree(Repository repository, String ref) throws IOException {
+        String revision = ref == null || ref.isBlank() ? Constants.HEAD : ref;
+        ObjectId tree;
+        try {
+            tree = repository.resolve(revision + "^{tree}");
+        } catch (MissingObjectException e) {
+            throw new IllegalArgumentException("Unknown ref: " + ref, e);
+        }
+        if (tree == null && !revision.equals(Constants.HEAD)) {
+            throw new IllegalArgumentException("Unknown ref: " + ref);
+        }
+        return tree;
+    }
+}
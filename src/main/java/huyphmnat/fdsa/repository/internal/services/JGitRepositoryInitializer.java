@@ -1,5 +1,6 @@
 package huyphmnat.fdsa.repository.internal.services;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
@@ -11,15 +12,18 @@ import java.nio.file.Path;
 
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class JGitRepositoryInitializer implements GitInitializer {
 
+    private final RepositoryStorage repositoryStorage;
+
     @Override
     public void initRepository(Path repoPath) {
         try {
             Files.createDirectories(repoPath);
             Git.init()
                     .setDirectory(repoPath.toFile())
-                    .setBare(false)
+                    .setBare(repositoryStorage.isBare())
                     .call()
                     .close();
         } catch (IOException | GitAPIException e) {
@@ -0,0 +1,40 @@
+package huyphmnat.fdsa.repository.internal.services;
+
+/**
+ * File changes to a repository that are committed together. Paths are repository-relative with {@code /}
+ * separators, as stored in git trees, and already checked to stay inside the repository.
+ * <p>
+ * A change whose precondition fails (e.g. adding a file that exists) throws and leaves the change set as it
+ * was. A change that fails halfway (e.g. an I/O error while deleting a folder) may leave part of it applied;
+ * callers {@link #discard} and re-apply the changes they still want to commit.
+ */
+public interface RepositoryChangeSet extends AutoCloseable {
+
+    void addFile(String path, byte[] content);
+
+    void updateFile(String path, byte[] content);
+
+    void deleteFile(String path);
+
+    /**
+     * Create the folder with a {@code .gitkeep} so that git tracks it even while empty
+     */
+    void createFolder(String path);
+
+    void deleteFolder(String path);
+
+    /**
+     * Commit the changes applied so far as one commit on the current branch. Does nothing if they leave the
+     * repository as it was.
+     */
+    void commit(String message);
+
+    /**
+     * Drop the changes applied since the last commit, e.g. after {@link #commit} failed, so they do not end up
+     * in the next one
+     */
+    void discard();
+
+    @Override
+    void close();
+}
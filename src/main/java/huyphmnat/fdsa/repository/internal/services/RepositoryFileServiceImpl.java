@@ -10,13 +10,10 @@ import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
-import java.nio.file.*;
-import java.util.Comparator;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.function.BiConsumer;
 
 @Service
 @RequiredArgsConstructor
@@ -24,6 +21,8 @@ public class RepositoryFileServiceImpl implements RepositoryFileService {
 
     private final RepositoryPathResolver repositoryPathResolver;
     private final GitRepositoryService gitRepositoryService;
+    private final GitTreeReader gitTreeReader;
+    private final RepositoryWriteQueue repositoryWriteQueue;
     private final RepositoryAuthorizationService authorizationService;
     private final EventService eventService;
     private final RepositoryRepository repositoryRepository;
@@ -35,24 +34,7 @@ public class RepositoryFileServiceImpl implements RepositoryFileService {
         // Check ownership before allowing file addition
         authorizationService.requireOwnership(repositoryId);
 
-        Path repoRoot = repositoryPathResolver.getRepositoryRoot(repositoryId);
-        Path targetPath = resolvePath(repoRoot, path);
-
-        if (Files.exists(targetPath)) {
-            throw new RuntimeException("File already exists: " + path);
-        }
-
-        try {
-            if (targetPath.getParent() != null) {
-                Files.createDirectories(targetPath.getParent());
-            }
-            Files.write(targetPath, content, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to add file: " + path, e);
-        }
-
-        gitRepositoryService.stageAll(repoRoot);
-        gitRepositoryService.commit(repoRoot, commitMessage);
+        commit(repositoryId, path, commitMessage, (changes, treePath) -> changes.addFile(treePath, content));
 
         // Publish file created event
         String repositoryIdentifier = getRepositoryIdentifier(repositoryId);
@@ -68,21 +50,7 @@ public class RepositoryFileServiceImpl implements RepositoryFileService {
     @Transactional
     @Observed
     public void updateFile(UUID repositoryId, String path, byte[] content, String commitMessage) {
-        Path repoRoot = repositoryPathResolver.getRepositoryRoot(repositoryId);
-        Path targetPath = resolvePath(repoRoot, path);
-
-        if (!Files.exists(targetPath)) {
-            throw new RuntimeException("File not found: " + path);
-        }
-
-        try {
-            Files.write(targetPath, content, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to update file: " + path, e);
-        }
-
-        gitRepositoryService.stageAll(repoRoot);
-        gitRepositoryService.commit(repoRoot, commitMessage);
+        commit(repositoryId, path, commitMessage, (changes, treePath) -> changes.updateFile(treePath, content));
 
         // Publish file updated event
         String repositoryIdentifier = getRepositoryIdentifier(repositoryId);
@@ -98,21 +66,7 @@ public class RepositoryFileServiceImpl implements RepositoryFileService {
     @Transactional
     @Observed
     public void deleteFile(UUID repositoryId, String path, String commitMessage) {
-        Path repoRoot = repositoryPathResolver.getRepositoryRoot(repositoryId);
-        Path targetPath = resolvePath(repoRoot, path);
-
-        if (!Files.exists(targetPath)) {
-            throw new RuntimeException("File not found: " + path);
-        }
-
-        try {
-            Files.delete(targetPath);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to delete file: " + path, e);
-        }
-
-        gitRepositoryService.stageAll(repoRoot);
-        gitRepositoryService.commit(repoRoot, commitMessage);
+        commit(repositoryId, path, commitMessage, RepositoryChangeSet::deleteFile);
 
         // Publish file deleted event
         String repositoryIdentifier = getRepositoryIdentifier(repositoryId);
@@ -131,21 +85,7 @@ public class RepositoryFileServiceImpl implements RepositoryFileService {
         // Check ownership before allowing folder creation
         authorizationService.requireOwnership(repositoryId);
 
-        Path repoRoot = repositoryPathResolver.getRepositoryRoot(repositoryId);
-        Path folderPath = resolvePath(repoRoot, path);
-
-        try {
-            Files.createDirectories(folderPath);
-            Path gitkeep = folderPath.resolve(".gitkeep");
-            if (!Files.exists(gitkeep)) {
-                Files.write(gitkeep, new byte[0], StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to create folder: " + path, e);
-        }
-
-        gitRepositoryService.stageAll(repoRoot);
-        gitRepositoryService.commit(repoRoot, commitMessage);
+        commit(repositoryId, path, commitMessage, RepositoryChangeSet::createFolder);
 
         // Publish folder created event
         String repositoryIdentifier = getRepositoryIdentifier(repositoryId);
@@ -164,32 +104,7 @@ public class RepositoryFileServiceImpl implements RepositoryFileService {
         // Check ownership before allowing folder deletion
         authorizationService.requireOwnership(repositoryId);
 
-        Path repoRoot = repositoryPathResolver.getRepositoryRoot(repositoryId);
-        Path folderPath = resolvePath(repoRoot, path);
-
-        if (!Files.exists(folderPath)) {
-            throw new RuntimeException("Folder not found: " + path);
-        }
-
-        if (!Files.isDirectory(folderPath)) {
-            throw new RuntimeException("Path is not a folder: " + path);
-        }
-
-        try (Stream<Path> pathStream = Files.walk(folderPath)) {
-            pathStream.sorted(Comparator.reverseOrder())
-                    .forEach(p -> {
-                        try {
-                            Files.delete(p);
-                        } catch (IOException e) {
-                            throw new RuntimeException("Failed to delete path: " + p, e);
-                        }
-                    });
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to delete folder: " + path, e);
-        }
-
-        gitRepositoryService.stageAll(repoRoot);
-        gitRepositoryService.commit(repoRoot, commitMessage);
+        commit(repositoryId, path, commitMessage, RepositoryChangeSet::deleteFolder);
 
         // Publish folder deleted event
         String repositoryIdentifier = getRepositoryIdentifier(repositoryId);
@@ -203,91 +118,49 @@ public class RepositoryFileServiceImpl implements RepositoryFileService {
 
     @Override
     @Observed
-    public DirectoryContent listDirectory(UUID repositoryId, String path) {
+    public DirectoryContent listDirectory(UUID repositoryId, String path, String ref) {
         Path repoRoot = repositoryPathResolver.getRepositoryRoot(repositoryId);
-        Path directoryPath = path == null || path.isEmpty() || path.equals("/")
-            ? repoRoot
-            : resolvePath(repoRoot, path);
+        List<Entry> entries = gitTreeReader.listDirectory(repoRoot, ref, toTreePath(repoRoot, path));
 
-        if (!Files.exists(directoryPath)) {
-            throw new RuntimeException("Directory not found: " + path);
-        }
-
-        if (!Files.isDirectory(directoryPath)) {
-            throw new RuntimeException("Path is not a directory: " + path);
-        }
-
-        try (Stream<Path> stream = Files.list(directoryPath)) {
-            List<Entry> entries = stream
-                .filter(p -> !p.getFileName().toString().startsWith(".git"))
-                .map(p -> {
-                    try {
-                        String relativePath = repoRoot.relativize(p).toString();
-                        String fileName = p.getFileName().toString();
-                        boolean isDirectory = Files.isDirectory(p);
-
-                        if (isDirectory) {
-                            return DirectoryEntry.builder()
-                                .path(relativePath)
-                                .name(fileName)
-                                .type(FileEntryType.DIRECTORY)
-                                .build();
-                        } else {
-                            Long size = Files.size(p);
-                            return FileEntry.builder()
-                                .path(relativePath)
-                                .name(fileName)
-                                .type(FileEntryType.FILE)
-                                .size(size)
-                                .build();
-                        }
-                    } catch (IOException e) {
-                        throw new RuntimeException("Failed to read file info: " + p, e);
-                    }
-                })
-                .sorted(Comparator
-                    .comparing((Entry e) -> e.getType() == FileEntryType.FILE)
-                    .thenComparing(Entry::getName))
-                .collect(Collectors.toList());
-
-            String displayPath = path == null || path.isEmpty() ? "/" : path;
-            return DirectoryContent.builder()
-                .path(displayPath)
-                .entries(entries)
-                .build();
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to list directory: " + path, e);
-        }
+        String displayPath = path == null || path.isEmpty() ? "/" : path;
+        return DirectoryContent.builder()
+            .path(displayPath)
+            .entries(entries)
+            .build();
     }
 
     @Override
     @Observed
-    public FileContent readFile(UUID repositoryId, String path) {
+    public FileContent readFile(UUID repositoryId, String path, String ref) {
         Path repoRoot = repositoryPathResolver.getRepositoryRoot(repositoryId);
-        Path filePath = resolvePath(repoRoot, path);
-
-        if (!Files.exists(filePath)) {
-            throw new RuntimeException("File not found: " + path);
-        }
+        String treePath = toTreePath(repoRoot, path);
+        GitTreeReader.Blob blob = gitTreeReader.readFile(repoRoot, ref, treePath);
+
+        return FileContent.builder()
+            .path(path)
+            .name(treePath.substring(treePath.lastIndexOf('/') + 1))
+            .size(blob.size())
+            .content(new String(blob.content(), java.nio.charset.StandardCharsets.UTF_8))
+            .build();
+    }
 
-        if (!Files.isRegularFile(filePath)) {
-            throw new RuntimeException("Path is not a file: " + path);
-        }
+    @Override
+    @Observed
+    public List<FileChange> listChanges(UUID repositoryId, String fromCommit, String toCommit) {
+        Path repoRoot = repositoryPathResolver.getRepositoryRoot(repositoryId);
+        return gitRepositoryService.diff(repoRoot, fromCommit, toCommit);
+    }
 
-        try {
-            byte[] contentBytes = Files.readAllBytes(filePath);
-            long size = Files.size(filePath);
-            String content = new String(contentBytes, java.nio.charset.StandardCharsets.UTF_8);
+    /**
+     * Apply one change to {@code path} and wait until it is committed. Writes to the same repository are
+     * serialized, and concurrent ones may share a commit.
+     */
+    private void commit(UUID repositoryId, String path, String commitMessage,
+                        BiConsumer<RepositoryChangeSet, String> change) {
+        Path repoRoot = repositoryPathResolver.getRepositoryRoot(repositoryId);
+        String treePath = toTreePath(repoRoot, path);
 
-            return FileContent.builder()
-                .path(path)
-                .name(filePath.getFileName().toString())
-                .size(size)
-                .content(content)
-                .build();
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to read file: " + path, e);
-        }
+        repositoryWriteQueue.write(repoRoot, commitMessage, changes -> change.accept(changes, treePath));
     }
 
     private Path resolvePath(Path repoRoot, String relativePath) {
@@ -298,6 +171,16 @@ public class RepositoryFileServiceImpl implements RepositoryFileService {
         return normalized;
     }
 
+    /**
+     * Repository-relative path with {@code /} separators as stored in git trees, empty for the root
+     */
+    private String toTreePath(Path repoRoot, String path) {
+        if (path == null || path.isEmpty() || path.equals("/")) {
+            return "";
+        }
+        return repoRoot.relativize(resolvePath(repoRoot, path)).toString().replace('\\', '/');
+    }
+
     private String getRepositoryIdentifier(UUID repositoryId) {
         return repositoryRepository.findById(repositoryId)
             .orElseThrow(() -> new RuntimeException("Repository not found: " + repositoryId))
@@ -5,9 +5,12 @@ import huyphmnat.fdsa.repository.dtos.CreateRepositoryRequest;
 import huyphmnat.fdsa.repository.dtos.Repository;
 import huyphmnat.fdsa.repository.dtos.RepositoryClonedEvent;
 import huyphmnat.fdsa.repository.dtos.RepositoryDeletedEvent;
+import huyphmnat.fdsa.repository.dtos.RepositorySyncedEvent;
+import huyphmnat.fdsa.repository.exceptions.RepositoryNotFoundException;
 import huyphmnat.fdsa.repository.interfaces.RepositoryService;
 import huyphmnat.fdsa.repository.internal.entites.RepositoryEntity;
 import huyphmnat.fdsa.repository.internal.repositories.RepositoryRepository;
+import huyphmnat.fdsa.repository.topics.RepositoryTopics;
 import huyphmnat.fdsa.shared.events.EventService;
 import io.micrometer.observation.annotation.Observed;
 import jakarta.transaction.Transactional;
@@ -33,6 +36,9 @@ public class RepositoryServiceImpl implements RepositoryService {
     private final RepositoryRepository repositoryRepository;
     private final ModelMapper mapper;
     private final GitInitializer gitInitializer;
+    private final GitRepositoryService gitRepositoryService;
+    private final RepositoryStorage repositoryStorage;
+    private final RepositoryWriteQueue repositoryWriteQueue;
     private final EventService eventService;
     private final RepositoryAuthorizationService authorizationService;
 
@@ -124,6 +130,7 @@ public class RepositoryServiceImpl implements RepositoryService {
             Git.cloneRepository()
                     .setURI(sourceUrl)
                     .setDirectory(repoPath.toFile())
+                    .setBare(repositoryStorage.isBare())
                     .call()
                     .close();
             log.info("Successfully cloned repository from {}", sourceUrl);
@@ -140,6 +147,7 @@ public class RepositoryServiceImpl implements RepositoryService {
                 .description(request.getDescription())
                 .filesystemPath(repoPath.toString())
                 .ownerId(ownerId)
+                .sourceUrl(sourceUrl)
                 .createdAt(Instant.now())
                 .updatedAt(Instant.now())
                 .build();
@@ -152,6 +160,7 @@ public class RepositoryServiceImpl implements RepositoryService {
                 .identifier(entity.getIdentifier())
                 .sourceUrl(sourceUrl)
                 .filesystemPath(entity.getFilesystemPath())
+                .headCommit(gitRepositoryService.headCommit(repoPath))
                 .build();
         eventService.publish("repository.cloned", event);
         log.info("Published repository.cloned event for {}", identifier);
@@ -215,6 +224,7 @@ public class RepositoryServiceImpl implements RepositoryService {
         
         // Delete filesystem directory
         Path repoPath = Paths.get(entity.getFilesystemPath());
+        gitRepositoryService.release(repoPath);
         try {
             if (java.nio.file.Files.exists(repoPath)) {
                 deleteDirectoryRecursively(repoPath);
@@ -228,6 +238,54 @@ public class RepositoryServiceImpl implements RepositoryService {
         log.info("Successfully deleted repository: {}", identifier);
     }
     
+    @Override
+    @Transactional
+    @Observed
+    public Repository syncRepository(String iden) {
+        var identifier = trimSlashes(iden);
+
+        authorizationService.validateOwnerMatchesCurrentUser(identifier);
+
+        var entity = repositoryRepository.findByIdentifier(identifier)
+                .orElseThrow(() -> new RepositoryNotFoundException("Repository not found: " + identifier));
+        Path repoPath = Paths.get(entity.getFilesystemPath());
+
+        if (entity.getSourceUrl() != null) {
+            log.info("Pulling {} from {}", identifier, entity.getSourceUrl());
+            // On the repository's writer, so the pull never races a commit of the file API
+            repositoryWriteQueue.runExclusive(repoPath, () -> gitRepositoryService.pullFastForward(repoPath));
+        }
+
+        String headCommit = gitRepositoryService.headCommit(repoPath);
+        if (headCommit == null || headCommit.equals(entity.getLastIndexedCommit())) {
+            log.info("Repository {} is already indexed at {}", identifier, headCommit);
+            return mapper.map(entity, Repository.class);
+        }
+
+        entity.setUpdatedAt(Instant.now());
+        repositoryRepository.save(entity);
+
+        RepositorySyncedEvent event = RepositorySyncedEvent.builder()
+                .id(entity.getId())
+                .identifier(entity.getIdentifier())
+                .fromCommit(entity.getLastIndexedCommit())
+                .toCommit(headCommit)
+                .build();
+        eventService.publish(RepositoryTopics.REPOSITORY_SYNCED, event);
+        log.info("Published repository.synced event for {} ({}..{})", identifier, event.getFromCommit(), headCommit);
+
+        return mapper.map(entity, Repository.class);
+    }
+
+    @Override
+    @Transactional
+    public void recordIndexedCommit(UUID repositoryId, String commitId) {
+        repositoryRepository.findById(repositoryId).ifPresentOrElse(entity -> {
+            entity.setLastIndexedCommit(commitId);
+            repositoryRepository.save(entity);
+        }, () -> log.warn("Indexed repository {} no longer exists, not recording commit {}", repositoryId, commitId));
+    }
+
     private void deleteDirectoryRecursively(Path path) throws java.io.IOException {
         if (java.nio.file.Files.isDirectory(path)) {
             try (var stream = java.nio.file.Files.list(path)) {
@@ -0,0 +1,78 @@
+package huyphmnat.fdsa.repository.internal.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * How hosted repositories are stored on disk, and how file changes are committed to them.
+ * <ul>
+ *     <li>{@code worktree} - repositories have a working tree; changes are written to it and the whole tree
+ *     is staged and committed, so a write costs more as the repository grows</li>
+ *     <li>{@code bare} - repositories have no working tree; commits are built in the object database from
+ *     the changed paths only, and each file is stored once instead of twice</li>
+ * </ul>
+ * Reads come from the object database in both modes. Switching modes applies to repositories created
+ * afterwards; existing repositories keep their layout.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RepositoryStorage {
+
+    public enum Mode {
+        WORKTREE,
+        BARE
+    }
+
+    private final GitRepositoryService gitRepositoryService;
+    private final GitRepositoryCache repositoryCache;
+
+    @Value("${repository.storage:worktree}")
+    private String mode = "worktree";
+
+    private Mode storageMode;
+
+    @PostConstruct
+    public void init() {
+        storageMode = Mode.valueOf(mode.trim().toUpperCase());
+        log.info("Repository storage in {} mode", storageMode);
+    }
+
+    /**
+     * Whether new repositories are created (and cloned) without a working tree
+     */
+    public boolean isBare() {
+        return storageMode == Mode.BARE;
+    }
+
+    /**
+     * Start a change set on the repository at {@code repoRoot}, committed with {@link RepositoryChangeSet#commit}.
+     * The layout of the repository itself decides how changes are applied, so repositories created in the
+     * other mode keep working.
+     */
+    public RepositoryChangeSet open(Path repoRoot) {
+        GitRepositoryCache.Handle handle;
+        try {
+            handle = repositoryCache.open(repoRoot);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open repository: " + repoRoot, e);
+        }
+
+        if (!handle.repository().isBare()) {
+            handle.close();
+            return new WorkTreeChangeSet(gitRepositoryService, repoRoot);
+        }
+        try {
+            return new BareChangeSet(handle);
+        } catch (IOException | RuntimeException e) {
+            handle.close();
+            throw new RuntimeException("Failed to read HEAD of repository: " + repoRoot, e);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package huyphmnat.fdsa.repository.internal.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Serializes writes to a repository and commits writes that are pending together as one commit (group
+ * commit). Each repository with pending writes has a single writer task; writes submitted while it waits
+ * for the group window, or while it commits the previous group, form the next group.
+ * <p>
+ * Every caller still gets its own outcome: a write whose change fails (e.g. the file already exists) fails
+ * alone and is left out of the commit, while a failing commit fails every write of its group and discards its
+ * changes.
+ * <p>
+ * Operations that move HEAD themselves, such as pulling from the source, run as exclusive tasks on the same
+ * writer, so they never interleave with a group commit.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RepositoryWriteQueue {
+
+    private final RepositoryStorage repositoryStorage;
+
+    @Value("${repository.write.group-commit.window-ms:5}")
+    private long groupWindowMs = 5;
+
+    @Value("${repository.write.group-commit.max-writes:64}")
+    private int maxGroupWrites = 64;
+
+    /**
+     * Repositories with a writer task, mapped to their pending writes. Pending writes are only touched inside
+     * {@code compute} on their repository, and a repository is removed by its writer once nothing is pending.
+     */
+    private final ConcurrentHashMap<Path, Queue<PendingWrite>> pendingWrites = new ConcurrentHashMap<>();
+
+    private ExecutorService writers;
+
+    /**
+     * A change to commit, or, if {@code exclusiveTask} is set, a task the writer runs on its own
+     */
+    private record PendingWrite(String commitMessage, Consumer<RepositoryChangeSet> change, Runnable exclusiveTask,
+                                CompletableFuture<Void> result) {
+
+        boolean isExclusive() {
+            return exclusiveTask != null;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        writers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("repository-writer-", 0).factory());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writers.shutdown();
+        if (!writers.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Repository writers did not finish in time");
+        }
+    }
+
+    /**
+     * Apply {@code change} to the repository at {@code repoRoot} and wait until it is committed, possibly
+     * together with other writes to the same repository.
+     *
+     * @throws RuntimeException the exception of the change, or of the commit it was part of
+     */
+    public void write(Path repoRoot, String commitMessage, Consumer<RepositoryChangeSet> change) {
+        submitAndWait(repoRoot, new PendingWrite(commitMessage, change, null, new CompletableFuture<>()));
+    }
+
+    /**
+     * Run {@code task} on the writer of the repository at {@code repoRoot}, after the writes submitted before it
+     * and before those submitted after it, and wait for it to finish
+     *
+     * @throws RuntimeException the exception of the task
+     */
+    public void runExclusive(Path repoRoot, Runnable task) {
+        submitAndWait(repoRoot, new PendingWrite(null, null, task, new CompletableFuture<>()));
+    }
+
+    private void submitAndWait(Path repoRoot, PendingWrite write) {
+        Path key = repoRoot.toAbsolutePath().normalize();
+
+        boolean[] startWriter = {false};
+        pendingWrites.compute(key, (root, pending) -> {
+            if (pending == null) {
+                pending = new ArrayDeque<>();
+                startWriter[0] = true;
+            }
+            pending.add(write);
+            return pending;
+        });
+        if (startWriter[0]) {
+            writers.execute(() -> drain(key));
+        }
+
+        try {
+            write.result().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for write to " + repoRoot, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Failed to write to " + repoRoot, e.getCause());
+        }
+    }
+
+    private void drain(Path repoRoot) {
+        if (groupWindowMs > 0) {
+            try {
+                // Let concurrent writes join the first group; later groups gather while the previous one commits
+                Thread.sleep(groupWindowMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        while (true) {
+            List<PendingWrite> group = new ArrayList<>();
+            pendingWrites.computeIfPresent(repoRoot, (root, pending) -> {
+                // An exclusive task is a group of its own
+                while (!pending.isEmpty() && group.size() < maxGroupWrites
+                        && (group.isEmpty() || !pending.peek().isExclusive() && !group.getFirst().isExclusive())) {
+                    group.add(pending.poll());
+                }
+                // Nothing left: retire the writer, the next write starts a new one
+                return group.isEmpty() ? null : pending;
+            });
+            if (group.isEmpty()) {
+                return;
+            }
+            if (group.getFirst().isExclusive()) {
+                runExclusive(group.getFirst());
+            } else {
+                commitGroup(repoRoot, group);
+            }
+        }
+    }
+
+    private static void runExclusive(PendingWrite task) {
+        try {
+            task.exclusiveTask().run();
+            task.result().complete(null);
+        } catch (Throwable e) {
+            task.result().completeExceptionally(e);
+        }
+    }
+
+    private void commitGroup(Path repoRoot, List<PendingWrite> group) {
+        List<PendingWrite> applied = new ArrayList<>();
+        try (RepositoryChangeSet changes = repositoryStorage.open(repoRoot)) {
+            for (PendingWrite write : group) {
+                try {
+                    write.change().accept(changes);
+                    applied.add(write);
+                } catch (RuntimeException e) {
+                    write.result().completeExceptionally(e);
+                    // It may have failed halfway, e.g. deleted part of a folder, so drop whatever it left behind
+                    replay(changes, applied);
+                }
+            }
+            if (!applied.isEmpty()) {
+                try {
+                    changes.commit(commitMessage(applied));
+                } catch (RuntimeException e) {
+                    // Don't leave the writes of the failed group in the working tree for the next group to commit
+                    discard(changes, e);
+                    throw e;
+                }
+            }
+            if (applied.size() > 1) {
+                log.debug("Committed {} writes to {} as one commit", applied.size(), repoRoot);
+            }
+            applied.forEach(write -> write.result().complete(null));
+        } catch (Throwable e) {
+            // Complete every caller whatever went wrong; writes that already failed on their own keep their exception
+            group.forEach(write -> write.result().completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Discard the uncommitted changes and apply {@code applied} again. A write that fails this time is completed
+     * with its exception and removed, and the others are replayed without it.
+     */
+    private static void replay(RepositoryChangeSet changes, List<PendingWrite> applied) {
+        boolean clean;
+        do {
+            changes.discard();
+            clean = true;
+            for (Iterator<PendingWrite> writes = applied.iterator(); writes.hasNext(); ) {
+                PendingWrite write = writes.next();
+                try {
+                    write.change().accept(changes);
+                } catch (RuntimeException e) {
+                    write.result().completeExceptionally(e);
+                    writes.remove();
+                    clean = false;
+                    break;
+                }
+            }
+        } while (!clean);
+    }
+
+    private static void discard(RepositoryChangeSet changes, RuntimeException commitFailure) {
+        try {
+            changes.discard();
+        } catch (RuntimeException e) {
+            commitFailure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * The message of a single write, or the messages of a group as separate paragraphs
+     */
+    private static String commitMessage(List<PendingWrite> writes) {
+        if (writes.size() == 1) {
+            return writes.getFirst().commitMessage();
+        }
+        return writes.stream()
+                .map(PendingWrite::commitMessage)
+                .collect(Collectors.joining("\n\n"));
+    }
+}
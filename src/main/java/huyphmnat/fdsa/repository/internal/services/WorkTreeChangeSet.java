@@ -0,0 +1,127 @@
+package huyphmnat.fdsa.repository.internal.services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Applies changes to the working tree, then stages and commits the whole tree.
+ */
+class WorkTreeChangeSet implements RepositoryChangeSet {
+
+    private final GitRepositoryService gitRepositoryService;
+    private final Path repoRoot;
+
+    WorkTreeChangeSet(GitRepositoryService gitRepositoryService, Path repoRoot) {
+        this.gitRepositoryService = gitRepositoryService;
+        this.repoRoot = repoRoot;
+    }
+
+    @Override
+    public void addFile(String path, byte[] content) {
+        Path targetPath = repoRoot.resolve(path);
+
+        if (Files.exists(targetPath)) {
+            throw new RuntimeException("File already exists: " + path);
+        }
+
+        try {
+            if (targetPath.getParent() != null) {
+                Files.createDirectories(targetPath.getParent());
+            }
+            Files.write(targetPath, content, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to add file: " + path, e);
+        }
+    }
+
+    @Override
+    public void updateFile(String path, byte[] content) {
+        Path targetPath = repoRoot.resolve(path);
+
+        if (!Files.exists(targetPath)) {
+            throw new RuntimeException("File not found: " + path);
+        }
+
+        try {
+            Files.write(targetPath, content, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to update file: " + path, e);
+        }
+    }
+
+    @Override
+    public void deleteFile(String path) {
+        Path targetPath = repoRoot.resolve(path);
+
+        if (!Files.exists(targetPath)) {
+            throw new RuntimeException("File not found: " + path);
+        }
+
+        try {
+            Files.delete(targetPath);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to delete file: " + path, e);
+        }
+    }
+
+    @Override
+    public void createFolder(String path) {
+        Path folderPath = repoRoot.resolve(path);
+
+        try {
+            Files.createDirectories(folderPath);
+            Path gitkeep = folderPath.resolve(".gitkeep");
+            if (!Files.exists(gitkeep)) {
+                Files.write(gitkeep, new byte[0], StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create folder: " + path, e);
+        }
+    }
+
+    @Override
+    public void deleteFolder(String path) {
+        Path folderPath = repoRoot.resolve(path);
+
+        if (!Files.exists(folderPath)) {
+            throw new RuntimeException("Folder not found: " + path);
+        }
+
+        if (!Files.isDirectory(folderPath)) {
+            throw new RuntimeException("Path is not a folder: " + path);
+        }
+
+        try (Stream<Path> pathStream = Files.walk(folderPath)) {
+            pathStream.sorted(Comparator.reverseOrder())
+                    .forEach(p -> {
+                        try {
+                            Files.delete(p);
+                        } catch (IOException e) {
+                            throw new RuntimeException("Failed to delete path: " + p, e);
+                        }
+                    });
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to delete folder: " + path, e);
+        }
+    }
+
+    @Override
+    public void commit(String message) {
+        gitRepositoryService.stageAll(repoRoot);
+        gitRepositoryService.commit(repoRoot, message);
+    }
+
+    @Override
+    public void discard() {
+        gitRepositoryService.resetWorkTree(repoRoot);
+    }
+
+    @Override
+    public void close() {
+        // Nothing held between changes
+    }
+}
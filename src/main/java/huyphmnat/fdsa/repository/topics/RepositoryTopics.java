@@ -3,6 +3,7 @@ package huyphmnat.fdsa.repository.topics;
 public class RepositoryTopics {
     public static final String REPOSITORY_CLONED = "repository.cloned";
     public static final String REPOSITORY_DELETED = "repository.deleted";
+    public static final String REPOSITORY_SYNCED = "repository.synced";
     public static final String FILE_CREATED = "repository.file.created";
     public static final String FILE_UPDATED = "repository.file.updated";
     public static final String FILE_DELETED = "repository.file.deleted";
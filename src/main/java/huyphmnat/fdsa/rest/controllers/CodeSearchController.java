@@ -1,5 +1,6 @@
 package huyphmnat.fdsa.rest.controllers;
 
+import huyphmnat.fdsa.search.dtos.CodeFileContent;
 import huyphmnat.fdsa.search.dtos.CodeSearchRequest;
 import huyphmnat.fdsa.search.dtos.CodeSearchResponse;
 import huyphmnat.fdsa.search.interfaces.CodeSearchService;
@@ -15,6 +16,8 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/search")
@@ -43,14 +46,18 @@ public class CodeSearchController {
             @ApiResponse(responseCode = "500", description = "Internal server error")
         }
     )
-    public ResponseEntity<CodeSearchResponse> searchCode(
+    public CompletableFuture<ResponseEntity<CodeSearchResponse>> searchCode(
             @RequestParam("q") String query,
             @RequestParam(required = false) String repositoryIdentifier,
             @RequestParam(required = false) String language,
             @RequestParam(required = false) String filePathPattern,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(required = false) String highlight) {
+            @RequestParam(defaultValue = "false") boolean useCursor,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String highlight,
+            @RequestParam(defaultValue = "false") boolean includeContent,
+            @RequestParam(defaultValue = "false") boolean debug) {
         // Parse highlight fields
         List<String> highlightFields = null;
         if (highlight != null && !highlight.isEmpty()) {
@@ -64,15 +71,14 @@ public class CodeSearchController {
             .filePathPattern(filePathPattern)
             .page(page)
             .size(size)
+            .useCursor(useCursor)
+            .cursor(cursor)
             .highlightFields(highlightFields)
+            .includeContent(includeContent)
+            .debug(debug)
             .build();
 
-        CodeSearchResponse response = codeSearchService.searchCode(request);
-
-        log.info("Search completed. Found {} results out of {} total hits",
-            response.getResults().size(), response.getTotalHits());
-
-        return ResponseEntity.ok(response);
+        return search(request);
     }
 
     @PostMapping("/code")
@@ -93,16 +99,46 @@ public class CodeSearchController {
             @ApiResponse(responseCode = "500", description = "Internal server error")
         }
     )
-    public ResponseEntity<CodeSearchResponse> searchCodePost(@RequestBody CodeSearchRequest request) {
+    public CompletableFuture<ResponseEntity<CodeSearchResponse>> searchCodePost(@RequestBody CodeSearchRequest request) {
         log.info("Searching code (POST) with query: '{}', page: {}, size: {}",
             request.getQuery(), request.getPage(), request.getSize());
 
-        CodeSearchResponse response = codeSearchService.searchCode(request);
+        return search(request);
+    }
+
+    @GetMapping("/code/{id}/content")
+    @Operation(
+        operationId = "getCodeFileContent",
+        summary = "Get the full content of a search result",
+        description = "Search results leave out file content by default; this fetches it for a single result",
+        responses = {
+            @ApiResponse(
+                responseCode = "200",
+                description = "File content",
+                content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = CodeFileContent.class)
+                )
+            ),
+            @ApiResponse(responseCode = "404", description = "No indexed file with this ID"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+        }
+    )
+    public ResponseEntity<CodeFileContent> getCodeFileContent(@PathVariable UUID id) {
+        log.info("Getting content of code file {}", id);
+        return ResponseEntity.ok(codeSearchService.getFileContent(id));
+    }
 
-        log.info("Search completed. Found {} results out of {} total hits",
-            response.getResults().size(), response.getTotalHits());
+    /**
+     * The servlet thread is released while the search runs; the response is written when the future completes
+     */
+    private CompletableFuture<ResponseEntity<CodeSearchResponse>> search(CodeSearchRequest request) {
+        return codeSearchService.searchCodeAsync(request).thenApply(response -> {
+            log.info("Search completed. Found {} results out of {} total hits",
+                response.getResults().size(), response.getTotalHits());
 
-        return ResponseEntity.ok(response);
+            return ResponseEntity.ok(response);
+        });
     }
 }
 
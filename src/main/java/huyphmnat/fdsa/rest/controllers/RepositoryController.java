@@ -132,12 +132,33 @@ public class RepositoryController {
         return ResponseEntity.ok(repositoryService.cloneRepository(request));
     }
 
+    @PostMapping("/{owner}/{repository}/sync")
+    @Operation(operationId = "syncRepository", summary = "Pull upstream changes and re-index the files changed since the last indexed commit",
+        parameters = {
+            @Parameter(in = ParameterIn.PATH, name = "owner", required = true, description = "Repository owner"),
+            @Parameter(in = ParameterIn.PATH, name = "repository", required = true, description = "Repository name")
+        },
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Repository synced, re-indexing runs in the background",
+                content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = Repository.class))),
+            @ApiResponse(responseCode = "409", description = "Repository has diverged from its upstream")
+        })
+    public ResponseEntity<Repository> syncRepository(
+            @PathVariable String owner,
+            @PathVariable String repository) {
+        String identifier = owner + "/" + repository;
+        log.info("Syncing repository with identifier: {}", identifier);
+        return ResponseEntity.ok(repositoryService.syncRepository(identifier));
+    }
+
     @GetMapping("/{owner}/{repository}/browse")
     @Operation(operationId = "listRepositoryDirectory", summary = "List contents of a directory in a repository",
         parameters = {
             @Parameter(in = ParameterIn.PATH, name = "owner", required = true, description = "Repository owner"),
             @Parameter(in = ParameterIn.PATH, name = "repository", required = true, description = "Repository name"),
-            @Parameter(in = ParameterIn.QUERY, name = "path", required = false, description = "Directory path (empty or / for root)")
+            @Parameter(in = ParameterIn.QUERY, name = "path", required = false, description = "Directory path (empty or / for root)"),
+            @Parameter(in = ParameterIn.QUERY, name = "ref", required = false, description = "Branch, tag or commit to read at (default HEAD)")
         },
         responses = {
             @ApiResponse(responseCode = "200", description = "Directory contents",
@@ -147,11 +168,12 @@ public class RepositoryController {
     public ResponseEntity<DirectoryContent> listRepositoryDirectory(
             @PathVariable String owner,
             @PathVariable String repository,
-            @RequestParam(required = false, defaultValue = "") String path) {
+            @RequestParam(required = false, defaultValue = "") String path,
+            @RequestParam(required = false) String ref) {
         String identifier = owner + "/" + repository;
         UUID repoId = resolveRepositoryId(identifier);
-        log.info("Listing directory in repository {} at path: {}", identifier, path);
-        return ResponseEntity.ok(repositoryFileService.listDirectory(repoId, path));
+        log.info("Listing directory in repository {} at path: {} (ref {})", identifier, path, ref);
+        return ResponseEntity.ok(repositoryFileService.listDirectory(repoId, path, ref));
     }
 
     @GetMapping("/{owner}/{repository}/files")
@@ -159,7 +181,8 @@ public class RepositoryController {
         parameters = {
             @Parameter(in = ParameterIn.PATH, name = "owner", required = true, description = "Repository owner"),
             @Parameter(in = ParameterIn.PATH, name = "repository", required = true, description = "Repository name"),
-            @Parameter(in = ParameterIn.QUERY, name = "path", required = true, description = "File path")
+            @Parameter(in = ParameterIn.QUERY, name = "path", required = true, description = "File path"),
+            @Parameter(in = ParameterIn.QUERY, name = "ref", required = false, description = "Branch, tag or commit to read at (default HEAD)")
         },
         responses = {
             @ApiResponse(responseCode = "200", description = "File contents",
@@ -169,11 +192,12 @@ public class RepositoryController {
     public ResponseEntity<FileContent> readRepositoryFile(
             @PathVariable String owner,
             @PathVariable String repository,
-            @RequestParam String path) {
+            @RequestParam String path,
+            @RequestParam(required = false) String ref) {
         String identifier = owner + "/" + repository;
         UUID repoId = resolveRepositoryId(identifier);
-        log.info("Reading file in repository {} at path: {}", identifier, path);
-        return ResponseEntity.ok(repositoryFileService.readFile(repoId, path));
+        log.info("Reading file in repository {} at path: {} (ref {})", identifier, path, ref);
+        return ResponseEntity.ok(repositoryFileService.readFile(repoId, path, ref));
     }
 
     // File and Folder Operations
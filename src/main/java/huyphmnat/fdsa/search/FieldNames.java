@@ -20,22 +20,30 @@ public final class FieldNames {
     // File-related fields
     public static final String FILE_PATH = "file_path";
     public static final String FILE_PATH_KEYWORD = "file_path.keyword";
+    public static final String FILE_PATH_TREE = "file_path.tree";
+    public static final String FILE_PATH_REVERSED = "file_path.reversed";
     public static final String FILE_NAME = "file_name";
     public static final String FILE_NAME_KEYWORD = "file_name.keyword";
+    public static final String FILE_NAME_REVERSED = "file_name.reversed";
     public static final String FILE_EXTENSION = "file_extension";
     public static final String FILE_EXTENSION_KEYWORD = "file_extension.keyword";
     public static final String LANGUAGE = "language";
     public static final String LANGUAGE_KEYWORD = "language.keyword";
     public static final String CONTENT = "content";
+    public static final String CONTENT_EXACT = "content.exact";
     public static final String SIZE = "size";
+    public static final String CONTENT_HASH = "content_hash";
+    public static final String NORMALIZED_CONTENT_HASH = "normalized_content_hash";
 
     // Chunk-related fields
     public static final String CHUNKS = "chunks";
     public static final String CHUNK_INDEX = "index";
     public static final String CHUNK_CONTENT = "content";
+    public static final String CHUNK_CONTENT_EXACT = "content.exact";
     public static final String CHUNK_START_LINE = "start_line";
     public static final String CHUNK_END_LINE = "end_line";
     public static final String CHUNK_EMBEDDING = "embedding";
+    public static final String CHUNK_CONTENT_HASH = "content_hash";
 
     // Embedding fields
     public static final String CONTENT_EMBEDDING = "content_embedding";
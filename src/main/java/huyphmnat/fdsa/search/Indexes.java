@@ -8,7 +8,7 @@ package huyphmnat.fdsa.search;
 public final class Indexes {
 
     /**
-     * Index name for code files extracted from repositories
+     * Index name for code files extracted from repositories; an alias over the current versioned index
      */
     public static final String CODE_FILE_INDEX = "code_files";
 
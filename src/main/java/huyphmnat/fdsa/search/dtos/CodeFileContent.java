@@ -0,0 +1,43 @@
+package huyphmnat.fdsa.search.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Full content of an indexed code file, fetched on demand for a chosen search result.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CodeFileContent {
+
+    /**
+     * Document ID, as returned in {@link CodeSearchResult#getId()}
+     */
+    private UUID id;
+
+    /**
+     * Repository identifier (owner/name)
+     */
+    private String repositoryIdentifier;
+
+    /**
+     * File path within the repository
+     */
+    private String filePath;
+
+    /**
+     * Programming language
+     */
+    private String language;
+
+    /**
+     * Full file content
+     */
+    private String content;
+}
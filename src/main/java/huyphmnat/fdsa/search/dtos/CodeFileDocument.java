@@ -71,6 +71,19 @@ public class CodeFileDocument {
      */
     private Long size;
 
+    /**
+     * SHA-256 of the file content, used to skip re-indexing unchanged files
+     */
+    @JsonProperty(FieldNames.CONTENT_HASH)
+    private String contentHash;
+
+    /**
+     * SHA-256 of the file content without trailing whitespace and with unified line endings, used to detect
+     * formatting-only changes
+     */
+    @JsonProperty(FieldNames.NORMALIZED_CONTENT_HASH)
+    private String normalizedContentHash;
+
     /**
      * LLM-generated summary of the code content
      */
@@ -138,6 +151,12 @@ public class CodeFileDocument {
          */
         @JsonProperty(FieldNames.CHUNK_EMBEDDING)
         private List<Float> embedding;
+
+        /**
+         * SHA-256 of the chunk content, used to reuse embeddings of unchanged chunks
+         */
+        @JsonProperty(FieldNames.CHUNK_CONTENT_HASH)
+        private String contentHash;
     }
 }
 
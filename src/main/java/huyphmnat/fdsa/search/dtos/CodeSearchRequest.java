@@ -11,7 +11,7 @@ import java.util.List;
  * Request object for searching code files in OpenSearch.
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class CodeSearchRequest {
@@ -38,7 +38,7 @@ public class CodeSearchRequest {
     private String language;
 
     /**
-     * Filter by file path pattern (optional)
+     * Filter by file path pattern (optional); {@code *} matches any characters and {@code ?} one character
      */
     private String filePathPattern;
 
@@ -54,10 +54,33 @@ public class CodeSearchRequest {
     @Builder.Default
     private int size = 10;
 
+    /**
+     * Page with a cursor instead of {@link #page}: the response carries a {@code nextCursor}, and pages are read
+     * from a point in time so they stay consistent while files are being indexed
+     */
+    private boolean useCursor;
+
+    /**
+     * {@code nextCursor} of the previous response; continues that search and takes precedence over {@link #page}.
+     * The query, filters and size should stay the same across pages.
+     */
+    private String cursor;
+
     /**
      * Fields to highlight in search results (optional)
      */
     private List<String> highlightFields;
+
+    /**
+     * Return the full file content with every result. Off by default: results carry only the matched
+     * chunks and highlights, and the content of a chosen result is fetched separately.
+     */
+    private boolean includeContent;
+
+    /**
+     * Return a per-stage timing breakdown with the response. Debug searches bypass the response cache.
+     */
+    private boolean debug;
 }
 
 
@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Response object containing code search results with pagination.
@@ -41,9 +42,27 @@ public class CodeSearchResponse {
      */
     private int totalPages;
 
+    /**
+     * Opaque token for the next page of a cursor-paginated search; {@code null} on the last page
+     * or when the request used page numbers
+     */
+    private String nextCursor;
+
     /**
      * Time taken to execute the search (in milliseconds)
      */
     private long tookMs;
+
+    /**
+     * Time spent in each stage of the search (rewrite, embedding, opensearch, mapping, total) in milliseconds.
+     * Only present when the request asked for debug output.
+     */
+    private Map<String, Long> timingsMs;
+
+    /**
+     * Whether the query rewrite or the query embedding failed or missed its deadline, so the results come from
+     * a reduced query. Degraded responses are not cached.
+     */
+    private boolean degraded;
 }
 
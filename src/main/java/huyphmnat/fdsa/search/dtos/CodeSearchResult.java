@@ -55,7 +55,7 @@ public class CodeSearchResult {
     private String language;
 
     /**
-     * File content (may be truncated in search results)
+     * Full file content, only present when the request asked for it
      */
     private String content;
 
@@ -85,7 +85,7 @@ public class CodeSearchResult {
     private Instant updatedAt;
 
     /**
-     * Matched chunks (if content was chunked)
+     * Best matching chunks of the file (if content was chunked)
      */
     private List<ChunkMatch> matchedChunks;
 
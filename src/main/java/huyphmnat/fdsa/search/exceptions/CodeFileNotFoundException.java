@@ -0,0 +1,7 @@
+package huyphmnat.fdsa.search.exceptions;
+
+public class CodeFileNotFoundException extends RuntimeException {
+    public CodeFileNotFoundException(String message) {
+        super(message);
+    }
+}
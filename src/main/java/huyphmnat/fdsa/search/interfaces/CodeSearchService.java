@@ -1,8 +1,12 @@
 package huyphmnat.fdsa.search.interfaces;
 
+import huyphmnat.fdsa.search.dtos.CodeFileContent;
 import huyphmnat.fdsa.search.dtos.CodeSearchRequest;
 import huyphmnat.fdsa.search.dtos.CodeSearchResponse;
 
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Service for searching code files in OpenSearch.
  * This service provides full-text search capabilities across indexed repository files.
@@ -17,5 +21,24 @@ public interface CodeSearchService {
      * @return search response containing results and pagination information
      */
     CodeSearchResponse searchCode(CodeSearchRequest request);
+
+    /**
+     * Non-blocking variant of {@link #searchCode(CodeSearchRequest)}. The OpenSearch round trip does not
+     * hold a thread; failures complete the future exceptionally.
+     *
+     * @param request the search request with query and filters
+     * @return future of the search response
+     */
+    CompletableFuture<CodeSearchResponse> searchCodeAsync(CodeSearchRequest request);
+
+    /**
+     * Fetch the full content of a single search result. Search results leave the content out unless
+     * it is requested, so clients load it only for the file they open.
+     *
+     * @param id the document ID of the search result
+     * @return the file's content and identifying metadata
+     * @throws huyphmnat.fdsa.search.exceptions.CodeFileNotFoundException if no such file is indexed
+     */
+    CodeFileContent getFileContent(UUID id);
 }
 
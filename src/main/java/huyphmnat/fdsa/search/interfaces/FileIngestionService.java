@@ -16,7 +16,19 @@ public interface FileIngestionService {
      * @param repositoryIdentifier the unique identifier (owner/name) of the repository
      * @param filePath the path to the file within the repository
      */
-    void indexFile(UUID repositoryId, String repositoryIdentifier, String filePath);
+    default void indexFile(UUID repositoryId, String repositoryIdentifier, String filePath) {
+        indexFile(repositoryId, repositoryIdentifier, filePath, null);
+    }
+
+    /**
+     * Index a single file as of a commit, e.g. the commit a sync brings the index to.
+     *
+     * @param repositoryId the UUID of the repository
+     * @param repositoryIdentifier the unique identifier (owner/name) of the repository
+     * @param filePath the path to the file within the repository
+     * @param ref branch, tag or commit id to read the file at; {@code null} for HEAD
+     */
+    void indexFile(UUID repositoryId, String repositoryIdentifier, String filePath, String ref);
 
     /**
      * Remove a single file from the search index.
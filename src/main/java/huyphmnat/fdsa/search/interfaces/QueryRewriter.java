@@ -1,5 +1,7 @@
 package huyphmnat.fdsa.search.interfaces;
 
+import java.util.Optional;
+
 /**
  * Service for rewriting user search queries to make them clearer and more effective.
  * Transforms natural language queries into more precise search terms.
@@ -14,7 +16,15 @@ public interface QueryRewriter {
      * - Output: "React component libraries"
      *
      * @param originalQuery the original user query
-     * @return the rewritten, clearer query
+     * @return the rewritten, clearer query, or the original query if it could not be rewritten
+     */
+    default String rewriteQuery(String originalQuery) {
+        return tryRewriteQuery(originalQuery).orElse(originalQuery);
+    }
+
+    /**
+     * Like {@link #rewriteQuery}, but empty when the rewrite failed or missed its latency budget, so callers
+     * can tell a fallback from a query that is used as-is on purpose.
      */
-    String rewriteQuery(String originalQuery);
+    Optional<String> tryRewriteQuery(String originalQuery);
 }
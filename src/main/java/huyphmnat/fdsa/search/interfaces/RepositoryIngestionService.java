@@ -12,10 +12,23 @@ public interface RepositoryIngestionService {
      * Ingest a repository into the search index.
      * This will recursively traverse the repository, extract code files,
      * and index them in OpenSearch for full-text search.
+     * Files that cannot be indexed are recorded as dead letters and do not fail the ingestion, so the
+     * repository still counts as indexed at its head commit.
      *
      * @param repositoryId the UUID of the repository to ingest
      * @param repositoryIdentifier the unique identifier (owner/name) of the repository
+     * @throws RuntimeException if part of the repository could not be walked
      */
     void ingestRepository(UUID repositoryId, String repositoryIdentifier);
+
+    /**
+     * Bring the index from {@code fromCommit} to {@code toCommit}: only files added, modified or renamed in
+     * between are re-indexed, and deleted ones are removed. Falls back to a full ingestion when there is no
+     * previous commit or it is no longer known.
+     *
+     * @param fromCommit the last indexed commit, {@code null} if the repository was never fully indexed
+     * @param toCommit the commit the repository is at now
+     */
+    void syncRepository(UUID repositoryId, String repositoryIdentifier, String fromCommit, String toCommit);
 }
 
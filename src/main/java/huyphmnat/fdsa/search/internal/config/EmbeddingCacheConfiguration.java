@@ -0,0 +1,59 @@
+package huyphmnat.fdsa.search.internal.config;
+
+import huyphmnat.fdsa.search.internal.services.CachingEmbeddingModel;
+import huyphmnat.fdsa.search.internal.services.EmbeddingCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Puts the {@link EmbeddingCache} in front of every {@link EmbeddingModel} bean,
+ * so all callers (chunking, summaries, query embeddings) share one cache.
+ */
+@Configuration
+@Slf4j
+public class EmbeddingCacheConfiguration {
+
+    private static final String CACHE_ENABLED_PROPERTY = "search.embeddings.cache.enabled";
+
+    @Bean
+    static BeanPostProcessor cachingEmbeddingModelPostProcessor(ObjectProvider<EmbeddingCache> embeddingCache,
+                                                                Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof EmbeddingModel model
+                        && !(bean instanceof CachingEmbeddingModel)
+                        && environment.getProperty(CACHE_ENABLED_PROPERTY, Boolean.class, true)) {
+                    log.info("Wrapping embedding model '{}' with embedding cache", beanName);
+                    return new CachingEmbeddingModel(model, embeddingCache::getObject);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Drop persisted vectors of previous models on startup, so switching
+     * {@code search.embeddings.model} or {@code dimension} invalidates the cache. The OpenAI embedding
+     * options are bound to these properties, so they name the model that actually produces the vectors.
+     */
+    @Bean
+    ApplicationRunner embeddingCachePurger(EmbeddingCache embeddingCache, Environment environment) {
+        return args -> {
+            if (!environment.getProperty(CACHE_ENABLED_PROPERTY, Boolean.class, true)) {
+                return;
+            }
+            try {
+                embeddingCache.purgeStaleEntries();
+            } catch (Exception e) {
+                log.warn("Failed to purge stale embedding cache entries", e);
+            }
+        };
+    }
+}
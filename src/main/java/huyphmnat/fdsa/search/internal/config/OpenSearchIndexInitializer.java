@@ -2,15 +2,20 @@ package huyphmnat.fdsa.search.internal.config;
 
 import huyphmnat.fdsa.search.FieldNames;
 import huyphmnat.fdsa.search.Indexes;
+import huyphmnat.fdsa.search.internal.constants.Analyzers;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.opensearch.client.json.JsonData;
 import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.Conflicts;
 import org.opensearch.client.opensearch._types.mapping.Property;
 import org.opensearch.client.opensearch.cluster.PutClusterSettingsRequest;
 import org.opensearch.client.opensearch.indices.CreateIndexRequest;
 import org.opensearch.client.opensearch.indices.IndexSettings;
+import org.opensearch.client.opensearch.indices.IndexSettingsAnalysis;
 import org.opensearch.client.opensearch.search_pipeline.ScoreRankerCombinationTechnique;
+import org.opensearch.client.opensearch.tasks.GetTasksResponse;
+import org.opensearch.client.util.ObjectBuilder;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.stereotype.Component;
@@ -18,6 +23,7 @@ import org.springframework.stereotype.Component;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Component
 @Slf4j
@@ -29,6 +35,20 @@ public class OpenSearchIndexInitializer implements ApplicationRunner {
 
     private static final String SEARCH_PIPELINE_ID = "code-files-search-pipeline";
 
+    /**
+     * Version of the code files mapping and analysis; bump it on incompatible changes to migrate existing data
+     */
+    private static final int CODE_FILE_INDEX_VERSION = 3;
+
+    /**
+     * Identifiers including dotted member chains ({@code user.getName}), and numbers; operators and
+     * punctuation are dropped
+     */
+    private static final String CODE_TOKEN_PATTERN =
+            "[A-Za-z_$][A-Za-z0-9_$]*(?:\\.[A-Za-z_$][A-Za-z0-9_$]*)*|[0-9][A-Za-z0-9_.]*";
+
+    private static final long REINDEX_POLL_INTERVAL_MS = 1000;
+
     public static String MODEL_ID = null;
 
     @Override
@@ -66,31 +86,66 @@ public class OpenSearchIndexInitializer implements ApplicationRunner {
         log.info("Search pipeline created.");
     }
 
+    /**
+     * {@link Indexes#CODE_FILE_INDEX} is an alias over a versioned index. When the mapping or analysis changes,
+     * {@link #CODE_FILE_INDEX_VERSION} is bumped: the new version is created, the documents of the previous one
+     * (or of the unversioned index from before the alias) are reindexed into it, and the alias is moved over
+     * while the previous index is dropped in the same atomic step.
+     * <p>
+     * Files written to the previous index while the reindex runs are not carried over; re-ingest the affected
+     * repositories if the migration overlaps with writes.
+     */
     private void createCodeFilesIndexIfNotExists() throws Exception {
-        if (indexExists(Indexes.CODE_FILE_INDEX)) {
-            log.info("Index {} already exists.", Indexes.CODE_FILE_INDEX);
+        String currentIndex = codeFilesIndexName(CODE_FILE_INDEX_VERSION);
+        Set<String> aliasedIndexes = aliasedIndexes(Indexes.CODE_FILE_INDEX);
+        if (aliasedIndexes.contains(currentIndex)) {
+            log.info("Index {} already exists.", currentIndex);
             return;
         }
 
+        // An interrupted migration leaves the new index behind; reindexing into it again is harmless
+        if (!indexExists(currentIndex)) {
+            createCodeFilesIndex(currentIndex);
+        }
+
+        // No alias but an index under the alias name: the unversioned index from before the alias
+        List<String> previousIndexes = aliasedIndexes.isEmpty() && indexExists(Indexes.CODE_FILE_INDEX)
+                ? List.of(Indexes.CODE_FILE_INDEX)
+                : List.copyOf(aliasedIndexes);
+        if (!previousIndexes.isEmpty()) {
+            reindex(previousIndexes, currentIndex);
+        }
+
+        openSearchClient.indices().updateAliases(u -> {
+            u.actions(a -> a.add(add -> add
+                    .index(currentIndex)
+                    .alias(Indexes.CODE_FILE_INDEX)
+                    .isWriteIndex(true)));
+            previousIndexes.forEach(previous -> u.actions(a -> a.removeIndex(r -> r.index(previous))));
+            return u;
+        });
+        log.info("Alias {} now points to {} (dropped {}).", Indexes.CODE_FILE_INDEX, currentIndex, previousIndexes);
+    }
+
+    private void createCodeFilesIndex(String indexName) throws IOException {
         CreateIndexRequest request = CreateIndexRequest.of(b -> b
-                .index(Indexes.CODE_FILE_INDEX)
+                .index(indexName)
                 .settings(IndexSettings.of(s -> s
                         .numberOfShards(1)
                         .numberOfReplicas(0)
                         .knn(true)
                         .search(search -> search.defaultPipeline(SEARCH_PIPELINE_ID))
+                        .analysis(this::codeFilesAnalysis)
                 ))
                 .mappings(m -> m
                         .properties(FieldNames.ID, Property.of(p -> p.keyword(k -> k)))
                         .properties(FieldNames.REPOSITORY_ID, Property.of(p -> p.keyword(k -> k)))
                         .properties(FieldNames.REPOSITORY_IDENTIFIER, Property.of(p -> p.keyword(k -> k)))
-                        .properties(FieldNames.FILE_PATH, Property.of(p -> p.text(t -> t
-                                .fields("keyword", Property.of(f -> f.keyword(k -> k))))))
-                        .properties(FieldNames.FILE_NAME, Property.of(p -> p.text(t -> t
-                                .fields("keyword", Property.of(f -> f.keyword(k -> k))))))
+                        .properties(FieldNames.FILE_PATH, filePathProperty())
+                        .properties(FieldNames.FILE_NAME, fileNameProperty())
                         .properties(FieldNames.FILE_EXTENSION, Property.of(p -> p.keyword(k -> k)))
                         .properties(FieldNames.LANGUAGE, Property.of(p -> p.keyword(k -> k)))
-                        .properties(FieldNames.CONTENT, Property.of(p -> p.text(t -> t)))
+                        .properties(FieldNames.CONTENT, codeContentProperty())
                         .properties(FieldNames.CONTENT_EMBEDDING, Property.of(p -> p.knnVector(knn -> knn
                                 .dimension(1536)
                                 .method(method -> method
@@ -98,9 +153,11 @@ public class OpenSearchIndexInitializer implements ApplicationRunner {
                                         .spaceType("cosinesimil")
                                         .engine("faiss")))))
                         .properties(FieldNames.SIZE, Property.of(p -> p.long_(l -> l)))
+                        .properties(FieldNames.CONTENT_HASH, Property.of(p -> p.keyword(k -> k)))
+                        .properties(FieldNames.NORMALIZED_CONTENT_HASH, Property.of(p -> p.keyword(k -> k)))
                         .properties(FieldNames.CHUNKS, Property.of(p -> p.nested(n -> n
                                 .properties(FieldNames.CHUNK_INDEX, Property.of(cp -> cp.integer(i -> i)))
-                                .properties(FieldNames.CHUNK_CONTENT, Property.of(cp -> cp.text(t -> t)))
+                                .properties(FieldNames.CHUNK_CONTENT, codeContentProperty())
                                 .properties(FieldNames.CHUNK_EMBEDDING, Property.of(cp -> cp.knnVector(knn -> knn
                                         .dimension(1536)
                                         .method(method -> method
@@ -110,14 +167,127 @@ public class OpenSearchIndexInitializer implements ApplicationRunner {
                                                 .parameters("ef_construction", JsonData.of(128))
                                                 .parameters("m", JsonData.of(16))))))
                                 .properties(FieldNames.CHUNK_START_LINE, Property.of(cp -> cp.integer(i -> i)))
-                                .properties(FieldNames.CHUNK_END_LINE, Property.of(cp -> cp.integer(i -> i))))))
+                                .properties(FieldNames.CHUNK_END_LINE, Property.of(cp -> cp.integer(i -> i)))
+                                .properties(FieldNames.CHUNK_CONTENT_HASH, Property.of(cp -> cp.keyword(k -> k))))))
                         .properties(FieldNames.CREATED_AT, Property.of(p -> p.keyword(k -> k)))
                         .properties(FieldNames.UPDATED_AT, Property.of(p -> p.keyword(k -> k)))
                 )
         );
 
         openSearchClient.indices().create(request);
-        log.info("Index {} created successfully.", Indexes.CODE_FILE_INDEX);
+        log.info("Index {} created successfully.", indexName);
+    }
+
+    /**
+     * Runs the reindex as a task and polls it, since copying a large index outlasts the client socket timeout
+     */
+    private void reindex(List<String> sourceIndexes, String destinationIndex) throws IOException, InterruptedException {
+        log.info("Reindexing {} into {}...", sourceIndexes, destinationIndex);
+        String task = openSearchClient.reindex(r -> r
+                .source(source -> source.index(sourceIndexes))
+                .dest(dest -> dest.index(destinationIndex))
+                .conflicts(Conflicts.Proceed)
+                .refresh(true)
+                .waitForCompletion(false)
+        ).task();
+
+        GetTasksResponse status = openSearchClient.tasks().get(g -> g.taskId(task));
+        while (!status.completed()) {
+            Thread.sleep(REINDEX_POLL_INTERVAL_MS);
+            status = openSearchClient.tasks().get(g -> g.taskId(task));
+        }
+        if (status.error() != null) {
+            throw new IllegalStateException("Reindex into " + destinationIndex + " failed: " + status.error().reason());
+        }
+        log.info("Reindexed {} into {}.", sourceIndexes, destinationIndex);
+    }
+
+    private ObjectBuilder<IndexSettingsAnalysis> codeFilesAnalysis(IndexSettingsAnalysis.Builder analysis) {
+        return analysis
+                .tokenizer(Analyzers.CODE_TOKENIZER, t -> t.definition(d -> d.pattern(p -> p
+                        .pattern(CODE_TOKEN_PATTERN)
+                        .group(0))))
+                .filter(Analyzers.CODE_IDENTIFIER_PARTS, f -> f.definition(d -> d.wordDelimiterGraph(w -> w
+                        .preserveOriginal(true)
+                        .splitOnCaseChange(true)
+                        .splitOnNumerics(false)
+                        .generateWordParts(true)
+                        .generateNumberParts(true)
+                        .stemEnglishPossessive(false))))
+                .analyzer(Analyzers.CODE, a -> a.custom(c -> c
+                        .tokenizer(Analyzers.CODE_TOKENIZER)
+                        // The split parts form a token graph, which the index can only store flattened
+                        .filter(Analyzers.CODE_IDENTIFIER_PARTS, "lowercase", "flatten_graph")))
+                .analyzer(Analyzers.CODE_SEARCH, a -> a.custom(c -> c
+                        .tokenizer(Analyzers.CODE_TOKENIZER)
+                        .filter(Analyzers.CODE_IDENTIFIER_PARTS, "lowercase")))
+                .analyzer(Analyzers.CODE_EXACT, a -> a.custom(c -> c
+                        .tokenizer(Analyzers.CODE_TOKENIZER)))
+                .tokenizer(Analyzers.PATH_HIERARCHY_TOKENIZER, t -> t.definition(d -> d.pathHierarchy(p -> p
+                        .delimiter("/")
+                        .replacement("/")
+                        .bufferSize(1024)
+                        .reverse(false)
+                        .skip(0))))
+                .analyzer(Analyzers.PATH_HIERARCHY, a -> a.custom(c -> c
+                        .tokenizer(Analyzers.PATH_HIERARCHY_TOKENIZER)))
+                .analyzer(Analyzers.REVERSED, a -> a.custom(c -> c
+                        .tokenizer("keyword")
+                        .filter("reverse")));
+    }
+
+    /**
+     * file_path: full text, exact keyword, and a path hierarchy ("tree") sub-field where
+     * {@code src/main/A.java} is indexed as {@code src}, {@code src/main}, {@code src/main/A.java},
+     * so "everything under a folder" is a single term lookup.
+     */
+    private Property filePathProperty() {
+        return Property.of(p -> p.text(t -> t
+                .fields("keyword", Property.of(f -> f.keyword(k -> k)))
+                .fields("tree", Property.of(f -> f.text(tree -> tree
+                        .analyzer(Analyzers.PATH_HIERARCHY)
+                        .searchAnalyzer("keyword"))))
+                .fields("reversed", reversedProperty())));
+    }
+
+    private Property fileNameProperty() {
+        return Property.of(p -> p.text(t -> t
+                .fields("keyword", Property.of(f -> f.keyword(k -> k)))
+                .fields("reversed", reversedProperty())));
+    }
+
+    /**
+     * Suffix patterns such as {@code *Service.java} become a prefix query on the reversed value instead of
+     * a wildcard scan over every term. The search side is not analyzed: callers reverse the suffix.
+     */
+    private Property reversedProperty() {
+        return Property.of(f -> f.text(reversed -> reversed
+                .analyzer(Analyzers.REVERSED)
+                .searchAnalyzer("keyword")));
+    }
+
+    /**
+     * Source code text: identifiers are indexed whole and split into their camelCase / snake_case / dotted
+     * parts, so {@code findByEmailAddress} matches both itself and "email address". The {@code exact}
+     * sub-field keeps identifiers whole and case-sensitive for precise identifier lookups.
+     */
+    private Property codeContentProperty() {
+        return Property.of(p -> p.text(t -> t
+                .analyzer(Analyzers.CODE)
+                .searchAnalyzer(Analyzers.CODE_SEARCH)
+                .fields("exact", Property.of(f -> f.text(exact -> exact
+                        .analyzer(Analyzers.CODE_EXACT))))));
+    }
+
+    private static String codeFilesIndexName(int version) {
+        return Indexes.CODE_FILE_INDEX + "_v" + version;
+    }
+
+    private Set<String> aliasedIndexes(String alias) throws IOException {
+        if (!openSearchClient.indices().existsAlias(e -> e.name(alias)).value()) {
+            return Set.of();
+        }
+        return openSearchClient.indices().getAlias(g -> g.name(alias)).result().keySet();
     }
 
     private boolean indexExists(String indexName) throws Exception {
@@ -0,0 +1,39 @@
+package huyphmnat.fdsa.search.internal.config;
+
+import huyphmnat.fdsa.search.internal.services.CachingEmbeddingModel;
+import huyphmnat.fdsa.search.internal.services.ProviderThrottles;
+import huyphmnat.fdsa.search.internal.services.RateLimitedEmbeddingModel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Exposes the embedding model of the ingestion pipeline, which goes through the embedding provider throttle.
+ * Search keeps using the shared, unthrottled model, so query embeddings never queue behind ingestion.
+ */
+@Configuration
+@Slf4j
+public class ProviderThrottleConfiguration {
+
+    public static final String INGESTION_EMBEDDING_MODEL = "ingestionEmbeddingModel";
+
+    /**
+     * Not a default candidate: plain {@link EmbeddingModel} injection points still get the shared model, and
+     * ingestion components ask for this one by qualifier. The throttle sits below the embedding cache, so
+     * cache hits do not consume rate limit tokens.
+     */
+    @Bean(name = INGESTION_EMBEDDING_MODEL, defaultCandidate = false)
+    EmbeddingModel ingestionEmbeddingModel(EmbeddingModel embeddingModel, ObjectProvider<ProviderThrottles> throttles) {
+        log.info("Throttling ingestion embedding requests");
+        if (embeddingModel instanceof CachingEmbeddingModel cachingModel) {
+            return cachingModel.withDelegate(rateLimited(cachingModel.getDelegate(), throttles));
+        }
+        return rateLimited(embeddingModel, throttles);
+    }
+
+    private static EmbeddingModel rateLimited(EmbeddingModel model, ObjectProvider<ProviderThrottles> throttles) {
+        return new RateLimitedEmbeddingModel(model, () -> throttles.getObject().embedding());
+    }
+}
@@ -0,0 +1,62 @@
+package huyphmnat.fdsa.search.internal.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import huyphmnat.fdsa.search.internal.constants.Caches;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Search response cache. Entries expire after a TTL, which also bounds how long results computed
+ * before an index refresh can be served; invalidation on re-indexing happens through the generation
+ * in the cache key, see {@link huyphmnat.fdsa.search.internal.services.IndexGenerations}.
+ * <p>
+ * Spring Boot exports {@code cache.gets}/{@code cache.puts}/{@code cache.evictions} for the cache;
+ * {@code search.cache.hit.ratio} adds the hit ratio directly.
+ */
+@Configuration
+@EnableCaching
+@Slf4j
+public class SearchCacheConfiguration {
+
+    @Value("${search.cache.code-search.ttl-seconds:300}")
+    private long codeSearchTtlSeconds;
+
+    @Value("${search.cache.code-search.max-entries:1000}")
+    private long codeSearchMaxEntries;
+
+    @Bean
+    public CacheManager cacheManager(MeterRegistry meterRegistry) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(codeSearchTtlSeconds))
+                .maximumSize(codeSearchMaxEntries)
+                .recordStats());
+        // Lets @Cacheable also cache the CompletableFuture returned by the async search
+        cacheManager.setAsyncCacheMode(true);
+        cacheManager.setCacheNames(List.of(Caches.CODE_SEARCH));
+        cacheManager.setAllowNullValues(false);
+
+        Gauge.builder("search.cache.hit.ratio", cacheManager, manager -> nativeCache(manager).stats().hitRate())
+                .description("Hit ratio of the search response cache")
+                .tag("cache", Caches.CODE_SEARCH)
+                .register(meterRegistry);
+
+        log.info("Search response cache: ttl {}s, max {} entries", codeSearchTtlSeconds, codeSearchMaxEntries);
+        return cacheManager;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache(CacheManager cacheManager) {
+        return (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cacheManager.getCache(Caches.CODE_SEARCH).getNativeCache();
+    }
+}
@@ -0,0 +1,45 @@
+package huyphmnat.fdsa.search.internal.constants;
+
+/**
+ * Names of the custom analysis components declared on the code files index.
+ */
+public final class Analyzers {
+
+    /**
+     * Tokenizes {@code a/b/C.java} into {@code a}, {@code a/b}, {@code a/b/C.java}
+     */
+    public static final String PATH_HIERARCHY_TOKENIZER = "path_hierarchy_tokenizer";
+
+    public static final String PATH_HIERARCHY = "path_hierarchy_analyzer";
+
+    /**
+     * Whole value reversed, so "ends with" becomes a prefix lookup: {@code a/UserService.java} is
+     * indexed as {@code avaj.ecivreSresU/a}
+     */
+    public static final String REVERSED = "reversed_analyzer";
+
+    /**
+     * Identifiers (including dotted chains such as {@code user.getName}) and numbers from source code
+     */
+    public static final String CODE_TOKENIZER = "code_tokenizer";
+
+    /**
+     * Splits identifiers on case changes, underscores and dots while keeping the original token
+     */
+    public static final String CODE_IDENTIFIER_PARTS = "code_identifier_parts";
+
+    /**
+     * Index side of code content: {@code getUserName} becomes {@code getusername}, {@code get}, {@code user},
+     * {@code name}
+     */
+    public static final String CODE = "code_analyzer";
+
+    public static final String CODE_SEARCH = "code_search_analyzer";
+
+    /**
+     * Whole identifiers, case preserved
+     */
+    public static final String CODE_EXACT = "code_exact_analyzer";
+
+    private Analyzers() {}
+}
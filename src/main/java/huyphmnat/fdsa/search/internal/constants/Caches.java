@@ -0,0 +1,15 @@
+package huyphmnat.fdsa.search.internal.constants;
+
+public final class Caches {
+
+    /**
+     * Search responses, keyed by the normalized request and the index generation it was computed against
+     */
+    public static final String CODE_SEARCH = "codeSearch";
+
+    public static final String CODE_SEARCH_KEY_GENERATOR = "codeSearchKeyGenerator";
+
+    private Caches() {
+        // Prevent instantiation
+    }
+}
@@ -0,0 +1,61 @@
+package huyphmnat.fdsa.search.internal.entites;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A code file that could not be indexed: its document was rejected by bulk indexing even after retries, or
+ * a pipeline stage failed for it before it became a document.
+ * Only the file's identity is kept: the document is rebuilt from the repository when it is re-indexed.
+ */
+@Entity
+@Table(name = "search_dead_letters", indexes = {
+        @Index(name = "idx_search_dead_letters_repository", columnList = "repositoryId")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkDeadLetterEntity {
+
+    @Id
+    private UUID id;
+
+    @Column(nullable = false)
+    private UUID documentId;
+
+    @Column(nullable = false)
+    private UUID repositoryId;
+
+    @Column(nullable = false)
+    private String repositoryIdentifier;
+
+    @Column(nullable = false, length = 4096)
+    private String filePath;
+
+    /**
+     * HTTP status of the last failed attempt, {@code 0} if the request itself failed or the file never reached
+     * bulk indexing
+     */
+    @Column(nullable = false)
+    private Integer status;
+
+    @Column(length = 4096)
+    private String reason;
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
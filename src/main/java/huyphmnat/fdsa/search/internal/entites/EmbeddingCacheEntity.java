@@ -0,0 +1,52 @@
+package huyphmnat.fdsa.search.internal.entites;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Persistent tier of the embedding cache.
+ * One row per (model, dimension, SHA-256 of the embedded text).
+ */
+@Entity
+@Table(name = "embedding_cache", indexes = {
+        @Index(name = "idx_embedding_cache_model", columnList = "model, dimension")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmbeddingCacheEntity {
+
+    /**
+     * Cache key in the form {@code model:dimension:textHash}
+     */
+    @Id
+    private String cacheKey;
+
+    @Column(nullable = false)
+    private String model;
+
+    @Column(nullable = false)
+    private Integer dimension;
+
+    @Column(nullable = false, length = 64)
+    private String textHash;
+
+    /**
+     * Embedding vector encoded as big-endian IEEE 754 floats
+     */
+    @Column(nullable = false)
+    private byte[] vector;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
@@ -3,6 +3,7 @@ package huyphmnat.fdsa.search.internal.ingestion;
 import huyphmnat.fdsa.repository.dtos.FileCreatedEvent;
 import huyphmnat.fdsa.repository.topics.RepositoryTopics;
 import huyphmnat.fdsa.search.interfaces.FileIngestionService;
+import huyphmnat.fdsa.search.internal.services.IndexGenerations;
 import huyphmnat.fdsa.shared.GroupIdConfiguration;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,6 +17,7 @@ import org.springframework.stereotype.Component;
 public class FileCreated {
 
     private final FileIngestionService fileIngestionService;
+    private final IndexGenerations indexGenerations;
 
     @KafkaListener(topics = RepositoryTopics.FILE_CREATED, groupId = GroupIdConfiguration.GROUP_ID)
     public void handleFileCreated(FileCreatedEvent event, Acknowledgment acknowledgment) {
@@ -28,6 +30,7 @@ public class FileCreated {
                 event.getRepositoryIdentifier(),
                 event.getFilePath()
             );
+            indexGenerations.bump(event.getRepositoryIdentifier());
             log.info("Successfully indexed new file: {}", event.getFilePath());
             if (acknowledgment != null) {
                 acknowledgment.acknowledge();
@@ -3,6 +3,7 @@ package huyphmnat.fdsa.search.internal.ingestion;
 import huyphmnat.fdsa.repository.dtos.FileDeletedEvent;
 import huyphmnat.fdsa.repository.topics.RepositoryTopics;
 import huyphmnat.fdsa.search.interfaces.FileIngestionService;
+import huyphmnat.fdsa.search.internal.services.IndexGenerations;
 import huyphmnat.fdsa.shared.GroupIdConfiguration;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,6 +17,7 @@ import org.springframework.stereotype.Component;
 public class FileDeleted {
 
     private final FileIngestionService fileIngestionService;
+    private final IndexGenerations indexGenerations;
 
     @KafkaListener(topics = RepositoryTopics.FILE_DELETED, groupId = GroupIdConfiguration.GROUP_ID)
     public void handleFileDeleted(FileDeletedEvent event, Acknowledgment acknowledgment) {
@@ -27,6 +29,7 @@ public class FileDeleted {
                 event.getRepositoryId(),
                 event.getFilePath()
             );
+            indexGenerations.bump(event.getRepositoryIdentifier());
             log.info("Successfully removed deleted file from index: {}", event.getFilePath());
             if (acknowledgment != null) {
                 acknowledgment.acknowledge();
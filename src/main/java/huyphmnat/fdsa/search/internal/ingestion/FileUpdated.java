@@ -3,6 +3,7 @@ package huyphmnat.fdsa.search.internal.ingestion;
 import huyphmnat.fdsa.repository.dtos.FileUpdatedEvent;
 import huyphmnat.fdsa.repository.topics.RepositoryTopics;
 import huyphmnat.fdsa.search.interfaces.FileIngestionService;
+import huyphmnat.fdsa.search.internal.services.IndexGenerations;
 import huyphmnat.fdsa.shared.GroupIdConfiguration;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,6 +17,7 @@ import org.springframework.stereotype.Component;
 public class FileUpdated {
 
     private final FileIngestionService fileIngestionService;
+    private final IndexGenerations indexGenerations;
 
     @KafkaListener(topics = RepositoryTopics.FILE_UPDATED, groupId = GroupIdConfiguration.GROUP_ID)
     public void handleFileUpdated(FileUpdatedEvent event, Acknowledgment acknowledgment) {
@@ -29,6 +31,7 @@ public class FileUpdated {
                 event.getRepositoryIdentifier(),
                 event.getFilePath()
             );
+            indexGenerations.bump(event.getRepositoryIdentifier());
             log.info("Successfully re-indexed updated file: {}", event.getFilePath());
             if (acknowledgment != null) {
                 acknowledgment.acknowledge();
@@ -3,6 +3,7 @@ package huyphmnat.fdsa.search.internal.ingestion;
 import huyphmnat.fdsa.repository.dtos.FolderDeletedEvent;
 import huyphmnat.fdsa.repository.topics.RepositoryTopics;
 import huyphmnat.fdsa.search.interfaces.FileIngestionService;
+import huyphmnat.fdsa.search.internal.services.IndexGenerations;
 import huyphmnat.fdsa.shared.GroupIdConfiguration;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,6 +17,7 @@ import org.springframework.stereotype.Component;
 public class FolderDeleted {
 
     private final FileIngestionService fileIngestionService;
+    private final IndexGenerations indexGenerations;
 
     @KafkaListener(topics = RepositoryTopics.FOLDER_DELETED, groupId = GroupIdConfiguration.GROUP_ID)
     public void handleFolderDeleted(FolderDeletedEvent event, Acknowledgment acknowledgment) {
@@ -28,6 +30,7 @@ public class FolderDeleted {
                 event.getRepositoryId(),
                 event.getFolderPath()
             );
+            indexGenerations.bump(event.getRepositoryIdentifier());
             log.info("Successfully removed all files from deleted folder: {}", event.getFolderPath());
             if (acknowledgment != null) {
                 acknowledgment.acknowledge();
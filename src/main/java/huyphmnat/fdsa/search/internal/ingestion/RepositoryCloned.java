@@ -1,8 +1,10 @@
 package huyphmnat.fdsa.search.internal.ingestion;
 
 import huyphmnat.fdsa.repository.dtos.RepositoryClonedEvent;
+import huyphmnat.fdsa.repository.interfaces.RepositoryService;
 import huyphmnat.fdsa.repository.topics.RepositoryTopics;
 import huyphmnat.fdsa.search.interfaces.RepositoryIngestionService;
+import huyphmnat.fdsa.search.internal.services.IndexGenerations;
 import huyphmnat.fdsa.shared.GroupIdConfiguration;
 import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
@@ -17,6 +19,8 @@ import org.springframework.stereotype.Component;
 public class RepositoryCloned {
 
     private final RepositoryIngestionService repositoryIngestionService;
+    private final IndexGenerations indexGenerations;
+    private final RepositoryService repositoryService;
 
     @KafkaListener(topics = RepositoryTopics.REPOSITORY_CLONED, groupId = GroupIdConfiguration.GROUP_ID)
     @Observed(name = "repository.cloned.event.handling", contextualName = "Handle RepositoryClonedEvent")
@@ -26,6 +30,11 @@ public class RepositoryCloned {
 
         try {
             repositoryIngestionService.ingestRepository(event.getId(), event.getIdentifier());
+            indexGenerations.bump(event.getIdentifier());
+            if (event.getHeadCommit() != null) {
+                // Later syncs only re-index what changed after this commit
+                repositoryService.recordIndexedCommit(event.getId(), event.getHeadCommit());
+            }
             log.info("Successfully ingested repository: {}", event.getIdentifier());
             if (acknowledgment != null) {
                 acknowledgment.acknowledge();
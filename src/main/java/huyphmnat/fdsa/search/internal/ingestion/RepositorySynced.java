@@ -0,0 +1,50 @@
+package huyphmnat.fdsa.search.internal.ingestion;
+
+import huyphmnat.fdsa.repository.dtos.RepositorySyncedEvent;
+import huyphmnat.fdsa.repository.interfaces.RepositoryService;
+import huyphmnat.fdsa.repository.topics.RepositoryTopics;
+import huyphmnat.fdsa.search.interfaces.RepositoryIngestionService;
+import huyphmnat.fdsa.search.internal.services.IndexGenerations;
+import huyphmnat.fdsa.shared.GroupIdConfiguration;
+import io.micrometer.observation.annotation.Observed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RepositorySynced {
+
+    private final RepositoryIngestionService repositoryIngestionService;
+    private final IndexGenerations indexGenerations;
+    private final RepositoryService repositoryService;
+
+    @KafkaListener(topics = RepositoryTopics.REPOSITORY_SYNCED, groupId = GroupIdConfiguration.GROUP_ID)
+    @Observed(name = "repository.synced.event.handling", contextualName = "Handle RepositorySyncedEvent")
+    public void handleRepositorySynced(RepositorySyncedEvent event, Acknowledgment acknowledgment) {
+        log.info("Received RepositorySyncedEvent for repository: {} ({}..{})",
+            event.getIdentifier(), event.getFromCommit(), event.getToCommit());
+
+        try {
+            repositoryIngestionService.syncRepository(
+                event.getId(),
+                event.getIdentifier(),
+                event.getFromCommit(),
+                event.getToCommit()
+            );
+            indexGenerations.bump(event.getIdentifier());
+            repositoryService.recordIndexedCommit(event.getId(), event.getToCommit());
+            log.info("Successfully synced repository: {} at {}", event.getIdentifier(), event.getToCommit());
+            if (acknowledgment != null) {
+                acknowledgment.acknowledge();
+                log.debug("Acknowledged message for repository: {}", event.getIdentifier());
+            }
+        } catch (Exception e) {
+            log.error("Failed to sync repository: {}", event.getIdentifier(), e);
+            // Message will not be acknowledged, will be reprocessed
+        }
+    }
+}
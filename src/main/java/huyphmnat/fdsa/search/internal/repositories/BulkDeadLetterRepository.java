@@ -0,0 +1,12 @@
+package huyphmnat.fdsa.search.internal.repositories;
+
+import huyphmnat.fdsa.search.internal.entites.BulkDeadLetterEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface BulkDeadLetterRepository extends JpaRepository<BulkDeadLetterEntity, UUID> {
+
+    List<BulkDeadLetterEntity> findByRepositoryId(UUID repositoryId);
+}
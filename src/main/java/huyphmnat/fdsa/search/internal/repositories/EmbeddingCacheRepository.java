@@ -0,0 +1,19 @@
+package huyphmnat.fdsa.search.internal.repositories;
+
+import huyphmnat.fdsa.search.internal.entites.EmbeddingCacheEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface EmbeddingCacheRepository extends JpaRepository<EmbeddingCacheEntity, String> {
+
+    /**
+     * Remove every entry that was not produced by the given model and dimension.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from EmbeddingCacheEntity e where e.model <> :model or e.dimension <> :dimension")
+    int deleteStaleEntries(@Param("model") String model, @Param("dimension") Integer dimension);
+}
@@ -0,0 +1,25 @@
+package huyphmnat.fdsa.search.internal.services;
+
+import huyphmnat.fdsa.search.dtos.CodeFileDocument;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk index request: the documents OpenSearch rejected, with the per-item status and reason.
+ */
+public record BulkIndexResult(int indexed, List<ItemFailure> failures) {
+
+    public static BulkIndexResult success(int indexed) {
+        return new BulkIndexResult(indexed, List.of());
+    }
+
+    public record ItemFailure(CodeFileDocument document, int status, String reason) {
+
+        /**
+         * The cluster is overloaded (too many requests / write queue full), so the item may succeed later
+         */
+        public boolean isRetryable() {
+            return status == 429 || status == 503;
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package huyphmnat.fdsa.search.internal.services;
+
+import huyphmnat.fdsa.search.dtos.CodeFileDocument;
+import huyphmnat.fdsa.search.internal.entites.BulkDeadLetterEntity;
+import huyphmnat.fdsa.search.internal.repositories.BulkDeadLetterRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.opensearch.client.opensearch._types.OpenSearchException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Groups code file documents into bulk requests and makes sure each one ends up either indexed or dead-lettered.
+ * <p>
+ * A batch is flushed once it reaches {@code max-documents} documents or {@code max-bytes} of estimated
+ * payload, or when its oldest document has waited {@code flush-interval-ms}. Items rejected because the
+ * cluster is overloaded (429/503) are retried on their own with exponential backoff; items rejected for
+ * any other reason, or still failing after {@code max-retries}, are recorded in the dead-letter table.
+ * <p>
+ * Requests go through the async client, so a session keeps up to {@code max-in-flight} bulk requests
+ * in flight while the producer carries on filling the next batch.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class BulkIngester {
+
+    /**
+     * Overloaded or temporarily unavailable cluster; {@code 0} stands for an I/O failure without a response
+     */
+    private static final Set<Integer> RETRYABLE_REQUEST_STATUSES = Set.of(0, 429, 502, 503, 504);
+    private static final int PAYLOAD_TOO_LARGE = 413;
+
+    private static final int DOCUMENT_OVERHEAD_BYTES = 512; // action line, ids, dates, field names
+    private static final int CHUNK_OVERHEAD_BYTES = 128;
+    private static final int FLOAT_JSON_BYTES = 12; // e.g. "-0.012345678,"
+
+    private final OpenSearchIndexingService indexingService;
+    private final BulkDeadLetterRepository deadLetterRepository;
+    private final MeterRegistry meterRegistry;
+    private final IngestionExecutor ingestionExecutor;
+
+    @Value("${search.ingestion.bulk.max-documents:100}")
+    private int maxDocuments = 100;
+
+    @Value("${search.ingestion.bulk.max-bytes:5242880}")
+    private long maxBytes = 5 * 1024 * 1024;
+
+    @Getter
+    @Value("${search.ingestion.bulk.flush-interval-ms:2000}")
+    private long flushIntervalMs = 2000;
+
+    @Value("${search.ingestion.bulk.max-in-flight:2}")
+    private int maxInFlight = 2;
+
+    @Value("${search.ingestion.bulk.max-retries:5}")
+    private int maxRetries = 5;
+
+    @Value("${search.ingestion.bulk.initial-backoff-ms:200}")
+    private long initialBackoffMs = 200;
+
+    @Value("${search.ingestion.bulk.max-backoff-ms:10000}")
+    private long maxBackoffMs = 10_000;
+
+    private Timer requestTimer;
+    private Counter bytesCounter;
+    private Counter indexedCounter;
+    private Counter retriedCounter;
+    private Counter deadLetteredCounter;
+
+    @PostConstruct
+    public void init() {
+        requestTimer = Timer.builder("search.ingestion.bulk.requests")
+                .description("Bulk index requests sent to OpenSearch")
+                .register(meterRegistry);
+        bytesCounter = Counter.builder("search.ingestion.bulk.bytes")
+                .description("Estimated payload of flushed bulk batches")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        indexedCounter = documentCounter("indexed");
+        retriedCounter = documentCounter("retried");
+        deadLetteredCounter = documentCounter("dead_lettered");
+    }
+
+    /**
+     * Start buffering documents for one producer. Sessions are not thread-safe.
+     */
+    public Session openSession() {
+        return new Session();
+    }
+
+    public class Session implements AutoCloseable {
+        private final List<CodeFileDocument> buffer = new ArrayList<>();
+        private long bufferedBytes;
+        private long oldestBufferedAt;
+
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+        private final List<CompletableFuture<Void>> requests = new ArrayList<>();
+
+        // Updated from request completions
+        private final AtomicInteger indexed = new AtomicInteger();
+        private final AtomicInteger deadLettered = new AtomicInteger();
+
+        public void add(CodeFileDocument document) throws InterruptedException {
+            long documentBytes = estimateBytes(document);
+            if (!buffer.isEmpty() && bufferedBytes + documentBytes > maxBytes) {
+                flush();
+            }
+
+            if (buffer.isEmpty()) {
+                oldestBufferedAt = System.currentTimeMillis();
+            }
+            buffer.add(document);
+            bufferedBytes += documentBytes;
+
+            if (buffer.size() >= maxDocuments || bufferedBytes >= maxBytes
+                    || System.currentTimeMillis() - oldestBufferedAt >= flushIntervalMs) {
+                flush();
+            }
+        }
+
+        /**
+         * Send the buffered documents, blocking only while {@code max-in-flight} requests are already pending
+         */
+        public void flush() throws InterruptedException {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            log.debug("Flushing {} documents (~{} bytes) to index...", buffer.size(), bufferedBytes);
+            bytesCounter.increment(bufferedBytes);
+
+            List<CodeFileDocument> batch = List.copyOf(buffer);
+            buffer.clear();
+            bufferedBytes = 0;
+
+            inFlight.acquire();
+            requests.removeIf(request -> request.isDone() && !request.isCompletedExceptionally());
+            requests.add(send(batch, 1, this).whenComplete((ignored, error) -> inFlight.release()));
+        }
+
+        /**
+         * Flush the remaining documents and wait until every request of this session has settled
+         */
+        @Override
+        public void close() throws InterruptedException {
+            flush();
+            try {
+                CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new)).get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Bulk indexing failed", e.getCause());
+            }
+        }
+
+        public int getIndexed() {
+            return indexed.get();
+        }
+
+        public int getDeadLettered() {
+            return deadLettered.get();
+        }
+    }
+
+    /**
+     * Completes once every document of the batch is either indexed or dead-lettered
+     */
+    private CompletableFuture<Void> send(List<CodeFileDocument> batch, int attempt, Session session) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        // Outcomes are handled off the HTTP client's I/O threads, since dead-lettering hits the database
+        return indexingService.bulkIndexCodeFilesAsync(batch)
+                .handleAsync((result, error) -> {
+                    sample.stop(requestTimer);
+                    return error != null
+                            ? onRequestFailure(batch, attempt, error, session)
+                            : onResult(result, attempt, session);
+                }, ingestionExecutor)
+                .thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<Void> onRequestFailure(List<CodeFileDocument> batch, int attempt, Throwable error, Session session) {
+        int status = statusOf(error);
+        if (status == PAYLOAD_TOO_LARGE && batch.size() > 1) {
+            // The size estimate was off; halve the batch instead of giving up on it
+            int half = batch.size() / 2;
+            return CompletableFuture.allOf(
+                    send(batch.subList(0, half), 1, session),
+                    send(batch.subList(half, batch.size()), 1, session));
+        }
+        if (!RETRYABLE_REQUEST_STATUSES.contains(status) || attempt > maxRetries) {
+            deadLetter(batch, status, rootMessage(error), attempt, session);
+            return CompletableFuture.completedFuture(null);
+        }
+        log.warn("Bulk request of {} documents failed with status {}, retrying (attempt {}/{})",
+                batch.size(), status, attempt, maxRetries);
+        retriedCounter.increment(batch.size());
+        return retryLater(batch, attempt, session);
+    }
+
+    private CompletableFuture<Void> onResult(BulkIndexResult result, int attempt, Session session) {
+        session.indexed.addAndGet(result.indexed());
+        indexedCounter.increment(result.indexed());
+
+        List<CodeFileDocument> retry = new ArrayList<>();
+        for (BulkIndexResult.ItemFailure failure : result.failures()) {
+            if (failure.isRetryable() && attempt <= maxRetries) {
+                retry.add(failure.document());
+            } else {
+                deadLetter(List.of(failure.document()), failure.status(), failure.reason(), attempt, session);
+            }
+        }
+
+        if (retry.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        log.warn("{} documents were rejected by an overloaded cluster, retrying (attempt {}/{})",
+                retry.size(), attempt, maxRetries);
+        retriedCounter.increment(retry.size());
+        return retryLater(retry, attempt, session);
+    }
+
+    /**
+     * Exponential backoff with jitter, so producers rejected together do not retry together
+     */
+    private CompletableFuture<Void> retryLater(List<CodeFileDocument> documents, int attempt, Session session) {
+        long ceiling = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+        long delay = ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+        Executor delayed = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, ingestionExecutor);
+        return CompletableFuture.supplyAsync(() -> send(documents, attempt + 1, session), delayed)
+                .thenCompose(Function.identity());
+    }
+
+    private void deadLetter(List<CodeFileDocument> documents, int status, String reason, int attempts, Session session) {
+        log.error("Dead-lettering {} documents after {} attempts (status {}): {}", documents.size(), attempts, status, reason);
+        session.deadLettered.addAndGet(documents.size());
+        deadLetteredCounter.increment(documents.size());
+
+        List<BulkDeadLetterEntity> entities = new ArrayList<>(documents.size());
+        for (CodeFileDocument document : documents) {
+            entities.add(deadLetterEntity(document.getId(), document.getRepositoryId(), document.getRepositoryIdentifier(),
+                    document.getFilePath(), status, reason, attempts));
+        }
+        saveDeadLetters(entities);
+    }
+
+    /**
+     * Park a file that failed before it became a document (e.g. it could not be read or chunked), so it gets the
+     * same durable record as a document that could not be indexed
+     */
+    public void deadLetterFile(UUID repositoryId, String repositoryIdentifier, String filePath, String reason) {
+        deadLetteredCounter.increment();
+        saveDeadLetters(List.of(deadLetterEntity(CodeFileIds.of(repositoryId, filePath), repositoryId, repositoryIdentifier,
+                filePath, 0, reason, 1)));
+    }
+
+    private static BulkDeadLetterEntity deadLetterEntity(UUID documentId, UUID repositoryId, String repositoryIdentifier,
+                                                         String filePath, int status, String reason, int attempts) {
+        return BulkDeadLetterEntity.builder()
+                .id(UUID.randomUUID())
+                .documentId(documentId)
+                .repositoryId(repositoryId)
+                .repositoryIdentifier(repositoryIdentifier)
+                .filePath(filePath)
+                .status(status)
+                .reason(truncate(reason))
+                .attempts(attempts)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private void saveDeadLetters(List<BulkDeadLetterEntity> entities) {
+        try {
+            deadLetterRepository.saveAll(entities);
+        } catch (Exception e) {
+            // Losing the record must not fail the ingestion; the error log above still names the files
+            log.error("Failed to persist {} dead letters", entities.size(), e);
+        }
+    }
+
+    private Counter documentCounter(String result) {
+        return Counter.builder("search.ingestion.bulk.documents")
+                .description("Documents handled by the bulk ingester")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Rough size of the document's JSON: text fields plus every vector component
+     */
+    static long estimateBytes(CodeFileDocument document) {
+        long bytes = DOCUMENT_OVERHEAD_BYTES
+                + length(document.getContent())
+                + length(document.getContentSummary())
+                + 2L * length(document.getFilePath());
+        if (document.getContentEmbedding() != null) {
+            bytes += (long) document.getContentEmbedding().size() * FLOAT_JSON_BYTES;
+        }
+        if (document.getCodeChunks() != null) {
+            for (CodeFileDocument.CodeChunk chunk : document.getCodeChunks()) {
+                bytes += CHUNK_OVERHEAD_BYTES + length(chunk.getContent());
+                if (chunk.getEmbedding() != null) {
+                    bytes += (long) chunk.getEmbedding().size() * FLOAT_JSON_BYTES;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage() != null ? root.getMessage() : root.toString();
+    }
+
+    private static int statusOf(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OpenSearchException openSearchException) {
+                return openSearchException.status();
+            }
+        }
+        return 0;
+    }
+
+    private static long length(String text) {
+        return text == null ? 0 : text.length();
+    }
+
+    private static String truncate(String reason) {
+        if (reason == null) return null;
+        return reason.length() > 4096 ? reason.substring(0, 4096) : reason;
+    }
+}
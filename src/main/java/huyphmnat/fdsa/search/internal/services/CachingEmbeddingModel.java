@@ -0,0 +1,134 @@
+package huyphmnat.fdsa.search.internal.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * {@link EmbeddingModel} decorator that serves vectors from the {@link EmbeddingCache}
+ * and only sends cache misses (deduplicated) to the wrapped model.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+
+    /**
+     * Resolved lazily so wrapping the model does not force early initialization of the cache
+     */
+    private final Supplier<EmbeddingCache> embeddingCache;
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        EmbeddingCache cache = embeddingCache.get();
+        List<String> texts = request.getInstructions();
+        String model = resolveModel(request.getOptions(), cache);
+        int dimension = resolveDimension(request.getOptions(), cache);
+
+        List<float[]> vectors = cache.getAll(model, dimension, texts);
+
+        // Group missing positions by text so duplicated inputs are embedded once
+        Map<String, List<Integer>> missing = new LinkedHashMap<>();
+        for (int i = 0; i < texts.size(); i++) {
+            if (vectors.get(i) == null) {
+                missing.computeIfAbsent(texts.get(i), k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        if (missing.isEmpty()) {
+            log.debug("Served {} embeddings from cache", texts.size());
+            return toResponse(vectors);
+        }
+
+        List<String> missingTexts = new ArrayList<>(missing.keySet());
+        log.debug("Embedding cache: {} hits, {} distinct misses", texts.size() - countPositions(missing), missingTexts.size());
+
+        EmbeddingResponse response = delegate.call(new EmbeddingRequest(missingTexts, request.getOptions()));
+
+        List<float[]> fresh = new ArrayList<>(missingTexts.size());
+        for (int i = 0; i < missingTexts.size(); i++) {
+            fresh.add(null);
+        }
+        for (Embedding embedding : response.getResults()) {
+            if (embedding.getIndex() != null && embedding.getIndex() < fresh.size()) {
+                fresh.set(embedding.getIndex(), embedding.getOutput());
+            }
+        }
+
+        cache.putAll(model, dimension, missingTexts, fresh);
+
+        for (int i = 0; i < missingTexts.size(); i++) {
+            float[] vector = fresh.get(i);
+            for (int position : missing.get(missingTexts.get(i))) {
+                vectors.set(position, vector);
+            }
+        }
+
+        return toResponse(vectors);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    /**
+     * The wrapped model, e.g. for callers that need provider specific APIs
+     */
+    public EmbeddingModel getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * A model sharing this cache in front of another delegate
+     */
+    public CachingEmbeddingModel withDelegate(EmbeddingModel delegate) {
+        return new CachingEmbeddingModel(delegate, embeddingCache);
+    }
+
+    private static EmbeddingResponse toResponse(List<float[]> vectors) {
+        List<Embedding> embeddings = new ArrayList<>(vectors.size());
+        for (int i = 0; i < vectors.size(); i++) {
+            // Positions the provider did not return stay absent, same as an uncached call
+            if (vectors.get(i) != null) {
+                embeddings.add(new Embedding(vectors.get(i), i));
+            }
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    private static int countPositions(Map<String, List<Integer>> missing) {
+        return missing.values().stream().mapToInt(List::size).sum();
+    }
+
+    private static String resolveModel(EmbeddingOptions options, EmbeddingCache cache) {
+        if (options != null && options.getModel() != null) {
+            return options.getModel();
+        }
+        return cache.getDefaultModel();
+    }
+
+    private static int resolveDimension(EmbeddingOptions options, EmbeddingCache cache) {
+        if (options != null && options.getDimensions() != null) {
+            return options.getDimensions();
+        }
+        return cache.getDefaultDimension();
+    }
+}
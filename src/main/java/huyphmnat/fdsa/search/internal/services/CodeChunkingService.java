@@ -14,4 +14,15 @@ public interface CodeChunkingService {
      * Chunk code and create CodeChunk objects with embeddings and line numbers
      */
     List<CodeFileDocument.CodeChunk> chunkCodeWithMetadata(String code);
+
+    /**
+     * Chunk code like {@link #chunkCodeWithMetadata(String)}, reusing the embeddings of
+     * previously indexed chunks whose content hash is unchanged
+     */
+    List<CodeFileDocument.CodeChunk> chunkCodeWithMetadata(String code, List<CodeFileDocument.CodeChunk> previousChunks);
+
+    /**
+     * Chunk code into CodeChunk objects with line numbers and content hashes, without embeddings
+     */
+    List<CodeFileDocument.CodeChunk> splitCode(String code);
 }
@@ -1,21 +1,27 @@
 package huyphmnat.fdsa.search.internal.services;
 
 import huyphmnat.fdsa.search.dtos.CodeFileDocument;
+import huyphmnat.fdsa.search.internal.config.ProviderThrottleConfiguration;
+import huyphmnat.fdsa.shared.utils.HashUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.embedding.EmbeddingRequest;
 import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class CodeChunkingServiceImpl implements CodeChunkingService {
 
+    @Qualifier(ProviderThrottleConfiguration.INGESTION_EMBEDDING_MODEL)
     private final EmbeddingModel embeddingModel;
 
     private static final int CHUNK_SIZE = 512; // tokens
@@ -57,25 +63,60 @@ public class CodeChunkingServiceImpl implements CodeChunkingService {
 
     @Override
     public List<CodeFileDocument.CodeChunk> chunkCodeWithMetadata(String code) {
+        return chunkCodeWithMetadata(code, List.of());
+    }
+
+    @Override
+    public List<CodeFileDocument.CodeChunk> chunkCodeWithMetadata(String code, List<CodeFileDocument.CodeChunk> previousChunks) {
         log.info("Chunking code with metadata and embeddings...");
 
-        List<String> chunkStrings = chunkCode(code);
-        List<CodeFileDocument.CodeChunk> chunks = new ArrayList<>();
+        List<CodeFileDocument.CodeChunk> chunks = splitCode(code);
+
+        // Embeddings of previously indexed chunks, keyed by content hash
+        Map<String, List<Float>> reusableEmbeddings = new HashMap<>();
+        if (previousChunks != null) {
+            for (CodeFileDocument.CodeChunk previous : previousChunks) {
+                if (previous.getContentHash() != null && previous.getEmbedding() != null && !previous.getEmbedding().isEmpty()) {
+                    reusableEmbeddings.putIfAbsent(previous.getContentHash(), previous.getEmbedding());
+                }
+            }
+        }
+
+        // Only embed chunks whose content changed
+        List<CodeFileDocument.CodeChunk> changedChunks = new ArrayList<>();
+        for (CodeFileDocument.CodeChunk chunk : chunks) {
+            List<Float> reused = reusableEmbeddings.get(chunk.getContentHash());
+            chunk.setEmbedding(reused);
+            if (reused == null) {
+                changedChunks.add(chunk);
+            }
+        }
 
-        // Generate embeddings for all chunks in batch if enabled
-        List<List<Float>> embeddings = new ArrayList<>();
-        if (!chunkStrings.isEmpty()) {
+        if (!changedChunks.isEmpty()) {
+            log.debug("Embedding {} of {} chunks ({} reused)",
+                    changedChunks.size(), chunks.size(), chunks.size() - changedChunks.size());
+            List<List<Float>> changedEmbeddings;
             try {
-                embeddings = generateEmbeddingsBatch(chunkStrings);
+                changedEmbeddings = generateEmbeddingsBatch(changedChunks.stream().map(CodeFileDocument.CodeChunk::getContent).toList());
             } catch (Exception e) {
                 log.error("Failed to generate embeddings for chunks, proceeding without embeddings", e);
-                // Fill with empty embeddings
-                for (int i = 0; i < chunkStrings.size(); i++) {
-                    embeddings.add(new ArrayList<>());
-                }
+                changedEmbeddings = List.of();
+            }
+            for (int i = 0; i < changedChunks.size(); i++) {
+                // Fill with empty embeddings when generation failed
+                changedChunks.get(i).setEmbedding(i < changedEmbeddings.size() ? changedEmbeddings.get(i) : new ArrayList<>());
             }
         }
 
+        log.info("Created {} chunks with metadata", chunks.size());
+        return chunks;
+    }
+
+    @Override
+    public List<CodeFileDocument.CodeChunk> splitCode(String code) {
+        List<String> chunkStrings = chunkCode(code);
+        List<CodeFileDocument.CodeChunk> chunks = new ArrayList<>(chunkStrings.size());
+
         // Track line numbers
         int currentLine = 1;
         for (int i = 0; i < chunkStrings.size(); i++) {
@@ -87,13 +128,12 @@ public class CodeChunkingServiceImpl implements CodeChunkingService {
                 .content(chunkContent)
                 .startLine(currentLine)
                 .endLine(currentLine + linesInChunk - 1)
-                .embedding(embeddings.get(i))
+                .contentHash(HashUtils.sha256Hex(chunkContent))
                 .build());
 
             currentLine += linesInChunk;
         }
 
-        log.info("Created {} chunks with metadata", chunks.size());
         return chunks;
     }
 
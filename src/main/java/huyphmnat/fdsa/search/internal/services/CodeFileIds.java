@@ -0,0 +1,40 @@
+package huyphmnat.fdsa.search.internal.services;
+
+import com.fasterxml.uuid.Generators;
+import com.fasterxml.uuid.impl.NameBasedGenerator;
+
+import java.util.UUID;
+
+/**
+ * Derives stable code file document IDs, so re-indexing a file overwrites its
+ * previous document instead of creating a new one.
+ */
+public final class CodeFileIds {
+
+    /**
+     * Namespace for name-based (version 5) code file IDs. Never change it: existing documents are keyed by it.
+     */
+    private static final UUID NAMESPACE = UUID.fromString("5d0c6f1e-8a53-4f4b-9b8e-2f1d7f0c3a61");
+
+    private static final NameBasedGenerator GENERATOR = Generators.nameBasedGenerator(NAMESPACE);
+
+    private CodeFileIds() {
+        // Prevent instantiation
+    }
+
+    /**
+     * UUIDv5 of {@code repositoryId:filePath}, with the path normalized so
+     * {@code /src/A.java} and {@code src/A.java} map to the same document
+     */
+    public static UUID of(UUID repositoryId, String filePath) {
+        return GENERATOR.generate(repositoryId + ":" + normalizePath(filePath));
+    }
+
+    private static String normalizePath(String filePath) {
+        String normalized = filePath.replace('\\', '/').replaceAll("/{2,}", "/");
+        while (normalized.startsWith("/")) {
+            normalized = normalized.substring(1);
+        }
+        return normalized;
+    }
+}
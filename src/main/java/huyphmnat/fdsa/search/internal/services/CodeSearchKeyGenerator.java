@@ -0,0 +1,58 @@
+package huyphmnat.fdsa.search.internal.services;
+
+import huyphmnat.fdsa.search.dtos.CodeSearchRequest;
+import huyphmnat.fdsa.search.internal.constants.Caches;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Cache key of a {@link CodeSearchRequest}: the request with its query normalized (case, whitespace)
+ * and highlight fields sorted, plus the {@link IndexGenerations index generation} of its scope.
+ */
+@Component(Caches.CODE_SEARCH_KEY_GENERATOR)
+@RequiredArgsConstructor
+public class CodeSearchKeyGenerator implements KeyGenerator {
+
+    private final IndexGenerations indexGenerations;
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        if (params.length != 1 || !(params[0] instanceof CodeSearchRequest request)) {
+            throw new IllegalArgumentException("Expected a single CodeSearchRequest parameter on " + method);
+        }
+        return keyOf(request);
+    }
+
+    public Key keyOf(CodeSearchRequest request) {
+        String repositoryIdentifier = emptyToNull(request.getRepositoryIdentifier());
+        return new Key(
+                normalizeQuery(request.getQuery()),
+                repositoryIdentifier,
+                emptyToNull(request.getLanguage()),
+                emptyToNull(request.getFilePathPattern()),
+                request.getPage(),
+                request.getSize(),
+                request.getHighlightFields() == null ? List.of() : request.getHighlightFields().stream().sorted().toList(),
+                request.isIncludeContent(),
+                indexGenerations.current(repositoryIdentifier));
+    }
+
+    private static String normalizeQuery(String query) {
+        if (query == null) return "";
+        return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    public record Key(String query, String repositoryIdentifier, String language, String filePathPattern,
+                      int page, int size, List<String> highlightFields, boolean includeContent,
+                      long generation) {
+    }
+}
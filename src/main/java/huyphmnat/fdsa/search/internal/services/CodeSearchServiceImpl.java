@@ -2,30 +2,50 @@ package huyphmnat.fdsa.search.internal.services;
 
 import huyphmnat.fdsa.search.FieldNames;
 import huyphmnat.fdsa.search.Indexes;
+import huyphmnat.fdsa.search.dtos.CodeFileContent;
 import huyphmnat.fdsa.search.dtos.CodeFileDocument;
 import huyphmnat.fdsa.search.dtos.CodeSearchRequest;
 import huyphmnat.fdsa.search.dtos.CodeSearchResponse;
 import huyphmnat.fdsa.search.dtos.CodeSearchResult;
+import huyphmnat.fdsa.search.exceptions.CodeFileNotFoundException;
 import huyphmnat.fdsa.search.interfaces.CodeSearchService;
 import huyphmnat.fdsa.search.interfaces.QueryRewriter;
+import huyphmnat.fdsa.search.internal.constants.Caches;
+import io.micrometer.observation.ObservationRegistry;
 import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.opensearch.client.json.JsonData;
+import org.opensearch.client.opensearch.OpenSearchAsyncClient;
 import org.opensearch.client.opensearch.OpenSearchClient;
 import org.opensearch.client.opensearch._types.FieldValue;
+import org.opensearch.client.opensearch._types.SortOrder;
+import org.opensearch.client.opensearch._types.Time;
 import org.opensearch.client.opensearch._types.query_dsl.*;
+import org.opensearch.client.opensearch.core.GetResponse;
 import org.opensearch.client.opensearch.core.SearchRequest;
 import org.opensearch.client.opensearch.core.SearchResponse;
 import org.opensearch.client.opensearch.core.search.Highlight;
 import org.opensearch.client.opensearch.core.search.HighlightField;
 import org.opensearch.client.opensearch.core.search.Hit;
+import org.opensearch.client.opensearch.core.search.InnerHits;
+import org.opensearch.client.opensearch.core.search.InnerHitsResult;
+import org.opensearch.client.opensearch.core.search.SourceConfig;
+import org.opensearch.client.util.ObjectBuilder;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.embedding.EmbeddingRequest;
 import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,42 +53,101 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class CodeSearchServiceImpl implements CodeSearchService {
     private final OpenSearchClient openSearchClient;
+    private final OpenSearchAsyncClient openSearchAsyncClient;
     private final EmbeddingModel embeddingModel;
     private final QueryRewriter queryRewriter;
+    private final SearchExecutor searchExecutor;
+    private final ObservationRegistry observationRegistry;
 
     private static final String FILES_INDEX_NAME = Indexes.CODE_FILE_INDEX;
+    private static final String MATCHED_CHUNKS = "matched_chunks";
+    private static final String SEMANTIC_CHUNKS = "semantic_chunks";
+    private static final String CHUNK_CONTENT_FIELD = FieldNames.CHUNKS + "." + FieldNames.CHUNK_CONTENT;
+    private static final String CHUNK_CONTENT_EXACT_FIELD = FieldNames.CHUNKS + "." + FieldNames.CHUNK_CONTENT_EXACT;
 
+    /**
+     * Never sent back with search hits: vectors are large and only used for ranking, chunks come back
+     * through inner hits instead
+     */
+    private static final List<String> EXCLUDED_SOURCE_FIELDS =
+            List.of(FieldNames.CONTENT_EMBEDDING, FieldNames.CHUNKS, FieldNames.CONTENT_SUMMARY);
+
+    @Value("${search.results.matched-chunks:3}")
+    private int matchedChunksPerHit = 3;
+
+    /**
+     * Add a nested kNN over chunk embeddings to the hybrid query, so a large file is found by its relevant
+     * section and not only by the file-level vector
+     */
+    @Value("${search.query.chunk-knn.enabled:true}")
+    private boolean chunkKnnEnabled = true;
+
+    /**
+     * Nearest chunks considered per shard, as a multiple of the page size
+     */
+    @Value("${search.query.chunk-knn.k-factor:4}")
+    private int chunkKnnKFactor = 4;
+
+    /**
+     * Rewrite the query and embed the original query in parallel instead of one after the other.
+     * When disabled, the rewritten query is embedded, which puts both model calls on the critical path.
+     */
+    @Value("${search.query.fan-out.enabled:true}")
+    private boolean fanOutEnabled = true;
+
+    /**
+     * Past this deadline the keyword clause uses the original query
+     */
+    @Value("${search.query.fan-out.rewrite-deadline-ms:500}")
+    private long rewriteDeadlineMs = 500;
+
+    /**
+     * Past this deadline the search runs without the vector clause
+     */
+    @Value("${search.query.fan-out.embedding-deadline-ms:500}")
+    private long embeddingDeadlineMs = 500;
+
+    /**
+     * Also send a plain BM25 search for the original query right away; its response is used as-is when
+     * neither the rewrite nor the embedding made their deadline, saving the second round trip
+     */
+    @Value("${search.query.fan-out.speculative-keyword-search:false}")
+    private boolean speculativeKeywordSearch;
+
+    /**
+     * How long a cursor stays usable after its last page was read
+     */
+    @Value("${search.pagination.pit-keep-alive:5m}")
+    private String pitKeepAlive = "5m";
+
+    // Debug requests always run, so their timing breakdown is never a cached one.
+    // Cursor pages are not cached either: each is read from its own point in time.
+    // Degraded responses are not cached, so a slow provider call does not pin them for the whole TTL.
     @Override
     @Observed
+    @Cacheable(cacheNames = Caches.CODE_SEARCH, keyGenerator = Caches.CODE_SEARCH_KEY_GENERATOR,
+            condition = "!#request.debug && !#request.useCursor && #request.cursor == null",
+            unless = "#result.degraded")
     public CodeSearchResponse searchCode(CodeSearchRequest request) {
         String originalQuery = request.getQuery();
         log.info("Searching code with query: {}, page: {}, size: {}",
                 originalQuery, request.getPage(), request.getSize());
 
+        SearchStages stages = new SearchStages(observationRegistry);
+        CompletableFuture<SearchCursor> cursor = resolveCursor(request);
         try {
-            // Rewrite the query for better search effectiveness
-            String rewrittenQuery = queryRewriter.rewriteQuery(originalQuery);
-            log.info("Query rewritten from '{}' to '{}'", originalQuery, rewrittenQuery);
-            request.setQuery(rewrittenQuery);
-            
-            SearchRequest searchRequest = buildHybridSearchRequest(request);
-            SearchResponse<CodeFileDocument> response = openSearchClient.search(searchRequest, CodeFileDocument.class);
-
-            List<CodeSearchResult> results = response.hits().hits().stream()
-                    .map(this::mapHitToResult)
-                    .collect(Collectors.toList());
-
-            long totalHits = response.hits().total().value();
-            int totalPages = (int) Math.ceil((double) totalHits / request.getSize());
-
-            return CodeSearchResponse.builder()
-                    .results(results)
-                    .totalHits(totalHits)
-                    .page(request.getPage())
-                    .size(request.getSize())
-                    .totalPages(totalPages)
-                    .tookMs(response.took())
-                    .build();
+            if (isCursorPaged(request)) {
+                CursorPage page = cursorSearch(request, stages, cursor).join();
+                return toSearchResponse(request, page.response(), stages, page.cursor());
+            }
+            SearchResponse<CodeFileDocument> response;
+            if (fanOutEnabled) {
+                response = fanOutSearch(request, stages).join();
+            } else {
+                SearchRequest searchRequest = prepareSearchRequest(request, stages);
+                response = stages.observe(SearchStages.OPENSEARCH, () -> blockingSearch(searchRequest));
+            }
+            return toSearchResponse(request, response, stages, null);
 
         } catch (Exception e) {
             log.error("Error searching code", e);
@@ -76,25 +155,282 @@ public class CodeSearchServiceImpl implements CodeSearchService {
         }
     }
 
+    @Override
+    @Cacheable(cacheNames = Caches.CODE_SEARCH, keyGenerator = Caches.CODE_SEARCH_KEY_GENERATOR,
+            condition = "!#request.debug && !#request.useCursor && #request.cursor == null",
+            unless = "#result.degraded")
+    public CompletableFuture<CodeSearchResponse> searchCodeAsync(CodeSearchRequest request) {
+        log.info("Searching code (async) with query: {}, page: {}, size: {}",
+                request.getQuery(), request.getPage(), request.getSize());
+
+        // Rewriting and embedding the query still block, so they run on the search executor;
+        // the OpenSearch round trip itself holds no thread
+        SearchStages stages = new SearchStages(observationRegistry);
+        CompletableFuture<SearchCursor> cursor = resolveCursor(request);
+        CompletableFuture<CodeSearchResponse> search;
+        if (isCursorPaged(request)) {
+            search = cursorSearch(request, stages, cursor)
+                    .thenApply(page -> toSearchResponse(request, page.response(), stages, page.cursor()));
+        } else {
+            CompletableFuture<SearchResponse<CodeFileDocument>> response = fanOutEnabled
+                    ? fanOutSearch(request, stages)
+                    : CompletableFuture.supplyAsync(() -> prepareSearchRequest(request, stages), searchExecutor)
+                            .thenCompose(searchRequest -> stages.observeAsync(SearchStages.OPENSEARCH, () -> search(searchRequest)));
+            search = response.thenApply(result -> toSearchResponse(request, result, stages, null));
+        }
+
+        return search
+                .exceptionally(e -> {
+                    log.error("Error searching code", e);
+                    throw new RuntimeException("Failed to search code", e instanceof CompletionException ? e.getCause() : e);
+                });
+    }
+
+    /**
+     * Rewrite the query for better search effectiveness, then build the hybrid search request.
+     * The caller's request is left untouched: it is also the cache key.
+     */
+    private SearchRequest prepareSearchRequest(CodeSearchRequest request, SearchStages stages) {
+        String originalQuery = request.getQuery();
+        String rewrittenQuery = stages.observe(SearchStages.REWRITE, () -> queryRewriter.tryRewriteQuery(originalQuery))
+                .orElseGet(() -> {
+                    stages.markDegraded();
+                    return originalQuery;
+                });
+        log.info("Query rewritten from '{}' to '{}'", originalQuery, rewrittenQuery);
+
+        CodeSearchRequest rewrittenRequest = request.toBuilder().query(rewrittenQuery).build();
+        List<Float> queryEmbedding = stages.observe(SearchStages.EMBEDDING, () -> generateQueryEmbedding(rewrittenQuery));
+        if (queryEmbedding.isEmpty()) {
+            stages.markDegraded();
+        }
+        return buildHybridSearchRequest(rewrittenRequest, queryEmbedding, null);
+    }
+
+    /**
+     * The position to continue from when the request carries a cursor, a new point in time when it asks
+     * for cursor pagination, and {@code null} for offset pagination. An invalid cursor fails right away.
+     */
+    private CompletableFuture<SearchCursor> resolveCursor(CodeSearchRequest request) {
+        if (request.getCursor() != null && !request.getCursor().isEmpty()) {
+            return CompletableFuture.completedFuture(SearchCursor.decode(request.getCursor()));
+        }
+        if (!request.isUseCursor()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            return openSearchAsyncClient.createPit(p -> p
+                            .targetIndexes(FILES_INDEX_NAME)
+                            .keepAlive(Time.of(t -> t.time(pitKeepAlive))))
+                    .thenApply(response -> SearchCursor.start(response.pitId()));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * A page of a cursor-paginated search and the cursor it was read with, which carries the query of the
+     * first page
+     */
+    private record CursorPage(SearchResponse<CodeFileDocument> response, SearchCursor cursor) {
+    }
+
+    /**
+     * Cursor pages continue after the sort values of the previous page, so they must all run the same query.
+     * The first page rewrites and embeds the query without the fan-out deadlines and records the query it
+     * used, and whether it had vectors, in the cursor. Later pages reuse that query, and embed it again only
+     * if the first page did (served by the embedding cache); failing that, the page fails rather than
+     * running a different query.
+     */
+    private CompletableFuture<CursorPage> cursorSearch(CodeSearchRequest request, SearchStages stages,
+                                                       CompletableFuture<SearchCursor> cursor) {
+        String originalQuery = request.getQuery();
+        return cursor.thenComposeAsync(position -> {
+            SearchCursor planned;
+            List<Float> queryEmbedding;
+            if (position.hasQuery()) {
+                planned = position;
+                queryEmbedding = position.vectors()
+                        ? stages.observe(SearchStages.EMBEDDING, () -> generateQueryEmbedding(originalQuery))
+                        : List.of();
+                if (position.vectors() && queryEmbedding.isEmpty()) {
+                    throw new IllegalStateException("Query embedding failed, retry the page");
+                }
+            } else {
+                CompletableFuture<String> rewrite = CompletableFuture.supplyAsync(() -> stages.observe(SearchStages.REWRITE,
+                        () -> queryRewriter.rewriteQuery(originalQuery)), searchExecutor);
+                queryEmbedding = stages.observe(SearchStages.EMBEDDING, () -> generateQueryEmbedding(originalQuery));
+                planned = position.withQuery(rewrite.join(), !queryEmbedding.isEmpty());
+            }
+            log.info("Cursor page {} searches '{}' ({})", planned.page(), planned.query(),
+                    planned.vectors() ? "hybrid" : "keyword only");
+
+            CodeSearchRequest rewrittenRequest = request.toBuilder().query(planned.query()).build();
+            SearchRequest searchRequest = buildHybridSearchRequest(rewrittenRequest, queryEmbedding, planned);
+            return stages.observeAsync(SearchStages.OPENSEARCH, () -> search(searchRequest))
+                    .thenApply(response -> new CursorPage(response, planned));
+        }, searchExecutor);
+    }
+
+    /**
+     * Free the point in time once its last page has been read instead of waiting for the keep-alive
+     */
+    private void closeCursor(String pitId) {
+        try {
+            openSearchAsyncClient.deletePit(d -> d.pitId(pitId))
+                    .whenComplete((response, e) -> {
+                        if (e != null) {
+                            log.debug("Failed to delete point in time {}, it expires on its own", pitId, e);
+                        }
+                    });
+        } catch (Exception e) {
+            log.debug("Failed to delete point in time {}, it expires on its own", pitId, e);
+        }
+    }
+
+    /**
+     * Start the query rewrite, the embedding of the original query and optionally a plain keyword search
+     * at the same time, then search with whatever finished before its deadline. A stage that is late or
+     * fails only drops its part of the hybrid query.
+     */
+    private CompletableFuture<SearchResponse<CodeFileDocument>> fanOutSearch(CodeSearchRequest request, SearchStages stages) {
+        String originalQuery = request.getQuery();
+
+        CompletableFuture<String> rewrite = CompletableFuture
+                .supplyAsync(() -> stages.observe(SearchStages.REWRITE, () -> queryRewriter.tryRewriteQuery(originalQuery).orElse(null)), searchExecutor)
+                .exceptionally(e -> null)
+                .completeOnTimeout(null, rewriteDeadlineMs, TimeUnit.MILLISECONDS);
+        CompletableFuture<List<Float>> embeddingTask = searchExecutor
+                .supplyInterruptibly(() -> stages.observe(SearchStages.EMBEDDING, () -> generateQueryEmbedding(originalQuery)));
+        CompletableFuture<List<Float>> embedding = embeddingTask
+                .exceptionally(e -> List.of())
+                .completeOnTimeout(List.of(), embeddingDeadlineMs, TimeUnit.MILLISECONDS);
+        // Past the deadline the vector is no longer used, so stop the provider call instead of letting it finish
+        embedding.thenRun(() -> embeddingTask.cancel(true));
+        CompletableFuture<SearchResponse<CodeFileDocument>> keywordSearch = speculativeKeywordSearch
+                ? stages.observeAsync(SearchStages.KEYWORD_SEARCH, () -> search(buildKeywordSearchRequest(request, null)))
+                : null;
+
+        // Assemble on the search executor rather than on the thread that fired a deadline
+        return CompletableFuture.allOf(rewrite, embedding).thenComposeAsync(ignored -> {
+            String rewrittenQuery = rewrite.join();
+            List<Float> queryEmbedding = embedding.join();
+            if (rewrittenQuery == null) {
+                log.warn("Query rewrite missed its {}ms deadline or failed, searching with the original query", rewriteDeadlineMs);
+                rewrittenQuery = originalQuery;
+                stages.markDegraded();
+            }
+            log.info("Query rewritten from '{}' to '{}'", originalQuery, rewrittenQuery);
+            if (queryEmbedding.isEmpty()) {
+                log.warn("Query embedding missed its {}ms deadline or failed, searching without vectors", embeddingDeadlineMs);
+                stages.markDegraded();
+            }
+            boolean keywordOnly = queryEmbedding.isEmpty() && rewrittenQuery.equals(originalQuery);
+            if (keywordSearch != null && keywordOnly) {
+                return keywordSearch;
+            }
+            CodeSearchRequest rewrittenRequest = request.toBuilder().query(rewrittenQuery).build();
+            SearchRequest searchRequest = buildHybridSearchRequest(rewrittenRequest, queryEmbedding, null);
+            return stages.observeAsync(SearchStages.OPENSEARCH, () -> search(searchRequest));
+        }, searchExecutor);
+    }
+
+    private CompletableFuture<SearchResponse<CodeFileDocument>> search(SearchRequest searchRequest) {
+        try {
+            return openSearchAsyncClient.search(searchRequest, CodeFileDocument.class);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private SearchResponse<CodeFileDocument> blockingSearch(SearchRequest searchRequest) {
+        try {
+            return openSearchClient.search(searchRequest, CodeFileDocument.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private CodeSearchResponse toSearchResponse(CodeSearchRequest request, SearchResponse<CodeFileDocument> response,
+                                                SearchStages stages, SearchCursor cursor) {
+        List<CodeSearchResult> results = stages.observe(SearchStages.MAPPING, () -> response.hits().hits().stream()
+                .map(this::mapHitToResult)
+                .collect(Collectors.toList()));
+
+        long totalHits = response.hits().total().value();
+        int totalPages = (int) Math.ceil((double) totalHits / request.getSize());
+
+        return CodeSearchResponse.builder()
+                .results(results)
+                .totalHits(totalHits)
+                .page(cursor != null ? cursor.page() : request.getPage())
+                .size(request.getSize())
+                .totalPages(totalPages)
+                .nextCursor(cursor != null ? nextCursor(request, response, cursor) : null)
+                .tookMs(response.took())
+                .timingsMs(request.isDebug() ? stages.timingsMs() : null)
+                .degraded(stages.isDegraded())
+                .build();
+    }
+
+    /**
+     * Cursor for the page after this one, or {@code null} once the results are exhausted
+     */
+    private String nextCursor(CodeSearchRequest request, SearchResponse<CodeFileDocument> response, SearchCursor cursor) {
+        // The cluster may hand out a new id when it extends the point in time
+        String pitId = response.pitId() != null ? response.pitId() : cursor.pitId();
+        List<Hit<CodeFileDocument>> hits = response.hits().hits();
+        if (hits.size() < request.getSize()) {
+            closeCursor(pitId);
+            return null;
+        }
+        Hit<CodeFileDocument> last = hits.get(hits.size() - 1);
+        double lastScore = last.score() != null ? last.score() : 0;
+        return cursor.next(pitId, lastScore, last.id()).encode();
+    }
+
+    private static boolean isCursorPaged(CodeSearchRequest request) {
+        return request.isUseCursor() || (request.getCursor() != null && !request.getCursor().isEmpty());
+    }
+
+    /**
+     * Offset pagination reads {@code page * size} hits on every shard and is capped by max_result_window.
+     * With a cursor the search reads from a point in time, so pages do not shift while ingestion runs, and
+     * continues after the last hit's sort values, so every page costs the same.
+     */
+    private void applyPagination(SearchRequest.Builder searchBuilder, CodeSearchRequest request, SearchCursor cursor) {
+        searchBuilder.size(request.getSize());
+        if (cursor == null) {
+            searchBuilder
+                    .index(FILES_INDEX_NAME)
+                    .from(request.getPage() * request.getSize());
+            return;
+        }
+
+        // The point in time names the index, so the request must not; the id breaks ties between equal scores
+        searchBuilder
+                .pit(p -> p.id(cursor.pitId()).keepAlive(pitKeepAlive))
+                .sort(s -> s.score(o -> o.order(SortOrder.Desc)))
+                .sort(s -> s.field(f -> f.field(FieldNames.ID).order(SortOrder.Asc)))
+                .trackScores(true);
+        if (cursor.hasPosition()) {
+            searchBuilder.searchAfter(FieldValue.of(cursor.score()), FieldValue.of(cursor.id()));
+        }
+    }
+
     /**
      * Builds a hybrid search request using RRF (Reciprocal Rank Fusion)
      * Combines full-text search with vector search
      */
-    private SearchRequest buildHybridSearchRequest(CodeSearchRequest request) {
+    private SearchRequest buildHybridSearchRequest(CodeSearchRequest request, List<Float> queryEmbedding, SearchCursor cursor) {
         try {
             // Build hybrid query with RRF
-            Query hybridQuery = buildHybridQuery(request);
+            Query hybridQuery = buildHybridQuery(request, queryEmbedding);
 
             SearchRequest.Builder searchBuilder = new SearchRequest.Builder()
-                    .index(FILES_INDEX_NAME)
                     .query(hybridQuery)
-                    .from(request.getPage() * request.getSize())
-                    .size(request.getSize());
-
-            // Apply filters as post_filter
-            if (hasFilters(request)) {
-                searchBuilder.postFilter(getFilters(request));
-            }
+                    .source(sourceConfig(request));
+            applyPagination(searchBuilder, request, cursor);
 
             // Add highlighting if requested
             addHighlighting(searchBuilder, request);
@@ -103,36 +439,29 @@ public class CodeSearchServiceImpl implements CodeSearchService {
 
         } catch (Exception e) {
             log.error("Failed to build hybrid search request, falling back to keyword search", e);
-            return buildKeywordSearchRequest(request);
+            return buildKeywordSearchRequest(request, cursor);
         }
     }
 
     /**
      * Builds a traditional keyword-based search request
      */
-    private SearchRequest buildKeywordSearchRequest(CodeSearchRequest request) {
+    private SearchRequest buildKeywordSearchRequest(CodeSearchRequest request, SearchCursor cursor) {
         BoolQuery.Builder boolQuery = new BoolQuery.Builder();
 
         // Add full-text search query
         if (request.getQuery() != null && !request.getQuery().isEmpty()) {
-            Query multiMatchQuery = MultiMatchQuery.of(m -> m
-                    .query(request.getQuery())
-                    .fields(FieldNames.CONTENT + "^3", FieldNames.FILE_NAME + "^2", FieldNames.FILE_PATH)  // Boost content and filename
-            ).toQuery();
-            boolQuery.must(multiMatchQuery);
+            boolQuery.must(buildKeywordQuery(request.getQuery()));
         }
 
+        // Filters in the query (not post_filter) so non-matching files are never scored
+        boolQuery.filter(getFilters(request));
+
         // Build search request
         SearchRequest.Builder searchBuilder = new SearchRequest.Builder()
-                .index(FILES_INDEX_NAME)
                 .query(boolQuery.build().toQuery())
-                .from(request.getPage() * request.getSize())
-                .size(request.getSize());
-
-        // Apply filters as post_filter
-        if (hasFilters(request)) {
-            searchBuilder.postFilter(getFilters(request));
-        }
+                .source(sourceConfig(request));
+        applyPagination(searchBuilder, request, cursor);
 
         // Add highlighting if requested
         addHighlighting(searchBuilder, request);
@@ -141,9 +470,86 @@ public class CodeSearchServiceImpl implements CodeSearchService {
     }
 
     /**
-     * Adds filter queries to the bool query builder
+     * Keyword relevance over the whole file, plus the best matching chunks returned as inner hits.
+     * Chunk matches only add to the score, so files without chunks still match on their content.
+     */
+    private Query buildKeywordQuery(String queryText) {
+        Query fileQuery = MultiMatchQuery.of(m -> m
+                .query(queryText)
+                // Boost content and filename; exact identifier matches rank above matches on their parts
+                .fields(FieldNames.CONTENT_EXACT + "^4", FieldNames.CONTENT + "^3", FieldNames.FILE_NAME + "^2", FieldNames.FILE_PATH)
+        ).toQuery();
+
+        Query chunkQuery = NestedQuery.of(n -> n
+                .path(FieldNames.CHUNKS)
+                .query(q -> q.multiMatch(m -> m
+                        .query(queryText)
+                        .fields(CHUNK_CONTENT_EXACT_FIELD + "^2", CHUNK_CONTENT_FIELD)))
+                .scoreMode(ChildScoreMode.Max)
+                .innerHits(this::matchedChunksInnerHits)
+        ).toQuery();
+
+        return BoolQuery.of(b -> b
+                .should(fileQuery, chunkQuery)
+                .minimumShouldMatch("1")
+        ).toQuery();
+    }
+
+    /**
+     * Semantic match on chunk vectors; a file scores as its best chunk, and the best chunks come back
+     * with their line ranges as inner hits. The filters go into the kNN search itself, so the nearest chunks
+     * are taken among matching files rather than among all files and filtered afterwards.
      */
-    private Query getFilters(CodeSearchRequest request) {
+    private Query buildChunkKnnQuery(List<Float> queryEmbedding, int size, List<Query> filters) {
+        return NestedQuery.of(n -> n
+                .path(FieldNames.CHUNKS)
+                .query(q -> q.knn(k -> {
+                    k.field(FieldNames.CHUNKS + "." + FieldNames.CHUNK_EMBEDDING)
+                            .vector(queryEmbedding)
+                            .k(size * chunkKnnKFactor);
+                    if (!filters.isEmpty()) {
+                        // Filters on file fields of the parent document are supported inside a nested kNN
+                        k.filter(BoolQuery.of(b -> b.filter(filters)).toQuery());
+                    }
+                    return k;
+                }))
+                .scoreMode(ChildScoreMode.Max)
+                .innerHits(i -> i
+                        .name(SEMANTIC_CHUNKS)
+                        .size(matchedChunksPerHit)
+                        .source(s -> s.filter(f -> f.excludes(FieldNames.CHUNKS + "." + FieldNames.CHUNK_EMBEDDING))))
+        ).toQuery();
+    }
+
+    private ObjectBuilder<InnerHits> matchedChunksInnerHits(InnerHits.Builder innerHits) {
+        return innerHits
+                .name(MATCHED_CHUNKS)
+                .size(matchedChunksPerHit)
+                .source(s -> s.filter(f -> f.excludes(FieldNames.CHUNKS + "." + FieldNames.CHUNK_EMBEDDING)))
+                .highlight(h -> h
+                        .fields(Map.of(CHUNK_CONTENT_FIELD, HighlightField.of(f -> f
+                                .numberOfFragments(1)
+                                .fragmentSize(150))))
+                        .preTags("<mark>")
+                        .postTags("</mark>"));
+    }
+
+    /**
+     * Leave vectors, chunks and, unless asked for, the full content out of the returned hits.
+     * Highlighting still works on excluded fields.
+     */
+    private SourceConfig sourceConfig(CodeSearchRequest request) {
+        List<String> excludes = new ArrayList<>(EXCLUDED_SOURCE_FIELDS);
+        if (!request.isIncludeContent()) {
+            excludes.add(FieldNames.CONTENT);
+        }
+        return SourceConfig.of(s -> s.filter(f -> f.excludes(excludes)));
+    }
+
+    /**
+     * Filter clauses for the repository, language and path restrictions of the request (empty if none)
+     */
+    private List<Query> getFilters(CodeSearchRequest request) {
         List<Query> filters = new ArrayList<>();
 
         if (request.getRepositoryIdentifier() != null && !request.getRepositoryIdentifier().isEmpty()) {
@@ -155,19 +561,16 @@ public class CodeSearchServiceImpl implements CodeSearchService {
 
         if (request.getLanguage() != null && !request.getLanguage().isEmpty()) {
             filters.add(TermQuery.of(t -> t
-                    .field(FieldNames.LANGUAGE_KEYWORD)
+                    .field(FieldNames.LANGUAGE)
                     .value(FieldValue.of(request.getLanguage()))
             ).toQuery());
         }
 
         if (request.getFilePathPattern() != null && !request.getFilePathPattern().isEmpty()) {
-            filters.add(WildcardQuery.of(w -> w
-                    .field(FieldNames.FILE_PATH_KEYWORD)
-                    .value(request.getFilePathPattern())
-            ).toQuery());
+            filters.add(PathPatternTranslator.toFilter(request.getFilePathPattern()));
         }
 
-        return BoolQuery.of(b -> b.must(filters)).toQuery();
+        return filters;
     }
 
     /**
@@ -195,27 +598,38 @@ public class CodeSearchServiceImpl implements CodeSearchService {
      * Builds a hybrid query that combines keyword and vector search with RRF
      * This uses OpenSearch's native HybridQuery API
      */
-    private Query buildHybridQuery(CodeSearchRequest request) {
+    private Query buildHybridQuery(CodeSearchRequest request, List<Float> queryEmbedding) {
         List<Query> queries = new ArrayList<>();
+        // Every sub-query carries the filters, so each one only scores (and kNN only retrieves) matching files
+        List<Query> filters = getFilters(request);
 
-        Query keywordQuery = MultiMatchQuery.of(m -> m
-                .query(request.getQuery())
-                .fields(FieldNames.CONTENT + "^3", FieldNames.FILE_NAME + "^2", FieldNames.FILE_PATH)
-        ).toQuery();
-        queries.add(keywordQuery);
+        Query keywordQuery = buildKeywordQuery(request.getQuery());
+        queries.add(filters.isEmpty()
+                ? keywordQuery
+                : BoolQuery.of(b -> b.must(keywordQuery).filter(filters)).toQuery());
 
-        List<Float> queryEmbedding = generateQueryEmbedding(request.getQuery());
         if (!queryEmbedding.isEmpty()) {
-            Query vectorQuery = KnnQuery.of(k -> k
-                    .field(FieldNames.CONTENT_EMBEDDING)
-                    .vector(queryEmbedding.stream().map(Float::floatValue).toList())
-                    .k(request.getSize() * 2)
-            ).toQuery();
+            // Efficient filtering: the k nearest neighbours are searched among matching files only,
+            // so a repository filter still yields a full set of candidates
+            Query vectorQuery = KnnQuery.of(k -> {
+                k.field(FieldNames.CONTENT_EMBEDDING)
+                        .vector(queryEmbedding.stream().map(Float::floatValue).toList())
+                        .k(request.getSize() * 2);
+                if (!filters.isEmpty()) {
+                    k.filter(BoolQuery.of(b -> b.filter(filters)).toQuery());
+                }
+                return k;
+            }).toQuery();
             queries.add(vectorQuery);
             log.debug("Added vector search to hybrid query");
+
+            if (chunkKnnEnabled) {
+                queries.add(buildChunkKnnQuery(queryEmbedding, request.getSize(), filters));
+                log.debug("Added chunk vector search to hybrid query");
+            }
         }
 
-        // Build hybrid query with both queries
+        // Build hybrid query; the search pipeline fuses the sub-query rankings with RRF
         var query = HybridQuery.of(h -> h
                 .queries(queries)
         ).toQuery();
@@ -249,17 +663,15 @@ public class CodeSearchServiceImpl implements CodeSearchService {
             return floatEmbedding;
 
         } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted()) {
+                log.debug("Query embedding cancelled after its deadline");
+                return new ArrayList<>();
+            }
             log.error("Failed to generate query embedding", e);
             return new ArrayList<>();
         }
     }
 
-    private boolean hasFilters(CodeSearchRequest request) {
-        return (request.getRepositoryIdentifier() != null && !request.getRepositoryIdentifier().isEmpty()) ||
-                (request.getLanguage() != null && !request.getLanguage().isEmpty()) ||
-                (request.getFilePathPattern() != null && !request.getFilePathPattern().isEmpty());
-    }
-
 
     private CodeSearchResult mapHitToResult(Hit<CodeFileDocument> hit) {
         CodeFileDocument doc = hit.source();
@@ -293,20 +705,70 @@ public class CodeSearchServiceImpl implements CodeSearchService {
             builder.highlights(highlights);
         }
 
-        // Parse matched chunks if available
-        if (doc.getCodeChunks() != null) {
-            List<CodeSearchResult.ChunkMatch> matchedChunks = doc.getCodeChunks().stream()
-                    .map(chunk -> CodeSearchResult.ChunkMatch.builder()
-                            .index(chunk.getIndex())
-                            .content(chunk.getContent())
-                            .startLine(chunk.getStartLine() != null ? chunk.getStartLine() : 0)
-                            .endLine(chunk.getEndLine() != null ? chunk.getEndLine() : 0)
-                            .build())
-                    .collect(Collectors.toList());
-            builder.matchedChunks(matchedChunks);
+        // Parse matched chunks if available: keyword matches (with highlights) and semantic matches
+        if (hit.innerHits() != null && !hit.innerHits().isEmpty()) {
+            Map<Integer, CodeSearchResult.ChunkMatch> matchedChunks = new TreeMap<>();
+            addChunkMatches(matchedChunks, hit.innerHits().get(MATCHED_CHUNKS));
+            addChunkMatches(matchedChunks, hit.innerHits().get(SEMANTIC_CHUNKS));
+            builder.matchedChunks(new ArrayList<>(matchedChunks.values()));
         }
 
         return builder.build();
     }
+
+    /**
+     * A chunk found by both sub-queries is listed once, keeping the keyword match for its highlights.
+     * Chunks are ordered by position in the file.
+     */
+    private void addChunkMatches(Map<Integer, CodeSearchResult.ChunkMatch> matchedChunks, InnerHitsResult chunkHits) {
+        if (chunkHits == null || chunkHits.hits() == null) {
+            return;
+        }
+        for (Hit<JsonData> chunkHit : chunkHits.hits().hits()) {
+            if (chunkHit.source() != null) {
+                CodeSearchResult.ChunkMatch chunk = mapChunkHit(chunkHit);
+                matchedChunks.putIfAbsent(chunk.getIndex(), chunk);
+            }
+        }
+    }
+
+    private CodeSearchResult.ChunkMatch mapChunkHit(Hit<JsonData> chunkHit) {
+        CodeFileDocument.CodeChunk chunk = chunkHit.source().to(CodeFileDocument.CodeChunk.class);
+        List<String> highlights = chunkHit.highlight() != null ? chunkHit.highlight().get(CHUNK_CONTENT_FIELD) : null;
+
+        return CodeSearchResult.ChunkMatch.builder()
+                .index(chunk.getIndex() != null ? chunk.getIndex() : 0)
+                .content(chunk.getContent())
+                .startLine(chunk.getStartLine() != null ? chunk.getStartLine() : 0)
+                .endLine(chunk.getEndLine() != null ? chunk.getEndLine() : 0)
+                .highlights(highlights)
+                .build();
+    }
+
+    @Override
+    public CodeFileContent getFileContent(UUID id) {
+        try {
+            GetResponse<CodeFileDocument> response = openSearchClient.get(g -> g
+                    .index(FILES_INDEX_NAME)
+                    .id(id.toString())
+                    .sourceExcludes(EXCLUDED_SOURCE_FIELDS), CodeFileDocument.class);
+
+            if (!response.found() || response.source() == null) {
+                throw new CodeFileNotFoundException("Code file not found: " + id);
+            }
+
+            CodeFileDocument doc = response.source();
+            return CodeFileContent.builder()
+                    .id(doc.getId())
+                    .repositoryIdentifier(doc.getRepositoryIdentifier())
+                    .filePath(doc.getFilePath())
+                    .language(doc.getLanguage())
+                    .content(doc.getContent())
+                    .build();
+        } catch (IOException e) {
+            log.error("Failed to get content of code file {}", id, e);
+            throw new RuntimeException("Failed to get code file content", e);
+        }
+    }
 }
 
@@ -15,6 +15,7 @@ import java.util.Map;
 public class CodeSummarizationServiceImpl implements CodeSummarizationService {
 
     private final ChatClient.Builder chatClientBuilder;
+    private final ProviderThrottles providerThrottles;
 
     private static final int MAX_CODE_LENGTH = 8000; // Limit code length to prevent token overflow
     
@@ -67,9 +68,9 @@ public class CodeSummarizationServiceImpl implements CodeSummarizationService {
             
             Prompt prompt = promptTemplate.create(variables);
             
-            String summary = chatClient.prompt(prompt)
+            String summary = providerThrottles.llm().execute(() -> chatClient.prompt(prompt)
                     .call()
-                    .content();
+                    .content());
             
             String cleanedSummary = summary.trim();
             
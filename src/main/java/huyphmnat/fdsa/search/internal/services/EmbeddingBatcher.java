@@ -0,0 +1,201 @@
+package huyphmnat.fdsa.search.internal.services;
+
+import huyphmnat.fdsa.search.internal.config.ProviderThrottleConfiguration;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces embedding texts submitted by many concurrent callers into shared provider requests.
+ * <p>
+ * A batch is dispatched as soon as it reaches {@code max-items} texts or {@code max-tokens}
+ * estimated tokens, or {@code max-wait-ms} after its first text arrived, whichever comes first.
+ * Vectors are handed back to each caller through its own future, so a file's embeddings are
+ * independent of which batch they travelled in.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class EmbeddingBatcher {
+
+    private static final int CHARS_PER_TOKEN = 4; // rough estimate, same as the chunker
+
+    @Qualifier(ProviderThrottleConfiguration.INGESTION_EMBEDDING_MODEL)
+    private final EmbeddingModel embeddingModel;
+    private final IngestionExecutor ingestionExecutor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${search.embeddings.batch.max-items:256}")
+    private int maxItems = 256;
+
+    @Value("${search.embeddings.batch.max-tokens:100000}")
+    private int maxTokens = 100_000;
+
+    @Value("${search.embeddings.batch.max-wait-ms:50}")
+    private long maxWaitMs = 50;
+
+    private final Object lock = new Object();
+    private List<PendingText> pending = new ArrayList<>();
+    private int pendingTokens;
+    private ScheduledFuture<?> pendingFlush;
+
+    private ScheduledExecutorService flushScheduler;
+    private DistributionSummary batchSizes;
+    private Counter requests;
+
+    @PostConstruct
+    public void init() {
+        flushScheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("embedding-batcher").daemon(true).factory());
+        batchSizes = DistributionSummary.builder("search.embeddings.batch.size")
+                .description("Texts per coalesced embedding request")
+                .register(meterRegistry);
+        requests = Counter.builder("search.embeddings.batch.requests")
+                .description("Coalesced embedding requests sent to the provider")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushScheduler.shutdownNow();
+        List<PendingText> abandoned;
+        synchronized (lock) {
+            abandoned = takePending();
+        }
+        abandoned.forEach(text -> text.future.completeExceptionally(
+                new IllegalStateException("Embedding batcher shut down")));
+    }
+
+    /**
+     * Queue a single text for embedding
+     */
+    public CompletableFuture<float[]> submit(String text) {
+        PendingText pendingText = new PendingText(text, estimateTokens(text));
+        List<PendingText> ready = null;
+
+        synchronized (lock) {
+            // A text that would overflow the token budget closes the current batch first
+            if (!pending.isEmpty() && pendingTokens + pendingText.tokens > maxTokens) {
+                ready = takePending();
+            }
+            pending.add(pendingText);
+            pendingTokens += pendingText.tokens;
+
+            if (pending.size() >= maxItems || pendingTokens >= maxTokens) {
+                dispatch(ready);
+                ready = takePending();
+            } else if (pendingFlush == null) {
+                List<PendingText> batch = pending;
+                pendingFlush = flushScheduler.schedule(() -> flushIfPending(batch), maxWaitMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        dispatch(ready);
+        return pendingText.future;
+    }
+
+    /**
+     * Embed all texts, blocking until every vector is available. Results are in input order.
+     */
+    public List<float[]> embedAll(List<String> texts) {
+        List<CompletableFuture<float[]>> futures = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            futures.add(submit(text));
+        }
+
+        List<float[]> embeddings = new ArrayList<>(texts.size());
+        try {
+            for (CompletableFuture<float[]> future : futures) {
+                embeddings.add(future.join());
+            }
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtimeException
+                    ? runtimeException
+                    : new IllegalStateException("Failed to generate embeddings", e.getCause());
+        }
+        return embeddings;
+    }
+
+    private void flushIfPending(List<PendingText> batch) {
+        List<PendingText> ready = null;
+        synchronized (lock) {
+            // The batch may already have been dispatched because it filled up
+            if (pending == batch) {
+                ready = takePending();
+            }
+        }
+        dispatch(ready);
+    }
+
+    /**
+     * Hand the current batch over and start a new one. Must hold {@link #lock}.
+     */
+    private List<PendingText> takePending() {
+        List<PendingText> batch = pending;
+        pending = new ArrayList<>();
+        pendingTokens = 0;
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+        return batch;
+    }
+
+    private void dispatch(List<PendingText> batch) {
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        // Provider calls run on the ingestion executor so neither submitters nor the flush timer block on them
+        ingestionExecutor.submit(() -> {
+            embed(batch);
+            return null;
+        });
+    }
+
+    private void embed(List<PendingText> batch) {
+        batchSizes.record(batch.size());
+        requests.increment();
+        try {
+            List<String> texts = batch.stream().map(PendingText::text).toList();
+            EmbeddingResponse response = embeddingModel.call(new EmbeddingRequest(texts, null));
+            if (response.getResults().size() != batch.size()) {
+                throw new IllegalStateException("Expected " + batch.size() + " embeddings but got " + response.getResults().size());
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(response.getResults().get(i).getOutput());
+            }
+        } catch (Exception e) {
+            log.error("Failed to embed batch of {} texts", batch.size(), e);
+            batch.forEach(text -> text.future.completeExceptionally(e));
+        }
+    }
+
+    private static int estimateTokens(String text) {
+        return Math.max(1, text.length() / CHARS_PER_TOKEN);
+    }
+
+    private record PendingText(String text, int tokens, CompletableFuture<float[]> future) {
+        PendingText(String text, int tokens) {
+            this(text, tokens, new CompletableFuture<>());
+        }
+    }
+}
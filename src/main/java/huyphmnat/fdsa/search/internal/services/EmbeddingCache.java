@@ -0,0 +1,38 @@
+package huyphmnat.fdsa.search.internal.services;
+
+import java.util.List;
+
+public interface EmbeddingCache {
+    /**
+     * Model name used when a request does not specify one
+     */
+    String getDefaultModel();
+
+    /**
+     * Embedding dimension used when a request does not specify one
+     */
+    int getDefaultDimension();
+
+    /**
+     * Look up cached vectors for the given texts.
+     * The returned list is aligned with {@code texts}; misses are {@code null}.
+     */
+    List<float[]> getAll(String model, int dimension, List<String> texts);
+
+    /**
+     * Store vectors for the given texts in every cache tier
+     */
+    void putAll(String model, int dimension, List<String> texts, List<float[]> vectors);
+
+    /**
+     * Drop every cached vector from every tier
+     */
+    void invalidateAll();
+
+    /**
+     * Drop persisted vectors that were produced by another model or dimension than the configured one
+     *
+     * @return number of removed entries
+     */
+    int purgeStaleEntries();
+}
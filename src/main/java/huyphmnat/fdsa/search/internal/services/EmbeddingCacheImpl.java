@@ -0,0 +1,210 @@
+package huyphmnat.fdsa.search.internal.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import huyphmnat.fdsa.search.internal.entites.EmbeddingCacheEntity;
+import huyphmnat.fdsa.search.internal.repositories.EmbeddingCacheRepository;
+import huyphmnat.fdsa.shared.utils.HashUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Two-tier, content-addressed embedding cache.
+ * Entries are keyed by {@code model:dimension:sha256(text)} and live in a bounded
+ * in-memory Caffeine cache backed by the {@code embedding_cache} table.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class EmbeddingCacheImpl implements EmbeddingCache {
+
+    private static final String METRIC_NAME = "search.embeddings.cache";
+
+    private final EmbeddingCacheRepository embeddingCacheRepository;
+    private final MeterRegistry meterRegistry;
+
+    // spring.ai.openai.embedding.options.model/dimensions are bound to the same properties
+    @Value("${search.embeddings.model:text-embedding-3-small}")
+    private String defaultModel;
+
+    @Value("${search.embeddings.dimension:1536}")
+    private int defaultDimension;
+
+    @Value("${search.embeddings.cache.memory.max-entries:20000}")
+    private long memoryMaxEntries;
+
+    @Value("${search.embeddings.cache.persistent.enabled:true}")
+    private boolean persistentEnabled;
+
+    private Cache<String, float[]> memoryCache;
+
+    private Counter memoryHits;
+    private Counter memoryMisses;
+    private Counter persistentHits;
+    private Counter persistentMisses;
+
+    @PostConstruct
+    public void init() {
+        memoryCache = Caffeine.newBuilder()
+                .maximumSize(memoryMaxEntries)
+                .build();
+
+        memoryHits = counter("memory", "hit");
+        memoryMisses = counter("memory", "miss");
+        persistentHits = counter("persistent", "hit");
+        persistentMisses = counter("persistent", "miss");
+
+        meterRegistry.gauge(METRIC_NAME + ".size", Tags.empty(), memoryCache, Cache::estimatedSize);
+
+        log.info("Embedding cache initialized (model: {}, dimension: {}, memory entries: {}, persistent: {})",
+                defaultModel, defaultDimension, memoryMaxEntries, persistentEnabled);
+    }
+
+    @Override
+    public String getDefaultModel() {
+        return defaultModel;
+    }
+
+    @Override
+    public int getDefaultDimension() {
+        return defaultDimension;
+    }
+
+    @Override
+    public List<float[]> getAll(String model, int dimension, List<String> texts) {
+        List<float[]> results = new ArrayList<>(texts.size());
+        Map<String, List<Integer>> memoryMissPositions = new LinkedHashMap<>();
+
+        for (int i = 0; i < texts.size(); i++) {
+            String key = cacheKey(model, dimension, HashUtils.sha256Hex(texts.get(i)));
+            float[] vector = memoryCache.getIfPresent(key);
+            results.add(vector);
+            if (vector != null) {
+                memoryHits.increment();
+            } else {
+                memoryMisses.increment();
+                memoryMissPositions.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        if (!persistentEnabled || memoryMissPositions.isEmpty()) {
+            return results;
+        }
+
+        try {
+            Map<String, float[]> persisted = new HashMap<>();
+            for (EmbeddingCacheEntity entity : embeddingCacheRepository.findAllById(memoryMissPositions.keySet())) {
+                persisted.put(entity.getCacheKey(), decode(entity.getVector()));
+            }
+
+            memoryMissPositions.forEach((key, positions) -> {
+                float[] vector = persisted.get(key);
+                if (vector == null) {
+                    persistentMisses.increment(positions.size());
+                    return;
+                }
+                persistentHits.increment(positions.size());
+                memoryCache.put(key, vector);
+                positions.forEach(position -> results.set(position, vector));
+            });
+        } catch (Exception e) {
+            log.warn("Failed to read persisted embeddings, treating {} entries as misses", memoryMissPositions.size(), e);
+        }
+
+        return results;
+    }
+
+    @Override
+    public void putAll(String model, int dimension, List<String> texts, List<float[]> vectors) {
+        Map<String, EmbeddingCacheEntity> entities = new LinkedHashMap<>();
+        Instant now = Instant.now();
+
+        for (int i = 0; i < texts.size(); i++) {
+            float[] vector = vectors.get(i);
+            if (vector == null || vector.length == 0) {
+                continue;
+            }
+            String textHash = HashUtils.sha256Hex(texts.get(i));
+            String key = cacheKey(model, dimension, textHash);
+            memoryCache.put(key, vector);
+            entities.put(key, EmbeddingCacheEntity.builder()
+                    .cacheKey(key)
+                    .model(model)
+                    .dimension(dimension)
+                    .textHash(textHash)
+                    .vector(encode(vector))
+                    .createdAt(now)
+                    .build());
+        }
+
+        if (!persistentEnabled || entities.isEmpty()) {
+            return;
+        }
+
+        try {
+            embeddingCacheRepository.saveAll(entities.values());
+        } catch (Exception e) {
+            // The in-memory tier already holds the vectors; losing the persisted copy only costs a future API call
+            log.warn("Failed to persist {} embeddings", entities.size(), e);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        log.info("Invalidating embedding cache");
+        memoryCache.invalidateAll();
+        if (persistentEnabled) {
+            embeddingCacheRepository.deleteAllInBatch();
+        }
+    }
+
+    @Override
+    public int purgeStaleEntries() {
+        if (!persistentEnabled) {
+            return 0;
+        }
+        int removed = embeddingCacheRepository.deleteStaleEntries(defaultModel, defaultDimension);
+        if (removed > 0) {
+            log.info("Purged {} cached embeddings not produced by {} ({} dimensions)", removed, defaultModel, defaultDimension);
+        }
+        return removed;
+    }
+
+    private Counter counter(String tier, String result) {
+        return Counter.builder(METRIC_NAME)
+                .description("Embedding cache lookups")
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static String cacheKey(String model, int dimension, String textHash) {
+        return model + ":" + dimension + ":" + textHash;
+    }
+
+    private static byte[] encode(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    private static float[] decode(byte[] bytes) {
+        float[] vector = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).asFloatBuffer().get(vector);
+        return vector;
+    }
+}
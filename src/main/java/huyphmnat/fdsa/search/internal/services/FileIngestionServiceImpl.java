@@ -2,9 +2,12 @@ package huyphmnat.fdsa.search.internal.services;
 
 import huyphmnat.fdsa.repository.dtos.FileContent;
 import huyphmnat.fdsa.repository.interfaces.RepositoryFileService;
+import huyphmnat.fdsa.search.FieldNames;
 import huyphmnat.fdsa.search.Indexes;
 import huyphmnat.fdsa.search.dtos.CodeFileDocument;
 import huyphmnat.fdsa.search.interfaces.FileIngestionService;
+import huyphmnat.fdsa.search.internal.config.ProviderThrottleConfiguration;
+import huyphmnat.fdsa.shared.utils.HashUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.opensearch.client.opensearch.OpenSearchClient;
@@ -14,6 +17,7 @@ import org.opensearch.client.opensearch.core.DeleteByQueryResponse;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.embedding.EmbeddingRequest;
 import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
@@ -31,6 +35,7 @@ public class FileIngestionServiceImpl implements FileIngestionService {
     private final OpenSearchClient openSearchClient;
     private final LanguageDetectionService languageDetectionService;
     private final CodeChunkingService chunkingService;
+    @Qualifier(ProviderThrottleConfiguration.INGESTION_EMBEDDING_MODEL)
     private final EmbeddingModel embeddingModel;
     private final CodeSummarizationService summarizationService;
 
@@ -38,7 +43,7 @@ public class FileIngestionServiceImpl implements FileIngestionService {
     private static final int MAX_EMBEDDING_CHARS = 8000; // ~2000 tokens, leaving margin for model
 
     @Override
-    public void indexFile(UUID repositoryId, String repositoryIdentifier, String filePath) {
+    public void indexFile(UUID repositoryId, String repositoryIdentifier, String filePath, String ref) {
         log.info("Indexing file: {} from repository: {}", filePath, repositoryIdentifier);
 
         try {
@@ -50,7 +55,7 @@ public class FileIngestionServiceImpl implements FileIngestionService {
             }
 
             // Read file content
-            FileContent fileContent = repositoryFileService.readFile(repositoryId, filePath);
+            FileContent fileContent = repositoryFileService.readFile(repositoryId, filePath, ref);
             
             // Skip large files
             if (fileContent.getSize() != null && fileContent.getSize() > MAX_FILE_SIZE) {
@@ -61,10 +66,20 @@ public class FileIngestionServiceImpl implements FileIngestionService {
             String content = fileContent.getContent();
             String fileExtension = extractFileExtension(fileName);
             String language = languageDetectionService.detectLanguage(fileName);
+            String contentHash = HashUtils.sha256Hex(content);
+            String normalizedContentHash = HashUtils.sha256HexIgnoringTrailingWhitespace(content);
+
+            // Compare against the currently indexed version of this file
+            UUID documentId = CodeFileIds.of(repositoryId, filePath);
+            CodeFileDocument existing = findIndexedDocument(documentId, filePath);
+            if (existing != null && contentHash.equals(existing.getContentHash()) && hasEmbeddings(existing)) {
+                log.info("Content of file {} is unchanged, skipping re-indexing", filePath);
+                return;
+            }
 
             // Build document
             CodeFileDocument.CodeFileDocumentBuilder builder = CodeFileDocument.builder()
-                    .id(UUID.randomUUID())
+                    .id(documentId)
                     .repositoryId(repositoryId)
                     .repositoryIdentifier(repositoryIdentifier)
                     .filePath(filePath)
@@ -73,30 +88,43 @@ public class FileIngestionServiceImpl implements FileIngestionService {
                     .language(language)
                     .content(content)
                     .size(fileContent.getSize())
-                    .createdAt(Instant.now())
+                    .contentHash(contentHash)
+                    .normalizedContentHash(normalizedContentHash)
+                    .createdAt(existing != null && existing.getCreatedAt() != null ? existing.getCreatedAt() : Instant.now())
                     .updatedAt(Instant.now());
 
-            // Chunk the code
-            List<CodeFileDocument.CodeChunk> chunks = chunkingService.chunkCodeWithMetadata(content);
+            // Chunk the code, only re-embedding chunks that changed
+            List<CodeFileDocument.CodeChunk> previousChunks = existing != null && existing.getCodeChunks() != null
+                    ? existing.getCodeChunks()
+                    : List.of();
+            List<CodeFileDocument.CodeChunk> chunks = chunkingService.chunkCodeWithMetadata(content, previousChunks);
             builder.codeChunks(chunks);
 
-            // Generate summary using LLM
-            log.debug("Generating summary for file: {}", filePath);
-            String summary = summarizationService.summarizeCode(content, language, filePath);
-            builder.contentSummary(summary);
-
-            // Generate embedding from summary instead of full content
-            List<Float> contentEmbedding = generateEmbedding(summary);
-            builder.contentEmbedding(contentEmbedding);
+            if (isFormattingOnlyChange(existing, normalizedContentHash)) {
+                // Line ending or trailing whitespace change: the summary and its embedding are still valid
+                log.debug("Formatting-only change in file: {}, reusing summary and embedding", filePath);
+                builder.contentSummary(existing.getContentSummary());
+                builder.contentEmbedding(existing.getContentEmbedding());
+            } else {
+                // Generate summary using LLM
+                log.debug("Generating summary for file: {}", filePath);
+                String summary = summarizationService.summarizeCode(content, language, filePath);
+                builder.contentSummary(summary);
+
+                // Generate embedding from summary instead of full content
+                List<Float> contentEmbedding = generateEmbedding(summary);
+                builder.contentEmbedding(contentEmbedding);
+            }
 
             CodeFileDocument document = builder.build();
 
-            // First, remove any existing document for this file path
-            removeFileByPath(repositoryId, filePath);
-
-            // Then index the new document
+            // The ID is derived from the path, so this overwrites the previous version in a single operation
             indexingService.indexCodeFile(document);
 
+            if (existing == null) {
+                removeStaleDocuments(repositoryId, filePath, documentId);
+            }
+
             log.info("Successfully indexed file: {}", filePath);
 
         } catch (Exception e) {
@@ -110,7 +138,7 @@ public class FileIngestionServiceImpl implements FileIngestionService {
         log.info("Removing file from index: {} from repository: {}", filePath, repositoryId);
 
         try {
-            removeFileByPath(repositoryId, filePath);
+            indexingService.deleteCodeFile(CodeFileIds.of(repositoryId, filePath));
             log.info("Successfully removed file from index: {}", filePath);
         } catch (Exception e) {
             log.error("Failed to remove file from index: {}", filePath, e);
@@ -123,24 +151,27 @@ public class FileIngestionServiceImpl implements FileIngestionService {
         log.info("Removing folder from index: {} from repository: {}", folderPath, repositoryId);
 
         try {
-            // Normalize folder path
-            String normalizedPath = folderPath.endsWith("/") ? folderPath : folderPath + "/";
+            String normalizedPath = trimSlashes(folderPath);
+            if (normalizedPath.isEmpty()) {
+                log.warn("Refusing to remove repository root folder from index: {}", repositoryId);
+                return;
+            }
 
-            // Delete all documents with filePath starting with the folder path
+            // file_path.tree holds every ancestor folder of a file, so this is a term lookup rather than a prefix scan
             DeleteByQueryRequest request = DeleteByQueryRequest.of(d -> d
                     .index(Indexes.CODE_FILE_INDEX)
                     .query(q -> q
                             .bool(b -> b
-                                    .must(m -> m
+                                    .filter(f -> f
                                             .term(t -> t
-                                                    .field("repositoryId")
+                                                    .field(FieldNames.REPOSITORY_ID)
                                                     .value(FieldValue.of(repositoryId.toString()))
                                             )
                                     )
-                                    .must(m -> m
-                                            .prefix(p -> p
-                                                    .field("filePath.keyword")
-                                                    .value(normalizedPath)
+                                    .filter(f -> f
+                                            .terms(t -> t
+                                                    .field(FieldNames.FILE_PATH_TREE)
+                                                    .terms(v -> v.value(pathVariants(normalizedPath)))
                                             )
                                     )
                             )
@@ -156,37 +187,88 @@ public class FileIngestionServiceImpl implements FileIngestionService {
         }
     }
 
-    private void removeFileByPath(UUID repositoryId, String filePath) {
+    /**
+     * Remove documents indexed for this path under any other ID, e.g. by versions that used random IDs.
+     * Only needed the first time a file is indexed under its deterministic ID.
+     */
+    private void removeStaleDocuments(UUID repositoryId, String filePath, UUID documentId) {
         try {
             DeleteByQueryRequest request = DeleteByQueryRequest.of(d -> d
                     .index(Indexes.CODE_FILE_INDEX)
                     .query(q -> q
                             .bool(b -> b
-                                    .must(m -> m
+                                    .filter(f -> f
                                             .term(t -> t
-                                                    .field("repositoryId")
+                                                    .field(FieldNames.REPOSITORY_ID)
                                                     .value(FieldValue.of(repositoryId.toString()))
                                             )
                                     )
-                                    .must(m -> m
-                                            .term(t -> t
-                                                    .field("filePath.keyword")
-                                                    .value(FieldValue.of(filePath))
+                                    .filter(f -> f
+                                            .terms(t -> t
+                                                    .field(FieldNames.FILE_PATH_KEYWORD)
+                                                    .terms(v -> v.value(pathVariants(trimSlashes(filePath))))
                                             )
                                     )
+                                    .mustNot(m -> m
+                                            .ids(i -> i.values(documentId.toString()))
+                                    )
                             )
                     )
             );
 
             DeleteByQueryResponse response = openSearchClient.deleteByQuery(request);
-            log.debug("Deleted {} documents for file: {}", response.deleted(), filePath);
+            if (response.deleted() != null && response.deleted() > 0) {
+                log.info("Removed {} stale documents for file: {}", response.deleted(), filePath);
+            }
+        } catch (Exception e) {
+            log.error("Failed to remove stale documents for file: {}", filePath, e);
+            // Don't throw exception here as the new document is already indexed
+        }
+    }
+
+    /**
+     * Paths are stored as received, with or without a leading slash
+     */
+    private static List<FieldValue> pathVariants(String trimmedPath) {
+        return List.of(FieldValue.of(trimmedPath), FieldValue.of("/" + trimmedPath));
+    }
 
+    private static String trimSlashes(String path) {
+        return path.replaceAll("^/+", "").replaceAll("/+$", "");
+    }
+
+    private CodeFileDocument findIndexedDocument(UUID documentId, String filePath) {
+        try {
+            return indexingService.getCodeFile(documentId).orElse(null);
         } catch (Exception e) {
-            log.error("Failed to remove file by path: {}", filePath, e);
-            // Don't throw exception here as this is cleanup before indexing
+            log.warn("Failed to look up indexed document for file: {}, re-indexing from scratch", filePath, e);
+            return null;
         }
     }
 
+    /**
+     * Whether the document was indexed with all its embeddings. Embedding failures still index the file for
+     * keyword search, so an unchanged file without them is indexed again to fill them in.
+     */
+    private static boolean hasEmbeddings(CodeFileDocument document) {
+        if (document.getContentEmbedding() == null || document.getContentEmbedding().isEmpty()) {
+            return false;
+        }
+        if (document.getCodeChunks() == null) {
+            return true;
+        }
+        return document.getCodeChunks().stream()
+                .allMatch(chunk -> chunk.getEmbedding() != null && !chunk.getEmbedding().isEmpty());
+    }
+
+    private boolean isFormattingOnlyChange(CodeFileDocument existing, String normalizedContentHash) {
+        return existing != null
+                && normalizedContentHash.equals(existing.getNormalizedContentHash())
+                && existing.getContentSummary() != null
+                && existing.getContentEmbedding() != null
+                && !existing.getContentEmbedding().isEmpty();
+    }
+
     private List<Float> generateEmbedding(String text) {
         try {
             // Truncate text to prevent token limit errors
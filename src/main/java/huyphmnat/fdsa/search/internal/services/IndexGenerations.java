@@ -0,0 +1,61 @@
+package huyphmnat.fdsa.search.internal.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-repository counters of index changes. Cached search results embed the generation they were
+ * computed against, so bumping a repository's generation makes every cached result for it unreachable.
+ * <p>
+ * Searches that are not scoped to one repository use the global generation, which every bump advances.
+ * An index refresh bumps nothing: whoever changed a repository's documents bumps that repository.
+ */
+@Component
+public class IndexGenerations {
+
+    private final Map<String, AtomicLong> repositoryGenerations = new ConcurrentHashMap<>();
+    private final AtomicLong globalGeneration = new AtomicLong();
+
+    /**
+     * Time for a change to become searchable; the index refreshes every second by default
+     */
+    @Value("${search.cache.refresh-delay-ms:1500}")
+    private long refreshDelayMs = 1500;
+
+    /**
+     * Record that the index content of a repository changed. The generation is bumped again once the
+     * change is searchable, so results cached while the refresh was pending are not served afterwards.
+     */
+    public void bump(String repositoryIdentifier) {
+        increment(repositoryIdentifier);
+        if (refreshDelayMs > 0) {
+            CompletableFuture.delayedExecutor(refreshDelayMs, TimeUnit.MILLISECONDS)
+                    .execute(() -> increment(repositoryIdentifier));
+        }
+    }
+
+    private void increment(String repositoryIdentifier) {
+        if (repositoryIdentifier != null) {
+            repositoryGenerations.computeIfAbsent(repositoryIdentifier, key -> new AtomicLong()).incrementAndGet();
+        }
+        globalGeneration.incrementAndGet();
+    }
+
+    /**
+     * Generation a search is computed against: the repository's one for repository-scoped searches,
+     * the global one otherwise
+     */
+    public long current(String repositoryIdentifier) {
+        if (repositoryIdentifier == null || repositoryIdentifier.isEmpty()) {
+            return globalGeneration.get();
+        }
+        AtomicLong generation = repositoryGenerations.get(repositoryIdentifier);
+        return generation != null ? generation.get() : 0;
+    }
+}
@@ -0,0 +1,70 @@
+package huyphmnat.fdsa.search.internal.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor shared by all repository ingestions.
+ * <p>
+ * Ingestion work is I/O bound (file reads, LLM and embedding calls), so by default every task
+ * runs on its own virtual thread and concurrency towards providers is bounded by
+ * {@link ProviderThrottles} rather than by a thread count. The {@code platform} mode uses a
+ * cached pool of named platform threads instead.
+ */
+@Component
+@Slf4j
+public class IngestionExecutor implements Executor {
+
+    public enum Mode {
+        VIRTUAL,
+        PLATFORM
+    }
+
+    @Value("${search.ingestion.executor:virtual}")
+    private String mode = "virtual";
+
+    @Value("${search.ingestion.shutdown-timeout-seconds:30}")
+    private long shutdownTimeoutSeconds = 30;
+
+    private ExecutorService executorService;
+
+    @PostConstruct
+    public void init() {
+        Mode executorMode = Mode.valueOf(mode.trim().toUpperCase());
+        executorService = switch (executorMode) {
+            case VIRTUAL -> Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ingestion-", 0).factory());
+            // Pipeline stage workers are long lived, so the pool must grow with them instead of being fixed
+            case PLATFORM -> Executors.newCachedThreadPool(Thread.ofPlatform().name("ingestion-", 0).daemon(true).factory());
+        };
+        log.info("Ingestion executor started in {} mode", executorMode);
+    }
+
+    public <T> Future<T> submit(Callable<T> task) {
+        return executorService.submit(task);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        executorService.execute(task);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        log.info("Shutting down ingestion executor...");
+        executorService.shutdown();
+        if (!executorService.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+            log.warn("Ingestion executor did not terminate within {}s, interrupting running tasks", shutdownTimeoutSeconds);
+            executorService.shutdownNow();
+        }
+    }
+}
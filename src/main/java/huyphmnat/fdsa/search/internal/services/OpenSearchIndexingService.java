@@ -3,11 +3,34 @@ package huyphmnat.fdsa.search.internal.services;
 import huyphmnat.fdsa.search.dtos.CodeFileDocument;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public interface OpenSearchIndexingService {
     void indexCodeFile(CodeFileDocument document);
 
-    void bulkIndexCodeFiles(List<CodeFileDocument> documents);
+    /**
+     * Get an indexed document by ID, if any
+     */
+    Optional<CodeFileDocument> getCodeFile(UUID id);
+
+    /**
+     * Delete a single document by ID; deleting a missing document is a no-op
+     */
+    void deleteCodeFile(UUID id);
+
+    /**
+     * Index all documents in one bulk request. Items rejected by OpenSearch are reported in the result,
+     * not thrown; an exception means the request as a whole failed.
+     */
+    BulkIndexResult bulkIndexCodeFiles(List<CodeFileDocument> documents);
+
+    /**
+     * Non-blocking variant of {@link #bulkIndexCodeFiles(List)}; the calling thread is free while the request is in flight
+     */
+    CompletableFuture<BulkIndexResult> bulkIndexCodeFilesAsync(List<CodeFileDocument> documents);
+
     void refreshIndexes();
     
     void deleteRepositoryDocuments(String repositoryIdentifier);
@@ -4,26 +4,36 @@ import huyphmnat.fdsa.search.Indexes;
 import huyphmnat.fdsa.search.dtos.CodeFileDocument;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.opensearch.client.opensearch.OpenSearchAsyncClient;
 import org.opensearch.client.opensearch.OpenSearchClient;
 import org.opensearch.client.opensearch._types.FieldValue;
+import org.opensearch.client.opensearch._types.OpenSearchException;
 import org.opensearch.client.opensearch.core.BulkRequest;
 import org.opensearch.client.opensearch.core.BulkResponse;
 import org.opensearch.client.opensearch.core.DeleteByQueryRequest;
 import org.opensearch.client.opensearch.core.DeleteByQueryResponse;
+import org.opensearch.client.opensearch.core.DeleteResponse;
+import org.opensearch.client.opensearch.core.GetResponse;
 import org.opensearch.client.opensearch.core.IndexRequest;
 import org.opensearch.client.opensearch.core.IndexResponse;
 import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
 import org.opensearch.client.opensearch.core.bulk.IndexOperation;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class OpenSearchIndexingServiceImpl implements OpenSearchIndexingService {
     private final OpenSearchClient openSearchClient;
+    private final OpenSearchAsyncClient openSearchAsyncClient;
+    private final IndexGenerations indexGenerations;
 
     /**
      * Index a single code file to OpenSearch
@@ -47,18 +57,82 @@ public class OpenSearchIndexingServiceImpl implements OpenSearchIndexingService
         }
     }
 
+    @Override
+    public Optional<CodeFileDocument> getCodeFile(UUID id) {
+        try {
+            // GET is realtime, so a document indexed just before is visible without a refresh
+            GetResponse<CodeFileDocument> response = openSearchClient.get(g -> g
+                    .index(Indexes.CODE_FILE_INDEX)
+                    .id(id.toString()), CodeFileDocument.class);
+
+            return response.found() ? Optional.ofNullable(response.source()) : Optional.empty();
+        } catch (Exception e) {
+            log.error("Failed to get code file {} from OpenSearch", id, e);
+            throw new RuntimeException("Failed to get code file from OpenSearch", e);
+        }
+    }
+
+    @Override
+    public void deleteCodeFile(UUID id) {
+        try {
+            DeleteResponse response = openSearchClient.delete(d -> d
+                    .index(Indexes.CODE_FILE_INDEX)
+                    .id(id.toString()));
+            log.debug("Deleted code file {} with result: {}", id, response.result());
+        } catch (OpenSearchException e) {
+            if (e.status() == 404) {
+                log.debug("Code file {} was not indexed, nothing to delete", id);
+                return;
+            }
+            log.error("Failed to delete code file {} from OpenSearch", id, e);
+            throw new RuntimeException("Failed to delete code file from OpenSearch", e);
+        } catch (Exception e) {
+            log.error("Failed to delete code file {} from OpenSearch", id, e);
+            throw new RuntimeException("Failed to delete code file from OpenSearch", e);
+        }
+    }
+
     /**
      * Bulk index multiple code files to OpenSearch
      */
     @Override
-    public void bulkIndexCodeFiles(List<CodeFileDocument> documents) {
+    public BulkIndexResult bulkIndexCodeFiles(List<CodeFileDocument> documents) {
         if (documents.isEmpty()) {
             log.info("No documents to index");
-            return;
+            return BulkIndexResult.success(0);
         }
 
         log.info("Bulk indexing {} code files to OpenSearch", documents.size());
 
+        BulkResponse response;
+        try {
+            response = openSearchClient.bulk(buildBulkRequest(documents));
+        } catch (Exception e) {
+            log.error("Failed to bulk index code files to OpenSearch", e);
+            throw new RuntimeException("Failed to bulk index code files to OpenSearch", e);
+        }
+
+        return toBulkIndexResult(documents, response);
+    }
+
+    @Override
+    public CompletableFuture<BulkIndexResult> bulkIndexCodeFilesAsync(List<CodeFileDocument> documents) {
+        if (documents.isEmpty()) {
+            return CompletableFuture.completedFuture(BulkIndexResult.success(0));
+        }
+
+        log.info("Bulk indexing {} code files to OpenSearch (async)", documents.size());
+
+        try {
+            return openSearchAsyncClient.bulk(buildBulkRequest(documents))
+                    .thenApply(response -> toBulkIndexResult(documents, response));
+        } catch (Exception e) {
+            log.error("Failed to bulk index code files to OpenSearch", e);
+            return CompletableFuture.failedFuture(new RuntimeException("Failed to bulk index code files to OpenSearch", e));
+        }
+    }
+
+    private BulkRequest buildBulkRequest(List<CodeFileDocument> documents) {
         List<BulkOperation> operations = new ArrayList<>();
         for (CodeFileDocument document : documents) {
             operations.add(BulkOperation.of(b -> b
@@ -68,24 +142,26 @@ public class OpenSearchIndexingServiceImpl implements OpenSearchIndexingService
                             .document(document)))));
         }
 
-        try {
-            BulkRequest bulkRequest = BulkRequest.of(b -> b
-                    .operations(operations));
-
-            BulkResponse response = openSearchClient.bulk(bulkRequest);
-
-            if (response.errors()) {
-                log.warn("Bulk indexing completed with errors. Failed items: {}",
-                        response.items().stream()
-                                .filter(item -> item.error() != null)
-                                .count());
-            } else {
-                log.info("Successfully bulk indexed {} code files", documents.size());
+        return BulkRequest.of(b -> b
+                .operations(operations));
+    }
+
+    private BulkIndexResult toBulkIndexResult(List<CodeFileDocument> documents, BulkResponse response) {
+        if (!response.errors()) {
+            log.info("Successfully bulk indexed {} code files", documents.size());
+            return BulkIndexResult.success(documents.size());
+        }
+
+        // Response items are in request order
+        List<BulkIndexResult.ItemFailure> failures = new ArrayList<>();
+        for (int i = 0; i < response.items().size(); i++) {
+            BulkResponseItem item = response.items().get(i);
+            if (item.error() != null) {
+                failures.add(new BulkIndexResult.ItemFailure(documents.get(i), item.status(), item.error().reason()));
             }
-        } catch (Exception e) {
-            log.error("Failed to bulk index code files to OpenSearch", e);
-            throw new RuntimeException("Failed to bulk index code files to OpenSearch", e);
         }
+        log.warn("Bulk indexing completed with errors. Failed items: {}", failures.size());
+        return new BulkIndexResult(documents.size() - failures.size(), failures);
     }
 
     @Override
@@ -115,6 +191,7 @@ public class OpenSearchIndexingServiceImpl implements OpenSearchIndexingService
                                     .value(FieldValue.of(repositoryIdentifier)))));
 
             DeleteByQueryResponse response = openSearchClient.deleteByQuery(request);
+            indexGenerations.bump(repositoryIdentifier);
             log.info("Deleted {} documents for repository: {}", response.deleted(), repositoryIdentifier);
         } catch (Exception e) {
             log.error("Failed to delete documents for repository: {}", repositoryIdentifier, e);
@@ -0,0 +1,92 @@
+package huyphmnat.fdsa.search.internal.services;
+
+import huyphmnat.fdsa.search.FieldNames;
+import lombok.extern.slf4j.Slf4j;
+import org.opensearch.client.opensearch._types.FieldValue;
+import org.opensearch.client.opensearch._types.query_dsl.PrefixQuery;
+import org.opensearch.client.opensearch._types.query_dsl.Query;
+import org.opensearch.client.opensearch._types.query_dsl.TermQuery;
+import org.opensearch.client.opensearch._types.query_dsl.WildcardQuery;
+
+/**
+ * Turns a {@code filePathPattern} ({@code *} any characters, {@code ?} one character, matched against the
+ * whole path) into a filter that does not scan the whole term dictionary.
+ * <p>
+ * A wildcard query is only cheap when the pattern starts with literal text, since the term lookup can seek
+ * straight to that prefix. Patterns starting with a wildcard are therefore matched against the reversed
+ * path instead, where their literal suffix becomes the prefix:
+ * <ul>
+ *     <li>{@code src/main/Foo.java} - term on the exact path</li>
+ *     <li>{@code src/main/*} - prefix on the exact path</li>
+ *     <li>{@code src/*}{@code /Foo.java} - wildcard on the exact path, bounded by {@code src/}</li>
+ *     <li>{@code *Service.java} - prefix on the reversed file name (reversed path if the suffix has a {@code /})</li>
+ *     <li>{@code *test*}{@code /*.java} - wildcard on the reversed path, bounded by {@code avaj.}</li>
+ *     <li>{@code *Service*} - no literal end to anchor on: wildcard on the exact path, which scans its terms
+ *     but is the only lookup that matches text anywhere inside a path word</li>
+ * </ul>
+ */
+@Slf4j
+public final class PathPatternTranslator {
+
+    private PathPatternTranslator() {
+        // Prevent instantiation
+    }
+
+    public static Query toFilter(String pattern) {
+        // Consecutive stars match the same as one
+        String glob = pattern.replaceAll("\\*+", "*");
+
+        if (!hasWildcard(glob)) {
+            return TermQuery.of(t -> t
+                    .field(FieldNames.FILE_PATH_KEYWORD)
+                    .value(FieldValue.of(glob))
+            ).toQuery();
+        }
+
+        if (!isWildcard(glob.charAt(0))) {
+            String literalPrefix = glob.substring(0, glob.length() - 1);
+            if (glob.endsWith("*") && !hasWildcard(literalPrefix)) {
+                return PrefixQuery.of(p -> p
+                        .field(FieldNames.FILE_PATH_KEYWORD)
+                        .value(literalPrefix)
+                ).toQuery();
+            }
+            return wildcard(FieldNames.FILE_PATH_KEYWORD, glob);
+        }
+
+        if (!isWildcard(glob.charAt(glob.length() - 1))) {
+            String reversed = new StringBuilder(glob).reverse().toString();
+            String literalSuffix = glob.substring(1);
+            if (glob.charAt(0) == '*' && !hasWildcard(literalSuffix)) {
+                // The file name is the last path segment, so a suffix without '/' is a file name suffix
+                String field = literalSuffix.contains("/") ? FieldNames.FILE_PATH_REVERSED : FieldNames.FILE_NAME_REVERSED;
+                return PrefixQuery.of(p -> p
+                        .field(field)
+                        .value(reversed.substring(0, reversed.length() - 1))
+                ).toQuery();
+            }
+            return wildcard(FieldNames.FILE_PATH_REVERSED, reversed);
+        }
+
+        if (glob.equals("*")) {
+            log.debug("Path pattern '{}' matches every path, not filtering on path", pattern);
+            return Query.of(q -> q.matchAll(m -> m));
+        }
+        return wildcard(FieldNames.FILE_PATH_KEYWORD, glob);
+    }
+
+    private static Query wildcard(String field, String value) {
+        return WildcardQuery.of(w -> w
+                .field(field)
+                .value(value)
+        ).toQuery();
+    }
+
+    private static boolean hasWildcard(String value) {
+        return value.indexOf('*') >= 0 || value.indexOf('?') >= 0;
+    }
+
+    private static boolean isWildcard(char c) {
+        return c == '*' || c == '?';
+    }
+}
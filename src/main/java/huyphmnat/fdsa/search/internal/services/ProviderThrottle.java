@@ -0,0 +1,61 @@
+package huyphmnat.fdsa.search.internal.services;
+
+import huyphmnat.fdsa.shared.utils.TokenBucket;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Limits calls to an external provider (LLM, embeddings) by concurrency and by request rate.
+ * Callers block until both a concurrency permit and a rate token are available, which keeps
+ * throughput bounded independently of how many threads submit work.
+ */
+@Slf4j
+public class ProviderThrottle {
+
+    @Getter
+    private final String name;
+    private final Semaphore concurrency;
+    private final TokenBucket rate;
+
+    /**
+     * @param maxConcurrent     maximum calls in flight
+     * @param requestsPerSecond sustained request rate, {@code <= 0} for unlimited
+     * @param burst             requests allowed above the sustained rate after an idle period
+     */
+    public ProviderThrottle(String name, int maxConcurrent, double requestsPerSecond, int burst) {
+        this.name = name;
+        this.concurrency = new Semaphore(maxConcurrent, true);
+        this.rate = requestsPerSecond > 0 ? new TokenBucket(requestsPerSecond, Math.max(burst, 1)) : null;
+    }
+
+    public <T> T execute(Supplier<T> call) {
+        try {
+            concurrency.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + name + " provider permit", e);
+        }
+
+        try {
+            if (rate != null) {
+                rate.acquire();
+            }
+            return call.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + name + " provider rate limit", e);
+        } finally {
+            concurrency.release();
+        }
+    }
+
+    /**
+     * Number of callers currently waiting for a concurrency permit
+     */
+    public int getQueueLength() {
+        return concurrency.getQueueLength();
+    }
+}
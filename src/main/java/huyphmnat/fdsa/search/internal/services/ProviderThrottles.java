@@ -0,0 +1,65 @@
+package huyphmnat.fdsa.search.internal.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-provider throttles shared by every caller of the LLM and embedding APIs.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ProviderThrottles {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${search.providers.llm.max-concurrent:8}")
+    private int llmMaxConcurrent;
+
+    @Value("${search.providers.llm.requests-per-second:5}")
+    private double llmRequestsPerSecond;
+
+    @Value("${search.providers.llm.burst:10}")
+    private int llmBurst;
+
+    @Value("${search.providers.embedding.max-concurrent:4}")
+    private int embeddingMaxConcurrent;
+
+    @Value("${search.providers.embedding.requests-per-second:20}")
+    private double embeddingRequestsPerSecond;
+
+    @Value("${search.providers.embedding.burst:20}")
+    private int embeddingBurst;
+
+    private ProviderThrottle llm;
+    private ProviderThrottle embedding;
+
+    @PostConstruct
+    public void init() {
+        llm = register(new ProviderThrottle("llm", llmMaxConcurrent, llmRequestsPerSecond, llmBurst));
+        embedding = register(new ProviderThrottle("embedding", embeddingMaxConcurrent, embeddingRequestsPerSecond, embeddingBurst));
+        log.info("Provider throttles initialized (llm: {} concurrent, {}/s; embedding: {} concurrent, {}/s)",
+                llmMaxConcurrent, llmRequestsPerSecond, embeddingMaxConcurrent, embeddingRequestsPerSecond);
+    }
+
+    public ProviderThrottle llm() {
+        return llm;
+    }
+
+    public ProviderThrottle embedding() {
+        return embedding;
+    }
+
+    private ProviderThrottle register(ProviderThrottle throttle) {
+        Gauge.builder("search.providers.waiting", throttle, ProviderThrottle::getQueueLength)
+                .description("Callers waiting for a provider permit")
+                .tag("provider", throttle.getName())
+                .register(meterRegistry);
+        return throttle;
+    }
+}
@@ -1,6 +1,12 @@
 package huyphmnat.fdsa.search.internal.services;
 
 import huyphmnat.fdsa.search.interfaces.QueryRewriter;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
@@ -9,18 +15,49 @@ import org.springframework.ai.chat.prompt.PromptTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * LLM based query rewriting, kept off the search critical path as far as possible:
+ * <ul>
+ *     <li>rewrites are cached by normalized query (case and whitespace insensitive)</li>
+ *     <li>concurrent searches for the same query share a single LLM call</li>
+ *     <li>a search waits at most {@code latency-budget-ms} for the rewrite; after that the original query is
+ *     used and the rewrite still completes in the background, so the next identical search gets it</li>
+ * </ul>
+ */
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class QueryRewriterImpl implements QueryRewriter {
 
     private final ChatClient.Builder chatClientBuilder;
+    private final SearchExecutor searchExecutor;
+    private final MeterRegistry meterRegistry;
 
     @Value("${search.query-rewriter.enabled:true}")
     private boolean queryRewriterEnabled;
 
+    @Value("${search.query-rewriter.cache.max-entries:10000}")
+    private long cacheMaxEntries = 10_000;
+
+    @Value("${search.query-rewriter.cache.ttl-seconds:86400}")
+    private long cacheTtlSeconds = 86_400;
+
+    @Value("${search.query-rewriter.latency-budget-ms:300}")
+    private long latencyBudgetMs = 300;
+
+    private ChatClient chatClient;
+    private AsyncCache<String, String> rewrites;
+    private Counter budgetExceeded;
+
     private static final String REWRITE_PROMPT = """
             You are a search query optimizer for a code search engine.
             
@@ -46,45 +83,76 @@ public class QueryRewriterImpl implements QueryRewriter {
             Return ONLY the rewritten query, nothing else. No explanations, no quotes, just the improved query.
             """;
 
+    @PostConstruct
+    public void init() {
+        chatClient = chatClientBuilder.build();
+        rewrites = Caffeine.newBuilder()
+                .maximumSize(cacheMaxEntries)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .executor(searchExecutor)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, rewrites, "queryRewrites");
+        budgetExceeded = Counter.builder("search.query-rewriter.budget-exceeded")
+                .description("Searches that went ahead with the original query because the rewrite was too slow")
+                .register(meterRegistry);
+    }
+
     @Override
-    public String rewriteQuery(String originalQuery) {
+    public Optional<String> tryRewriteQuery(String originalQuery) {
         if (!queryRewriterEnabled) {
             log.debug("Query rewriter is disabled, returning original query");
-            return originalQuery;
+            return Optional.ofNullable(originalQuery);
         }
 
         if (originalQuery == null || originalQuery.trim().isEmpty()) {
             log.warn("Empty or null query provided, returning as-is");
-            return originalQuery;
+            return Optional.ofNullable(originalQuery);
         }
 
         // For very short queries (1-2 words), often they're already clear enough
         String trimmedQuery = originalQuery.trim();
         if (trimmedQuery.split("\\s+").length <= 2) {
             log.debug("Query is already short ({} words), skipping rewrite", trimmedQuery.split("\\s+").length);
-            return originalQuery;
+            return Optional.ofNullable(originalQuery);
         }
 
+        // Failed rewrites complete exceptionally and are not kept by the cache, so they are retried next time
+        CompletableFuture<String> rewrite = rewrites.get(normalize(trimmedQuery),
+                (key, executor) -> CompletableFuture.supplyAsync(() -> callLlm(trimmedQuery), executor));
+
         try {
-            log.debug("Rewriting query: {}", originalQuery);
-            
-            ChatClient chatClient = chatClientBuilder.build();
-            PromptTemplate promptTemplate = new PromptTemplate(REWRITE_PROMPT);
-            Prompt prompt = promptTemplate.create(Map.of("query", originalQuery));
-            
-            String rewrittenQuery = chatClient.prompt(prompt)
-                    .call()
-                    .content();
-            
-            String cleanedQuery = rewrittenQuery.trim()
-                    .replaceAll("^[\"']|[\"']$", ""); // Remove surrounding quotes if present
-            
-            log.info("Query rewritten: '{}' → '{}'", originalQuery, cleanedQuery);
-            return cleanedQuery;
-            
-        } catch (Exception e) {
-            log.error("Error rewriting query, returning original: {}", e.getMessage(), e);
-            return originalQuery;
+            return Optional.of(rewrite.get(latencyBudgetMs, TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            log.debug("Query rewrite exceeded {}ms budget, searching with the original query: {}", latencyBudgetMs, originalQuery);
+            budgetExceeded.increment();
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            log.error("Error rewriting query, searching with the original query: {}", e.getCause().getMessage(), e.getCause());
+            return Optional.empty();
         }
     }
+
+    private String callLlm(String query) {
+        log.debug("Rewriting query: {}", query);
+
+        Prompt prompt = new PromptTemplate(REWRITE_PROMPT).create(Map.of("query", query));
+
+        String rewrittenQuery = chatClient.prompt(prompt)
+                .call()
+                .content();
+
+        String cleanedQuery = rewrittenQuery.trim()
+                .replaceAll("^[\"']|[\"']$", ""); // Remove surrounding quotes if present
+
+        log.info("Query rewritten: '{}' → '{}'", query, cleanedQuery);
+        return cleanedQuery;
+    }
+
+    private static String normalize(String query) {
+        return query.replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
 }
@@ -0,0 +1,38 @@
+package huyphmnat.fdsa.search.internal.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.function.Supplier;
+
+/**
+ * {@link EmbeddingModel} decorator that routes every provider call through the embedding {@link ProviderThrottle}.
+ */
+@RequiredArgsConstructor
+public class RateLimitedEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+
+    /**
+     * Resolved lazily so wrapping the model does not force early initialization of the throttles
+     */
+    private final Supplier<ProviderThrottle> throttle;
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return throttle.get().execute(() -> delegate.call(request));
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
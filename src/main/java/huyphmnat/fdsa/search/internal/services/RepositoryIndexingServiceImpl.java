@@ -2,23 +2,35 @@ package huyphmnat.fdsa.search.internal.services;
 
 import huyphmnat.fdsa.repository.dtos.DirectoryContent;
 import huyphmnat.fdsa.repository.dtos.Entry;
+import huyphmnat.fdsa.repository.dtos.FileChange;
 import huyphmnat.fdsa.repository.dtos.FileContent;
 import huyphmnat.fdsa.repository.dtos.FileEntry;
 import huyphmnat.fdsa.repository.interfaces.RepositoryFileService;
 import huyphmnat.fdsa.search.dtos.CodeFileDocument;
+import huyphmnat.fdsa.search.interfaces.FileIngestionService;
 import huyphmnat.fdsa.search.interfaces.RepositoryIngestionService;
+import huyphmnat.fdsa.shared.utils.HashUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.embedding.EmbeddingModel;
-import org.springframework.ai.embedding.EmbeddingRequest;
-import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
+/**
+ * Ingests a whole repository through a staged pipeline:
+ * walk → read → chunk → summarize → embed → bulk index.
+ * <p>
+ * Stages are connected by bounded queues, so a slow stage blocks the ones before it
+ * (backpressure) and memory stays flat regardless of repository size. Each stage
+ * runs a configurable number of workers.
+ * <p>
+ * Syncs after new commits skip the pipeline and re-index only the changed files.
+ */
 @Service
 @Slf4j
 @RequiredArgsConstructor
@@ -28,179 +40,380 @@ public class RepositoryIndexingServiceImpl implements RepositoryIngestionService
     private final OpenSearchIndexingService indexingService;
     private final LanguageDetectionService languageDetectionService;
     private final CodeChunkingService chunkingService;
-    private final EmbeddingModel embeddingModel;
+    private final EmbeddingBatcher embeddingBatcher;
     private final CodeSummarizationService summarizationService;
+    private final IngestionExecutor ingestionExecutor;
+    private final BulkIngester bulkIngester;
+    private final FileIngestionService fileIngestionService;
+
+    @Value("${search.ingestion.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${search.ingestion.readers:4}")
+    private int readers;
+
+    @Value("${search.ingestion.chunkers:2}")
+    private int chunkers;
+
+    @Value("${search.ingestion.summarizers:8}")
+    private int summarizers;
+
+    /**
+     * Embed workers mostly wait for their coalesced batch, so there are many more of them than provider permits
+     */
+    @Value("${search.ingestion.embedders:32}")
+    private int embedders;
+
+    /**
+     * Changed files a sync applies concurrently; the others wait instead of piling up on the executor
+     */
+    @Value("${search.ingestion.sync-workers:8}")
+    private int syncWorkers;
 
-    // Concurrency controls
-    // Use a FixedThreadPool to control rate limits (e.g., 10-20 concurrent LLM calls)
-    // If using Java 21+ and no rate limits, use Executors.newVirtualThreadPerTaskExecutor()
-    private final ExecutorService executorService = Executors.newFixedThreadPool(15); 
-    
-    private static final int BATCH_SIZE = 100;
     private static final long MAX_FILE_SIZE = 10 * 1024 * 1024;
     private static final int MAX_EMBEDDING_CHARS = 8000;
 
     @Override
     public void ingestRepository(UUID repositoryId, String repositoryIdentifier) {
-        log.info("Starting parallel ingestion for repository: {} ({})", repositoryIdentifier, repositoryId);
+        log.info("Starting pipelined ingestion for repository: {} ({})", repositoryIdentifier, repositoryId);
         long startTime = System.currentTimeMillis();
 
-        // Thread-safe collection for the current batch
-        List<CodeFileDocument> currentBatch = Collections.synchronizedList(new ArrayList<>());
-        // Track futures to wait for completion
-        List<CompletableFuture<Void>> futures = new ArrayList<>();
-        
-        // Counters for logging
-        AtomicInteger fileCount = new AtomicInteger(0);
-        AtomicInteger skippedCount = new AtomicInteger(0);
+        IngestionStats stats = new IngestionStats();
 
-        try {
-            Queue<String> directoriesToProcess = new LinkedList<>();
-            directoriesToProcess.add("/");
+        BlockingQueue<FileWork> readQueue = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<FileWork> chunkQueue = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<FileWork> summarizeQueue = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<FileWork> embedQueue = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<FileWork> indexQueue = new ArrayBlockingQueue<>(queueCapacity);
 
-            while (!directoriesToProcess.isEmpty()) {
-                String currentPath = directoriesToProcess.poll();
+        Workers workers = new Workers();
 
-                try {
-                    DirectoryContent content = repositoryFileService.listDirectory(repositoryId, currentPath);
-
-                    for (Entry entry : content.getEntries()) {
-                        if (entry instanceof FileEntry fileEntry) {
-                            if (shouldProcessFile(fileEntry)) {
-                                // Submit file processing to the thread pool
-                                CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
-                                    try {
-                                        CodeFileDocument doc = processFile(repositoryId, repositoryIdentifier, fileEntry);
-                                        if (doc != null) {
-                                            fileCount.incrementAndGet();
-                                            addDocumentToBatch(doc, currentBatch);
-                                        }
-                                    } catch (Exception e) {
-                                        log.error("Error processing file asynchronously: {}", fileEntry.getPath(), e);
-                                    }
-                                }, executorService);
-                                
-                                futures.add(future);
-                            } else {
-                                skippedCount.incrementAndGet();
-                            }
-                        } else {
-                            directoriesToProcess.add(entry.getPath());
-                        }
-                    }
-                } catch (Exception e) {
-                    log.error("Failed to process directory: {}", currentPath, e);
-                }
-            }
+        try {
+            startStage("read", readers, readQueue, chunkQueue, chunkers, workers, stats, this::read);
+            startStage("chunk", chunkers, chunkQueue, summarizeQueue, summarizers, workers, stats, this::chunk);
+            startStage("summarize", summarizers, summarizeQueue, embedQueue, embedders, workers, stats, this::summarize);
+            startStage("embed", embedders, embedQueue, indexQueue, 1, workers, stats, this::embed);
+            workers.submit(() -> bulkIndex(indexQueue, stats));
 
-            // Wait for all processing tasks to complete
-            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            // The walk runs on the calling thread and blocks whenever the read queue is full
+            walk(repositoryId, repositoryIdentifier, readQueue, stats, workers);
+            for (int i = 0; i < readers; i++) {
+                put(readQueue, FileWork.POISON, workers);
+            }
 
-            // Index any remaining documents in the batch
-            flushRemainingBatch(currentBatch);
+            workers.awaitAll();
 
             long duration = System.currentTimeMillis() - startTime;
-            log.info("Completed ingestion for {}. Indexed: {}, Skipped: {}, Time: {}ms",
-                    repositoryIdentifier, fileCount.get(), skippedCount.get(), duration);
+            log.info("Completed ingestion for {}. Indexed: {}, Skipped: {}, Failed: {}, Dead-lettered: {}, Time: {}ms",
+                    repositoryIdentifier, stats.indexed.get(), stats.skipped.get(), stats.failed.get(),
+                    stats.deadLettered.get(), duration);
 
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Repository ingestion interrupted", e);
         } catch (Exception e) {
             log.error("Failed to ingest repository: {}", repositoryIdentifier, e);
             throw new RuntimeException("Repository ingestion failed", e);
+        } finally {
+            // Only has an effect when the ingestion failed; the executor itself is shared
+            workers.abort();
+        }
+
+        if (stats.unlistedDirectories.get() > 0) {
+            // Whole subtrees are missing and have no dead letters, so the caller must not record the repository
+            // as indexed and retries the ingestion
+            throw new RuntimeException("Repository ingestion failed to list " + stats.unlistedDirectories.get() + " directories");
+        }
+    }
+
+    @Override
+    public void syncRepository(UUID repositoryId, String repositoryIdentifier, String fromCommit, String toCommit) {
+        if (fromCommit == null) {
+            log.info("Repository {} has no indexed commit, ingesting it fully", repositoryIdentifier);
+            ingestRepository(repositoryId, repositoryIdentifier);
+            return;
+        }
+
+        List<FileChange> changes;
+        try {
+            changes = repositoryFileService.listChanges(repositoryId, fromCommit, toCommit);
+        } catch (IllegalArgumentException e) {
+            log.warn("Cannot diff {} from {}, ingesting it fully: {}", repositoryIdentifier, fromCommit, e.getMessage());
+            ingestRepository(repositoryId, repositoryIdentifier);
+            return;
+        }
+
+        log.info("Syncing {} from {} to {}: {} changed files", repositoryIdentifier, fromCommit, toCommit, changes.size());
+        long startTime = System.currentTimeMillis();
+
+        // Files are independent; unchanged content is skipped by hash and provider calls are throttled downstream.
+        // Submission blocks while syncWorkers changes are in flight, so a large diff does not flood the executor.
+        Semaphore permits = new Semaphore(syncWorkers);
+        List<Future<Void>> futures = new ArrayList<>(changes.size());
+        try {
+            for (FileChange change : changes) {
+                permits.acquire();
+                try {
+                    futures.add(ingestionExecutor.submit(() -> {
+                        try {
+                            applyChange(repositoryId, repositoryIdentifier, change, toCommit);
+                            return null;
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                } catch (RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new RuntimeException("Repository sync interrupted", e);
+        }
+
+        int failed = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(future -> future.cancel(true));
+                throw new RuntimeException("Repository sync interrupted", e);
+            } catch (ExecutionException e) {
+                failed++;
+                log.error("Failed to sync file: {}", changes.get(i).getPath(), e.getCause());
+            }
+        }
+
+        long duration = System.currentTimeMillis() - startTime;
+        log.info("Completed sync for {}. Changed: {}, Failed: {}, Time: {}ms",
+                repositoryIdentifier, changes.size(), failed, duration);
+
+        if (failed > 0) {
+            // The caller must not record toCommit as indexed, so the sync is retried
+            throw new RuntimeException("Repository sync failed for " + failed + " of " + changes.size() + " files");
         }
     }
 
     /**
-     * Thread-safe method to add documents to batch and flush if size limit reached.
+     * Files are read at {@code toCommit}, the commit the diff was computed against, not at HEAD:
+     * HEAD may have moved on since, e.g. deleted a file the range added.
      */
-    private synchronized void addDocumentToBatch(CodeFileDocument doc, List<CodeFileDocument> batch) {
-        batch.add(doc);
-        if (batch.size() >= BATCH_SIZE) {
-            log.debug("Batch size reached ({}), flushing to index...", batch.size());
-            // Create a copy to index so we can clear the main list immediately
-            List<CodeFileDocument> batchToIndex = new ArrayList<>(batch);
-            batch.clear();
-            
-            // Indexing can happen on the current thread (the worker thread)
-            // or be offloaded. Here we do it on the worker thread.
-            try {
-                indexingService.bulkIndexCodeFiles(batchToIndex);
-            } catch (Exception e) {
-                log.error("Failed to bulk index batch", e);
-                // In production, consider a retry mechanism or Dead Letter Queue here
+    private void applyChange(UUID repositoryId, String repositoryIdentifier, FileChange change, String toCommit) {
+        switch (change.getType()) {
+            case ADDED, MODIFIED -> fileIngestionService.indexFile(repositoryId, repositoryIdentifier, change.getPath(), toCommit);
+            case DELETED -> fileIngestionService.removeFile(repositoryId, change.getPath());
+            case RENAMED -> {
+                fileIngestionService.removeFile(repositoryId, change.getOldPath());
+                fileIngestionService.indexFile(repositoryId, repositoryIdentifier, change.getPath(), toCommit);
             }
         }
     }
 
-    private synchronized void flushRemainingBatch(List<CodeFileDocument> batch) {
-        if (!batch.isEmpty()) {
-            log.debug("Flushing remaining {} documents...", batch.size());
+    /**
+     * Breadth-first walk of the repository, emitting every indexable file
+     */
+    private void walk(UUID repositoryId, String repositoryIdentifier, BlockingQueue<FileWork> out, IngestionStats stats,
+                      Workers workers) throws InterruptedException {
+        Queue<String> directoriesToProcess = new ArrayDeque<>();
+        directoriesToProcess.add("/");
+
+        while (!directoriesToProcess.isEmpty()) {
+            String currentPath = directoriesToProcess.poll();
+
             try {
-                indexingService.bulkIndexCodeFiles(new ArrayList<>(batch));
-                batch.clear();
+                DirectoryContent content = repositoryFileService.listDirectory(repositoryId, currentPath);
+
+                for (Entry entry : content.getEntries()) {
+                    if (entry instanceof FileEntry fileEntry) {
+                        if (shouldProcessFile(fileEntry)) {
+                            put(out, new FileWork(repositoryId, repositoryIdentifier, fileEntry), workers);
+                        } else {
+                            stats.skipped.incrementAndGet();
+                        }
+                    } else {
+                        directoriesToProcess.add(entry.getPath());
+                    }
+                }
+            } catch (InterruptedException | IllegalStateException e) {
+                throw e;
             } catch (Exception e) {
-                log.error("Failed to flush remaining documents", e);
+                // The files below it are missing from the index without a record, so this fails the ingestion
+                log.error("Failed to process directory: {}", currentPath, e);
+                stats.unlistedDirectories.incrementAndGet();
             }
         }
     }
 
-    private boolean shouldProcessFile(FileEntry fileEntry) {
-        if (fileEntry.getSize() != null && fileEntry.getSize() > MAX_FILE_SIZE) return false;
-        return languageDetectionService.isCodeFile(fileEntry.getName());
+    /**
+     * Start {@code workerCount} workers that apply {@code step} to every item of {@code in} and
+     * pass the result to {@code out}. A step returning {@code null} drops the item, a failing step drops
+     * it and dead-letters the file, so one bad file does not fail the whole repository. Once every worker has received its poison pill, the last one forwards
+     * {@code downstreamWorkers} pills.
+     */
+    private void startStage(String name, int workerCount,
+                            BlockingQueue<FileWork> in, BlockingQueue<FileWork> out, int downstreamWorkers,
+                            Workers workers, IngestionStats stats, Function<FileWork, FileWork> step) {
+        AtomicInteger running = new AtomicInteger(workerCount);
+
+        for (int i = 0; i < workerCount; i++) {
+            workers.submit(() -> {
+                while (true) {
+                    FileWork work = in.take();
+                    if (work == FileWork.POISON) {
+                        if (running.decrementAndGet() == 0) {
+                            for (int j = 0; j < downstreamWorkers; j++) {
+                                out.put(FileWork.POISON);
+                            }
+                        }
+                        return null;
+                    }
+
+                    FileWork result;
+                    try {
+                        result = step.apply(work);
+                    } catch (Exception e) {
+                        log.error("Stage '{}' failed for file: {}", name, work.fileEntry.getPath(), e);
+                        stats.failed.incrementAndGet();
+                        bulkIngester.deadLetterFile(work.repositoryId, work.repositoryIdentifier, work.fileEntry.getPath(),
+                                "Stage '" + name + "' failed: " + e.getMessage());
+                        result = null;
+                    }
+                    if (result != null) {
+                        out.put(result);
+                    }
+                }
+            });
+        }
     }
 
-    private CodeFileDocument processFile(UUID repositoryId, String repositoryIdentifier, FileEntry fileEntry) {
-        FileContent fileContent = repositoryFileService.readFile(repositoryId, fileEntry.getPath());
-        String content = fileContent.getContent();
+    /**
+     * Blocking put for the calling thread, which is not interrupted when the pipeline aborts
+     */
+    private static void put(BlockingQueue<FileWork> queue, FileWork work, Workers workers) throws InterruptedException {
+        while (!queue.offer(work, 500, TimeUnit.MILLISECONDS)) {
+            if (workers.isAborted()) {
+                throw new IllegalStateException("Ingestion pipeline aborted");
+            }
+        }
+    }
 
-        String fileExtension = extractFileExtension(fileEntry.getName());
-        String language = languageDetectionService.detectLanguage(fileEntry.getName());
+    private FileWork read(FileWork work) {
+        FileContent fileContent = repositoryFileService.readFile(work.repositoryId, work.fileEntry.getPath());
+        work.content = fileContent.getContent();
+        return work;
+    }
 
-        CodeFileDocument.CodeFileDocumentBuilder builder = CodeFileDocument.builder()
-                .id(UUID.randomUUID())
-                .repositoryId(repositoryId)
-                .repositoryIdentifier(repositoryIdentifier)
-                .filePath(fileEntry.getPath())
-                .fileName(fileEntry.getName())
-                .fileExtension(fileExtension)
-                .language(language)
-                .content(content)
-                .size(fileEntry.getSize())
-                .createdAt(Instant.now())
-                .updatedAt(Instant.now());
+    private FileWork chunk(FileWork work) {
+        work.chunks = chunkingService.splitCode(work.content);
+        return work;
+    }
 
-        List<CodeFileDocument.CodeChunk> chunks = chunkingService.chunkCodeWithMetadata(content);
-        builder.codeChunks(chunks);
+    private FileWork summarize(FileWork work) {
+        String language = languageDetectionService.detectLanguage(work.fileEntry.getName());
+        work.summary = summarizationService.summarizeCode(work.content, language, work.fileEntry.getPath());
+        return work;
+    }
 
-        String summary = summarizationService.summarizeCode(content, language, fileEntry.getPath());
-        builder.contentSummary(summary);
+    /**
+     * Embed all chunks and the summary of a file, then build the document. The texts are coalesced
+     * with those of other files being embedded concurrently, see {@link EmbeddingBatcher}.
+     */
+    private FileWork embed(FileWork work) {
+        List<String> texts = new ArrayList<>(work.chunks.size() + 1);
+        for (CodeFileDocument.CodeChunk chunk : work.chunks) {
+            texts.add(chunk.getContent());
+        }
+        texts.add(truncateForEmbedding(work.summary));
+
+        List<List<Float>> embeddings = generateEmbeddings(texts);
+        for (int i = 0; i < work.chunks.size(); i++) {
+            work.chunks.get(i).setEmbedding(embeddings.get(i));
+        }
 
-        List<Float> contentEmbedding = generateEmbedding(summary);
-        builder.contentEmbedding(contentEmbedding);
-        
-        return builder.build();
+        work.document = buildDocument(work, embeddings.get(texts.size() - 1));
+        return work;
     }
 
-    private List<Float> generateEmbedding(String text) {
+    /**
+     * Single consumer that feeds documents to the {@link BulkIngester}, which flushes on count, size and age.
+     * Polling with the flush interval makes sure a partial batch is not held back while upstream stages are busy.
+     */
+    private Void bulkIndex(BlockingQueue<FileWork> in, IngestionStats stats) throws InterruptedException {
+        BulkIngester.Session session = bulkIngester.openSession();
+
         try {
-            String truncatedText = text.length() > MAX_EMBEDDING_CHARS 
-                ? text.substring(0, MAX_EMBEDDING_CHARS) 
-                : text;
-            
-            EmbeddingRequest request = new EmbeddingRequest(List.of(truncatedText), null);
-            EmbeddingResponse response = embeddingModel.call(request);
+            while (true) {
+                FileWork work = in.poll(bulkIngester.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+                if (work == FileWork.POISON) {
+                    session.close();
+                    return null;
+                }
+                if (work != null) {
+                    session.add(work.document);
+                } else {
+                    session.flush();
+                }
+            }
+        } finally {
+            stats.indexed.addAndGet(session.getIndexed());
+            stats.deadLettered.addAndGet(session.getDeadLettered());
+        }
+    }
 
-            if (response.getResults().isEmpty()) return new ArrayList<>();
+    private CodeFileDocument buildDocument(FileWork work, List<Float> contentEmbedding) {
+        FileEntry fileEntry = work.fileEntry;
+        return CodeFileDocument.builder()
+                .id(CodeFileIds.of(work.repositoryId, fileEntry.getPath()))
+                .repositoryId(work.repositoryId)
+                .repositoryIdentifier(work.repositoryIdentifier)
+                .filePath(fileEntry.getPath())
+                .fileName(fileEntry.getName())
+                .fileExtension(extractFileExtension(fileEntry.getName()))
+                .language(languageDetectionService.detectLanguage(fileEntry.getName()))
+                .content(work.content)
+                .size(fileEntry.getSize())
+                .contentHash(HashUtils.sha256Hex(work.content))
+                .normalizedContentHash(HashUtils.sha256HexIgnoringTrailingWhitespace(work.content))
+                .createdAt(Instant.now())
+                .updatedAt(Instant.now())
+                .codeChunks(work.chunks)
+                .contentSummary(work.summary)
+                .contentEmbedding(contentEmbedding)
+                .build();
+    }
 
-            float[] embedding = response.getResult().getOutput();
-            List<Float> floatEmbedding = new ArrayList<>(embedding.length);
-            for (float value : embedding) floatEmbedding.add(value);
+    private boolean shouldProcessFile(FileEntry fileEntry) {
+        if (fileEntry.getSize() != null && fileEntry.getSize() > MAX_FILE_SIZE) return false;
+        return languageDetectionService.isCodeFile(fileEntry.getName());
+    }
 
-            return floatEmbedding;
+    /**
+     * Failures yield empty embeddings so the file is still indexed for keyword search.
+     */
+    private List<List<Float>> generateEmbeddings(List<String> texts) {
+        List<List<Float>> embeddings = new ArrayList<>(texts.size());
+        try {
+            for (float[] embedding : embeddingBatcher.embedAll(texts)) {
+                List<Float> floatEmbedding = new ArrayList<>(embedding.length);
+                for (float value : embedding) floatEmbedding.add(value);
+                embeddings.add(floatEmbedding);
+            }
         } catch (Exception e) {
-            log.error("Failed to generate embedding", e);
-            // Return empty or throw depending on if you want to fail the whole file
-            return new ArrayList<>(); 
+            log.error("Failed to generate embeddings", e);
+            embeddings.clear();
         }
+
+        while (embeddings.size() < texts.size()) {
+            embeddings.add(new ArrayList<>());
+        }
+        return embeddings;
+    }
+
+    private String truncateForEmbedding(String text) {
+        return text.length() > MAX_EMBEDDING_CHARS ? text.substring(0, MAX_EMBEDDING_CHARS) : text;
     }
 
     private String extractFileExtension(String fileName) {
@@ -209,4 +422,77 @@ public class RepositoryIndexingServiceImpl implements RepositoryIngestionService
         if (lastDotIndex == -1 || lastDotIndex == fileName.length() - 1) return "";
         return fileName.substring(lastDotIndex + 1).toLowerCase();
     }
-}
\ No newline at end of file
+
+    /**
+     * A file travelling through the pipeline, enriched by each stage
+     */
+    private static final class FileWork {
+        static final FileWork POISON = new FileWork(null, null, null);
+
+        final UUID repositoryId;
+        final String repositoryIdentifier;
+        final FileEntry fileEntry;
+        String content;
+        List<CodeFileDocument.CodeChunk> chunks;
+        String summary;
+        CodeFileDocument document;
+
+        FileWork(UUID repositoryId, String repositoryIdentifier, FileEntry fileEntry) {
+            this.repositoryId = repositoryId;
+            this.repositoryIdentifier = repositoryIdentifier;
+            this.fileEntry = fileEntry;
+        }
+    }
+
+    /**
+     * The workers of one ingestion on the shared {@link IngestionExecutor}.
+     * A worker that dies unexpectedly would leave its neighbours blocked on full or empty queues,
+     * so any failure cancels (interrupts) every worker of the same ingestion.
+     */
+    private final class Workers {
+        private final List<Future<Void>> futures = new CopyOnWriteArrayList<>();
+        private volatile boolean aborted;
+
+        void submit(Callable<Void> worker) {
+            futures.add(ingestionExecutor.submit(() -> {
+                try {
+                    return worker.call();
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Throwable e) {
+                    log.error("Ingestion pipeline worker failed, aborting ingestion", e);
+                    abort();
+                    throw e;
+                }
+            }));
+        }
+
+        void awaitAll() throws InterruptedException, ExecutionException {
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (CancellationException e) {
+                    throw new ExecutionException("Ingestion pipeline aborted", e);
+                }
+            }
+        }
+
+        void abort() {
+            aborted = true;
+            futures.forEach(future -> future.cancel(true));
+        }
+
+        boolean isAborted() {
+            return aborted;
+        }
+    }
+
+    private static final class IngestionStats {
+        final AtomicInteger indexed = new AtomicInteger();
+        final AtomicInteger skipped = new AtomicInteger();
+        // Files dropped by a failing stage, dead-lettered like rejected documents
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger deadLettered = new AtomicInteger();
+        final AtomicInteger unlistedDirectories = new AtomicInteger();
+    }
+}
@@ -0,0 +1,65 @@
+package huyphmnat.fdsa.search.internal.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a cursor-paginated search: the point in time the pages are read from, the page number,
+ * the sort values (score, document id) of the last hit returned so far, and the query every page runs
+ * (the rewritten query of the first page, and whether it had vectors).
+ * <p>
+ * Clients only see the opaque {@link #encode() encoded} form.
+ */
+record SearchCursor(String pitId, int page, Double score, String id, String query, boolean vectors) {
+
+    private static final String VERSION = "v2";
+    private static final String SEPARATOR = "|";
+    private static final int FIELDS = 7;
+
+    /**
+     * A new cursor, whose query is set by the first page
+     */
+    static SearchCursor start(String pitId) {
+        return new SearchCursor(pitId, 0, null, null, null, false);
+    }
+
+    boolean hasPosition() {
+        return score != null && id != null;
+    }
+
+    boolean hasQuery() {
+        return query != null;
+    }
+
+    SearchCursor withQuery(String query, boolean vectors) {
+        return new SearchCursor(pitId, page, score, id, query, vectors);
+    }
+
+    SearchCursor next(String pitId, double lastScore, String lastId) {
+        return new SearchCursor(pitId, page + 1, lastScore, lastId, query, vectors);
+    }
+
+    String encode() {
+        // The query goes last, so it may contain the separator
+        String raw = String.join(SEPARATOR, VERSION, pitId, Integer.toString(page),
+                score == null ? "" : Double.toString(score), id == null ? "" : id,
+                Boolean.toString(vectors), query == null ? "" : query);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static SearchCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", FIELDS);
+            if (parts.length != FIELDS || !VERSION.equals(parts[0]) || parts[1].isEmpty()) {
+                throw new IllegalArgumentException("Invalid search cursor");
+            }
+            Double score = parts[3].isEmpty() ? null : Double.valueOf(parts[3]);
+            String id = parts[4].isEmpty() ? null : parts[4];
+            return new SearchCursor(parts[1], Integer.parseInt(parts[2]), score, id, parts[6], Boolean.parseBoolean(parts[5]));
+        } catch (IllegalArgumentException e) {
+            // Also covers malformed Base64 and numbers
+            throw new IllegalArgumentException("Invalid search cursor", e);
+        }
+    }
+}
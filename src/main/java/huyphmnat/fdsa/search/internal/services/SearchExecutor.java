@@ -0,0 +1,54 @@
+package huyphmnat.fdsa.search.internal.services;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Runs the blocking parts of a search (query rewriting, query embedding) off the request thread.
+ * One virtual thread per task, kept separate from the {@link IngestionExecutor} so search latency does not
+ * depend on ingestion load.
+ */
+@Component
+public class SearchExecutor implements Executor {
+
+    private final ExecutorService executorService =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("search-", 0).factory());
+
+    @Override
+    public void execute(Runnable task) {
+        executorService.execute(task);
+    }
+
+    /**
+     * Like {@link CompletableFuture#supplyAsync}, except that cancelling the returned future interrupts the task
+     * if it is still running, so a result nobody waits for anymore stops tying up its provider call.
+     */
+    public <T> CompletableFuture<T> supplyInterruptibly(Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> running = executorService.submit(() -> {
+            try {
+                result.complete(task.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        result.whenComplete((value, e) -> {
+            if (result.isCancelled()) {
+                running.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+}
@@ -0,0 +1,116 @@
+package huyphmnat.fdsa.search.internal.services;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Latency breakdown of a single search.
+ * <p>
+ * Every stage is an observation named {@code search.stage} and tagged with the stage, so it is exported as a
+ * timer (with the percentiles configured under {@code management.metrics.distribution}) and as a child span
+ * of the search trace. The durations are also kept here for debug responses.
+ */
+final class SearchStages {
+
+    static final String REWRITE = "rewrite";
+    static final String EMBEDDING = "embedding";
+    static final String KEYWORD_SEARCH = "keyword_search";
+    static final String OPENSEARCH = "opensearch";
+    static final String MAPPING = "mapping";
+    static final String TOTAL = "total";
+
+    private static final String OBSERVATION_NAME = "search.stage";
+
+    private final ObservationRegistry observationRegistry;
+    // Captured on the calling thread; stages also start on search executor threads where nothing is in scope
+    private final Observation parent;
+    private final long startedAt = System.nanoTime();
+    // Fan-out stages finish on different threads
+    private final Map<String, Long> timingsMs = Collections.synchronizedMap(new LinkedHashMap<>());
+    private volatile boolean degraded;
+
+    SearchStages(ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+        this.parent = observationRegistry.getCurrentObservation();
+    }
+
+    <T> T observe(String stage, Supplier<T> work) {
+        Observation observation = start(stage);
+        long started = System.nanoTime();
+        try (Observation.Scope ignored = observation.openScope()) {
+            return work.get();
+        } catch (RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            stop(stage, observation, started);
+        }
+    }
+
+    <T> CompletableFuture<T> observeAsync(String stage, Supplier<CompletableFuture<T>> work) {
+        Observation observation = start(stage);
+        long started = System.nanoTime();
+        CompletableFuture<T> future;
+        try (Observation.Scope ignored = observation.openScope()) {
+            future = work.get();
+        } catch (RuntimeException e) {
+            observation.error(e);
+            stop(stage, observation, started);
+            throw e;
+        }
+        return future.whenComplete((result, error) -> {
+            if (error != null) {
+                observation.error(error);
+            }
+            stop(stage, observation, started);
+        });
+    }
+
+    /**
+     * Record that a stage failed or missed its deadline and the search went on without its result
+     */
+    void markDegraded() {
+        degraded = true;
+    }
+
+    boolean isDegraded() {
+        return degraded;
+    }
+
+    /**
+     * Durations of the stages finished so far plus the total; a stage that missed its deadline shows up
+     * only if it completed before the response was built
+     */
+    Map<String, Long> timingsMs() {
+        Map<String, Long> timings;
+        synchronized (timingsMs) {
+            timings = new LinkedHashMap<>(timingsMs);
+        }
+        timings.put(TOTAL, elapsedMs(startedAt));
+        return timings;
+    }
+
+    private Observation start(String stage) {
+        return Observation.createNotStarted(OBSERVATION_NAME, observationRegistry)
+                .contextualName("search " + stage)
+                .lowCardinalityKeyValue("stage", stage)
+                .parentObservation(parent)
+                .start();
+    }
+
+    private void stop(String stage, Observation observation, long started) {
+        timingsMs.put(stage, elapsedMs(started));
+        observation.stop();
+    }
+
+    private static long elapsedMs(long started) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+    }
+}
@@ -1,16 +1,35 @@
 package huyphmnat.fdsa.shared;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
 import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.opensearch.client.json.jackson.JacksonJsonpMapper;
+import org.opensearch.client.opensearch.OpenSearchAsyncClient;
 import org.opensearch.client.opensearch.OpenSearchClient;
 import org.opensearch.client.transport.OpenSearchTransport;
+import org.opensearch.client.transport.httpclient5.ApacheHttpClient5Transport;
 import org.opensearch.client.transport.httpclient5.ApacheHttpClient5TransportBuilder;
+import org.opensearch.client.transport.httpclient5.internal.Node;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
 @Configuration
+@Slf4j
 public class OpenSearchConfiguration {
 
     @Value("${spring.opensearch.host:localhost}")
@@ -22,20 +41,127 @@ public class OpenSearchConfiguration {
     @Value("${spring.opensearch.scheme:http}")
     private String scheme;
 
+    /**
+     * Comma separated node URLs, e.g. {@code http://os-1:9200,http://os-2:9200}.
+     * Takes precedence over host/port/scheme; requests are spread over the nodes and a failing node is
+     * retried only after a backoff.
+     */
+    @Value("${spring.opensearch.hosts:}")
+    private List<String> hosts;
+
+    @Value("${spring.opensearch.pool.max-connections-total:100}")
+    private int maxConnectionsTotal;
+
+    @Value("${spring.opensearch.pool.max-connections-per-route:50}")
+    private int maxConnectionsPerRoute;
+
+    /**
+     * Idle pooled connections are closed after this long, before load balancers or the cluster drop them
+     */
+    @Value("${spring.opensearch.pool.time-to-live-ms:300000}")
+    private long connectionTimeToLiveMs;
+
+    @Value("${spring.opensearch.timeouts.connect-ms:2000}")
+    private long connectTimeoutMs;
+
+    @Value("${spring.opensearch.timeouts.socket-ms:60000}")
+    private long socketTimeoutMs;
+
+    /**
+     * Time to wait for a free pooled connection before failing the request
+     */
+    @Value("${spring.opensearch.timeouts.connection-request-ms:5000}")
+    private long connectionRequestTimeoutMs;
+
+    @Value("${spring.opensearch.compression:true}")
+    private boolean compression;
+
+    /**
+     * Shared by the blocking and the async client, so both use the same connection pool
+     */
     @Bean
-    public OpenSearchClient openSearchClient(ObjectMapper openSearchObjectMapper) {
-        final HttpHost httpHost = new HttpHost(scheme, host, port);
+    public OpenSearchTransport openSearchTransport(ObjectMapper openSearchObjectMapper, MeterRegistry meterRegistry) {
+        final HttpHost[] httpHosts = resolveHosts();
 
         JacksonJsonpMapper jsonpMapper = new JacksonJsonpMapper(openSearchObjectMapper);
 
-        // 2. Build the transport using the custom mapper
-        OpenSearchTransport transport = ApacheHttpClient5TransportBuilder
-                .builder(httpHost)
+        PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnectionsTotal)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(socketTimeoutMs))
+                        .setTimeToLive(TimeValue.ofMilliseconds(connectionTimeToLiveMs))
+                        .build())
+                .build();
+        registerPoolMetrics(connectionManager, meterRegistry);
+
+        log.info("OpenSearch transport: nodes {}, pool {} total / {} per route, compression {}",
+                List.of(httpHosts), maxConnectionsTotal, maxConnectionsPerRoute, compression);
+
+        // Build the transport using the custom mapper
+        return ApacheHttpClient5TransportBuilder
+                .builder(httpHosts)
                 .setMapper(jsonpMapper) // Inject the mapper here
+                .setCompressionEnabled(compression) // gzip request bodies; bulk requests with vectors compress well
+                .setHttpClientConfigCallback(httpClientBuilder -> httpClientBuilder
+                        .setConnectionManager(connectionManager)
+                        .setIOReactorConfig(IOReactorConfig.custom()
+                                .setSoKeepAlive(true)
+                                .build()))
+                .setRequestConfigCallback(requestConfigBuilder -> requestConfigBuilder
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectionRequestTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(socketTimeoutMs)))
+                .setFailureListener(new ApacheHttpClient5Transport.FailureListener() {
+                    @Override
+                    public void onFailure(Node node) {
+                        log.warn("OpenSearch node {} failed, failing over to the remaining nodes", node.getHost());
+                    }
+                })
                 .build();
+    }
 
-        // 3. Create the client
-        return new OpenSearchClient(transport);
+    @Bean
+    public OpenSearchClient openSearchClient(OpenSearchTransport openSearchTransport) {
+        return new OpenSearchClient(openSearchTransport);
+    }
+
+    @Bean
+    public OpenSearchAsyncClient openSearchAsyncClient(OpenSearchTransport openSearchTransport) {
+        return new OpenSearchAsyncClient(openSearchTransport);
     }
-}
 
+    private HttpHost[] resolveHosts() {
+        List<HttpHost> httpHosts = new ArrayList<>();
+        for (String node : hosts) {
+            if (node.isBlank()) {
+                continue;
+            }
+            try {
+                httpHosts.add(HttpHost.create(node.trim()));
+            } catch (URISyntaxException e) {
+                throw new IllegalArgumentException("Invalid OpenSearch node URL: " + node, e);
+            }
+        }
+        if (httpHosts.isEmpty()) {
+            httpHosts.add(new HttpHost(scheme, host, port));
+        }
+        return httpHosts.toArray(HttpHost[]::new);
+    }
+
+    private static void registerPoolMetrics(PoolingAsyncClientConnectionManager connectionManager, MeterRegistry meterRegistry) {
+        registerPoolGauge(meterRegistry, connectionManager, "leased", PoolStats::getLeased);
+        registerPoolGauge(meterRegistry, connectionManager, "pending", PoolStats::getPending);
+        registerPoolGauge(meterRegistry, connectionManager, "available", PoolStats::getAvailable);
+        registerPoolGauge(meterRegistry, connectionManager, "max", PoolStats::getMax);
+    }
+
+    private static void registerPoolGauge(MeterRegistry meterRegistry, PoolingAsyncClientConnectionManager connectionManager,
+                                          String state, ToDoubleFunction<PoolStats> value) {
+        Gauge.builder("opensearch.client.pool.connections", connectionManager,
+                        manager -> value.applyAsDouble(manager.getTotalStats()))
+                .description("OpenSearch client connection pool")
+                .tag("state", state)
+                .register(meterRegistry);
+    }
+}
@@ -2,6 +2,7 @@ package huyphmnat.fdsa.shared.exceptions;
 
 import huyphmnat.fdsa.repository.exceptions.RepositoryAccessDeniedException;
 import huyphmnat.fdsa.repository.exceptions.RepositoryNotFoundException;
+import huyphmnat.fdsa.search.exceptions.CodeFileNotFoundException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -42,6 +43,19 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(body);
     }
 
+    @ExceptionHandler(CodeFileNotFoundException.class)
+    public ResponseEntity<Map<String, Object>> handleCodeFileNotFound(CodeFileNotFoundException ex) {
+        log.warn("Code file not found: {}", ex.getMessage());
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("timestamp", Instant.now().toString());
+        body.put("status", HttpStatus.NOT_FOUND.value());
+        body.put("error", "Not Found");
+        body.put("message", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(body);
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<Map<String, Object>> handleIllegalArgument(IllegalArgumentException ex) {
         log.warn("Invalid argument: {}", ex.getMessage());
@@ -0,0 +1,48 @@
+package huyphmnat.fdsa.shared.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.stream.Collectors;
+
+/**
+ * Hashing helpers shared across modules.
+ */
+public final class HashUtils {
+
+    private HashUtils() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Compute the lowercase hex encoded SHA-256 digest of the given text (UTF-8).
+     */
+    public static String sha256Hex(String text) {
+        return sha256Hex(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Compute the SHA-256 digest of the given text with line endings unified and trailing whitespace
+     * removed, so those changes produce the same hash. Indentation is kept, since it is significant in
+     * languages like Python or YAML.
+     */
+    public static String sha256HexIgnoringTrailingWhitespace(String text) {
+        return sha256Hex(text.lines()
+                .map(String::stripTrailing)
+                .collect(Collectors.joining("\n"))
+                .stripTrailing());
+    }
+
+    /**
+     * Compute the lowercase hex encoded SHA-256 digest of the given bytes.
+     */
+    public static String sha256Hex(byte[] bytes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
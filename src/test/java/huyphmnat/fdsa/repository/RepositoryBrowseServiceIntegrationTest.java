@@ -6,11 +6,15 @@ import huyphmnat.fdsa.repository.internal.entites.RepositoryEntity;
 import huyphmnat.fdsa.repository.internal.repositories.RepositoryRepository;
 import huyphmnat.fdsa.repository.interfaces.RepositoryFileService;
 import huyphmnat.fdsa.repository.interfaces.RepositoryService;
+import org.eclipse.jgit.api.Git;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.UUID;
 
@@ -28,6 +32,7 @@ public class RepositoryBrowseServiceIntegrationTest extends BaseIntegrationTest
     private RepositoryRepository repositoryRepository;
 
     private UUID repositoryId;
+    private Path repositoryPath;
 
     @BeforeEach
     public void setUp() {
@@ -41,6 +46,7 @@ public class RepositoryBrowseServiceIntegrationTest extends BaseIntegrationTest
         RepositoryEntity entity = repositoryRepository.findByIdentifier(identifier)
                 .orElseThrow(() -> new IllegalStateException("Repository entity not found"));
         repositoryId = entity.getId();
+        repositoryPath = Paths.get(entity.getFilesystemPath());
 
         // Create a file structure:
         // /README.md
@@ -406,5 +412,40 @@ public class RepositoryBrowseServiceIntegrationTest extends BaseIntegrationTest
         // .git directory should not be listed
         assertThat(content.getEntries()).noneMatch(e -> e.getName().startsWith(".git"));
     }
-}
 
+    @Test
+    public void testReadAtPreviousCommit() throws Exception {
+        String previousHead;
+        try (Git git = Git.open(repositoryPath.toFile())) {
+            previousHead = git.getRepository().resolve("HEAD").name();
+        }
+
+        repositoryFileService.updateFile(repositoryId, "README.md",
+            "# Changed".getBytes(StandardCharsets.UTF_8), "Change README");
+        repositoryFileService.addFile(repositoryId, "LATER.md",
+            "Added later".getBytes(StandardCharsets.UTF_8), "Add later file");
+
+        assertThat(repositoryFileService.readFile(repositoryId, "README.md", previousHead).getContent())
+            .isEqualTo("# Test Repository\n\nThis is a test.");
+        assertThat(repositoryFileService.listDirectory(repositoryId, "/", previousHead).getEntries())
+            .noneMatch(e -> e.getName().equals("LATER.md"));
+        assertThat(repositoryFileService.readFile(repositoryId, "README.md").getContent()).isEqualTo("# Changed");
+    }
+
+    @Test
+    public void testUncommittedWorkingTreeChangesAreNotVisible() throws Exception {
+        Files.writeString(repositoryPath.resolve("UNCOMMITTED.md"), "not committed");
+
+        DirectoryContent content = repositoryFileService.listDirectory(repositoryId, "/");
+
+        assertThat(content.getEntries()).noneMatch(e -> e.getName().equals("UNCOMMITTED.md"));
+        assertThat(catchThrowable(() -> repositoryFileService.readFile(repositoryId, "UNCOMMITTED.md")))
+            .isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    public void testReadAtUnknownRef() {
+        assertThat(catchThrowable(() -> repositoryFileService.readFile(repositoryId, "README.md", "no-such-branch")))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,70 @@
+package huyphmnat.fdsa.repository.internal.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.*;
+
+class GitRepositoryCacheTest {
+
+    @TempDir
+    private Path repoRoot;
+
+    private final GitRepositoryCache repositoryCache = new GitRepositoryCache(new SimpleMeterRegistry());
+
+    @BeforeEach
+    void setUp() throws Exception {
+        repositoryCache.init();
+        try (Git git = Git.init().setDirectory(repoRoot.toFile()).call()) {
+            Files.writeString(repoRoot.resolve("README.md"), "# readme");
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("initial").setSign(false).call();
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        repositoryCache.close();
+    }
+
+    @Test
+    void testOpen_SameRoot_ShouldReuseHandle() throws Exception {
+        Repository first;
+        try (GitRepositoryCache.Handle handle = repositoryCache.open(repoRoot)) {
+            first = handle.repository();
+        }
+
+        try (GitRepositoryCache.Handle handle = repositoryCache.open(repoRoot.resolve("src/.."))) {
+            assertThat(handle.repository()).isSameAs(first);
+        }
+    }
+
+    @Test
+    void testInvalidate_WhileLeased_ShouldKeepLeaseUsable() throws Exception {
+        try (GitRepositoryCache.Handle handle = repositoryCache.open(repoRoot)) {
+            repositoryCache.invalidate(repoRoot);
+
+            assertThat(handle.repository().resolve(Constants.HEAD)).isNotNull();
+        }
+
+        try (GitRepositoryCache.Handle handle = repositoryCache.open(repoRoot)) {
+            assertThat(handle.repository().resolve(Constants.HEAD)).isNotNull();
+        }
+    }
+
+    @Test
+    void testOpen_NotARepository_ShouldThrow(@TempDir Path empty) {
+        assertThatThrownBy(() -> repositoryCache.open(empty))
+                .isInstanceOf(IOException.class);
+    }
+}
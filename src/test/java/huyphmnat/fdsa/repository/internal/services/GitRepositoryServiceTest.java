@@ -0,0 +1,112 @@
+package huyphmnat.fdsa.repository.internal.services;
+
+import huyphmnat.fdsa.repository.dtos.FileChange;
+import huyphmnat.fdsa.repository.dtos.FileChangeType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class GitRepositoryServiceTest {
+
+    @TempDir
+    private Path repoRoot;
+
+    private final GitRepositoryCache repositoryCache = new GitRepositoryCache(new SimpleMeterRegistry());
+
+    private final GitRepositoryService gitRepositoryService = new GitRepositoryService(repositoryCache);
+
+    private Git git;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        repositoryCache.init();
+        git = Git.init().setDirectory(repoRoot.toFile()).call();
+    }
+
+    @AfterEach
+    void tearDown() {
+        repositoryCache.close();
+        git.close();
+    }
+
+    @Test
+    void testHeadCommit_EmptyRepository_ShouldBeNull() {
+        assertThat(gitRepositoryService.headCommit(repoRoot)).isNull();
+    }
+
+    @Test
+    void testDiff_ShouldListAddedModifiedDeletedAndRenamedFiles() throws Exception {
+        // Given
+        write("src/Kept.java", "class Kept {}");
+        write("src/Modified.java", "class Modified {}");
+        write("src/Deleted.java", "class Deleted {}");
+        write("src/Moved.java", "class Moved { void a() {} void b() {} void c() {} }");
+        String from = commit("initial");
+
+        write("src/Modified.java", "class Modified { int x; }");
+        Files.delete(repoRoot.resolve("src/Deleted.java"));
+        Files.move(repoRoot.resolve("src/Moved.java"), Files.createDirectories(repoRoot.resolve("lib")).resolve("Moved.java"));
+        write("src/Added.java", "class Added {}");
+        String to = commit("change");
+
+        // When
+        List<FileChange> changes = gitRepositoryService.diff(repoRoot, from, to);
+
+        // Then
+        assertThat(changes).containsExactlyInAnyOrder(
+                FileChange.builder().type(FileChangeType.ADDED).path("src/Added.java").build(),
+                FileChange.builder().type(FileChangeType.MODIFIED).path("src/Modified.java").build(),
+                FileChange.builder().type(FileChangeType.DELETED).path("src/Deleted.java").build(),
+                FileChange.builder().type(FileChangeType.RENAMED).path("lib/Moved.java").oldPath("src/Moved.java").build());
+    }
+
+    @Test
+    void testDiff_WithoutFromCommit_ShouldListEveryFileAsAdded() throws Exception {
+        // Given
+        write("a/A.java", "class A {}");
+        write("b/B.java", "class B {}");
+        String to = commit("initial");
+
+        // When
+        List<FileChange> changes = gitRepositoryService.diff(repoRoot, null, to);
+
+        // Then
+        assertThat(changes)
+                .extracting(FileChange::getType, FileChange::getPath)
+                .containsExactlyInAnyOrder(
+                        tuple(FileChangeType.ADDED, "a/A.java"),
+                        tuple(FileChangeType.ADDED, "b/B.java"));
+    }
+
+    @Test
+    void testDiff_UnknownCommit_ShouldThrowIllegalArgument() throws Exception {
+        write("A.java", "class A {}");
+        String to = commit("initial");
+
+        assertThatThrownBy(() -> gitRepositoryService.diff(repoRoot, "0123456789abcdef0123456789abcdef01234567", to))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void write(String path, String content) throws Exception {
+        Path file = repoRoot.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private String commit(String message) throws Exception {
+        gitRepositoryService.stageAll(repoRoot);
+        // Also stage deletions
+        git.add().addFilepattern(".").setUpdate(true).call();
+        gitRepositoryService.commit(repoRoot, message);
+        return gitRepositoryService.headCommit(repoRoot);
+    }
+}
@@ -0,0 +1,125 @@
+package huyphmnat.fdsa.repository.internal.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Per-write latency of a single-file API write (write, stage, commit) when every git call opens the
+ * repository, as before the handle cache, compared to leasing cached handles. The repository is packed
+ * first, so each open has pack indexes to load again.
+ * <p>
+ * Excluded from the default test run, see {@code test.excludedGroups} in the pom.
+ */
+@Tag("benchmark")
+class GitWriteLatencyBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(GitWriteLatencyBenchmarkTest.class);
+
+    private static final int SEED_FILES = 500;
+    private static final int WARMUP_WRITES = 10;
+    private static final int MEASURED_WRITES = 40;
+
+    @TempDir
+    private Path repoRoot;
+
+    private final GitRepositoryCache repositoryCache = new GitRepositoryCache(new SimpleMeterRegistry());
+
+    private final GitRepositoryService gitRepositoryService = new GitRepositoryService(repositoryCache);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        repositoryCache.init();
+        try (Git git = Git.init().setDirectory(repoRoot.toFile()).call()) {
+            for (int i = 0; i < SEED_FILES; i++) {
+                write("src/pkg" + (i % 20) + "/File" + i + ".java", "class File" + i + " { int value = " + i + "; }");
+            }
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("seed").setSign(false).call();
+            git.gc().call();
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        repositoryCache.close();
+    }
+
+    @Test
+    void testWriteLatency_CachedHandles_ComparedToOpeningPerCall() throws Exception {
+        Writer uncached = (path, content) -> {
+            write(path, content);
+            // The previous GitRepositoryService: one Git.open for staging and another for committing
+            try (Git git = Git.open(repoRoot.toFile())) {
+                git.add().addFilepattern(".").call();
+            }
+            try (Git git = Git.open(repoRoot.toFile())) {
+                if (!git.status().call().isClean()) {
+                    git.commit().setMessage("Add " + path).setSign(false).call();
+                }
+            }
+        };
+        Writer cached = (path, content) -> {
+            write(path, content);
+            gitRepositoryService.stageAll(repoRoot);
+            gitRepositoryService.commit(repoRoot, "Add " + path);
+        };
+
+        long[] uncachedNanos = measure("uncached", uncached);
+        long[] cachedNanos = measure("cached", cached);
+
+        log.info("Per-write latency over {} writes: Git.open per call p50={}us p95={}us, cached handles p50={}us p95={}us",
+                MEASURED_WRITES,
+                percentileMicros(uncachedNanos, 0.50), percentileMicros(uncachedNanos, 0.95),
+                percentileMicros(cachedNanos, 0.50), percentileMicros(cachedNanos, 0.95));
+
+        try (Git git = Git.open(repoRoot.toFile())) {
+            long commits = StreamSupport.stream(git.log().call().spliterator(), false).count();
+            assertThat(commits).isEqualTo(1 + 2L * (WARMUP_WRITES + MEASURED_WRITES));
+        }
+    }
+
+    private long[] measure(String label, Writer writer) throws Exception {
+        for (int i = 0; i < WARMUP_WRITES; i++) {
+            writer.write("bench/" + label + "/Warmup" + i + ".java", "class Warmup" + i + " {}");
+        }
+        long[] nanos = new long[MEASURED_WRITES];
+        for (int i = 0; i < MEASURED_WRITES; i++) {
+            long start = System.nanoTime();
+            writer.write("bench/" + label + "/Write" + i + ".java", "class Write" + i + " {}");
+            nanos[i] = System.nanoTime() - start;
+        }
+        return nanos;
+    }
+
+    private static long percentileMicros(long[] nanos, double percentile) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000;
+    }
+
+    private void write(String path, String content) throws Exception {
+        Path file = repoRoot.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        void write(String path, String content) throws Exception;
+    }
+}
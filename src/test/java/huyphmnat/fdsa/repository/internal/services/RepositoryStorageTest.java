@@ -0,0 +1,142 @@
+package huyphmnat.fdsa.repository.internal.services;
+
+import huyphmnat.fdsa.repository.dtos.Entry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RepositoryStorageTest {
+
+    @TempDir
+    private Path repoRoot;
+
+    private final GitRepositoryCache repositoryCache = new GitRepositoryCache(new SimpleMeterRegistry());
+
+    private final GitRepositoryService gitRepositoryService = new GitRepositoryService(repositoryCache);
+
+    private final GitTreeReader gitTreeReader = new GitTreeReader(repositoryCache);
+
+    private final RepositoryStorage repositoryStorage = new RepositoryStorage(gitRepositoryService, repositoryCache);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        repositoryCache.init();
+        ReflectionTestUtils.setField(repositoryStorage, "mode", "bare");
+        repositoryStorage.init();
+        Git.init().setDirectory(repoRoot.toFile()).setBare(true).call().close();
+    }
+
+    @AfterEach
+    void tearDown() {
+        repositoryCache.close();
+    }
+
+    @Test
+    void testBareStorage_FileAndFolderChanges_ShouldCommitWithoutWorkingTree() throws Exception {
+        assertThat(repositoryStorage.isBare()).isTrue();
+
+        commit("Create src", changes -> changes.createFolder("src"));
+        commit("Add App.java", changes -> changes.addFile("src/App.java", bytes("class App {}")));
+        commit("Update App.java", changes -> changes.updateFile("src/App.java", bytes("class App { int x; }")));
+
+        assertThat(read("src/App.java")).isEqualTo("class App { int x; }");
+        assertThat(gitTreeReader.listDirectory(repoRoot, null, "src"))
+                .extracting(Entry::getName)
+                .containsExactly("App.java");
+        assertThat(gitTreeReader.readFile(repoRoot, "HEAD~1", "src/App.java").content())
+                .isEqualTo(bytes("class App {}"));
+
+        commit("Delete App.java", changes -> changes.deleteFile("src/App.java"));
+        commit("Delete src", changes -> changes.deleteFolder("src"));
+
+        assertThat(gitTreeReader.listDirectory(repoRoot, null, "")).isEmpty();
+        assertThat(messages()).containsExactly(
+                "Delete src", "Delete App.java", "Update App.java", "Add App.java", "Create src");
+        try (Stream<Path> files = Files.list(repoRoot)) {
+            assertThat(files.map(path -> path.getFileName().toString())).doesNotContain("src");
+        }
+    }
+
+    @Test
+    void testBareStorage_FailedChange_ShouldKeepEarlierChangesOfChangeSet() throws Exception {
+        commit("Add A.java", changes -> changes.addFile("A.java", bytes("class A {}")));
+
+        try (RepositoryChangeSet changes = repositoryStorage.open(repoRoot)) {
+            changes.addFile("B.java", bytes("class B {}"));
+            assertThatThrownBy(() -> changes.addFile("A.java", bytes("class A2 {}")))
+                    .hasMessageContaining("File already exists");
+            assertThatThrownBy(() -> changes.updateFile("Missing.java", bytes("")))
+                    .hasMessageContaining("File not found");
+            assertThatThrownBy(() -> changes.addFile("A.java/Nested.java", bytes("")))
+                    .hasMessageContaining("Failed to add file");
+            changes.commit("Add B.java");
+        }
+
+        assertThat(read("A.java")).isEqualTo("class A {}");
+        assertThat(read("B.java")).isEqualTo("class B {}");
+        assertThat(messages()).containsExactly("Add B.java", "Add A.java");
+    }
+
+    @Test
+    void testBareStorage_ChangeLeavingTreeAsIs_ShouldNotCommit() throws Exception {
+        commit("Create src", changes -> changes.createFolder("src"));
+        commit("Create src again", changes -> changes.createFolder("src"));
+
+        assertThat(messages()).containsExactly("Create src");
+    }
+
+    @Test
+    void testOpen_RepositoryWithWorkingTree_ShouldWriteToWorkingTree(@TempDir Path workTreeRoot) throws Exception {
+        Git.init().setDirectory(workTreeRoot.toFile()).call().close();
+
+        try (RepositoryChangeSet changes = repositoryStorage.open(workTreeRoot)) {
+            assertThat(changes).isInstanceOf(WorkTreeChangeSet.class);
+            changes.addFile("README.md", bytes("# readme"));
+            changes.commit("Add README");
+        }
+
+        assertThat(Files.readString(workTreeRoot.resolve("README.md"))).isEqualTo("# readme");
+    }
+
+    private void commit(String message, ChangeConsumer change) throws Exception {
+        try (RepositoryChangeSet changes = repositoryStorage.open(repoRoot)) {
+            change.accept(changes);
+            changes.commit(message);
+        }
+    }
+
+    private String read(String path) {
+        return new String(gitTreeReader.readFile(repoRoot, null, path).content(), StandardCharsets.UTF_8);
+    }
+
+    private List<String> messages() throws Exception {
+        try (Git git = Git.open(repoRoot.toFile())) {
+            return StreamSupport.stream(git.log().call().spliterator(), false)
+                    .map(RevCommit::getFullMessage)
+                    .toList();
+        }
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    private interface ChangeConsumer {
+        void accept(RepositoryChangeSet changes) throws Exception;
+    }
+}
@@ -0,0 +1,229 @@
+package huyphmnat.fdsa.repository.internal.services;
+
+import huyphmnat.fdsa.repository.dtos.Entry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Stress test of concurrent writes to one repository, in both storage modes.
+ */
+class RepositoryWriteQueueTest {
+
+    private static final int THREADS = 16;
+    private static final int WRITES_PER_THREAD = 10;
+
+    @TempDir
+    private Path repoRoot;
+
+    private final GitRepositoryCache repositoryCache = new GitRepositoryCache(new SimpleMeterRegistry());
+
+    private final GitTreeReader gitTreeReader = new GitTreeReader(repositoryCache);
+
+    private final RepositoryStorage repositoryStorage =
+            new RepositoryStorage(new GitRepositoryService(repositoryCache), repositoryCache);
+
+    private final RepositoryWriteQueue writeQueue = new RepositoryWriteQueue(repositoryStorage);
+
+    private final ExecutorService callers = Executors.newFixedThreadPool(THREADS);
+
+    private void setUp(String storage) throws Exception {
+        repositoryCache.init();
+        ReflectionTestUtils.setField(repositoryStorage, "mode", storage);
+        repositoryStorage.init();
+        writeQueue.init();
+        Git.init().setDirectory(repoRoot.toFile()).setBare(repositoryStorage.isBare()).call().close();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        callers.shutdownNow();
+        writeQueue.shutdown();
+        repositoryCache.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"worktree", "bare"})
+    void testWrite_ConcurrentWritesToSameRepository_ShouldAllBeCommitted(String storage) throws Exception {
+        setUp(storage);
+
+        List<Future<?>> results = runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < WRITES_PER_THREAD; i++) {
+                String path = "t" + thread + "/File" + i + ".java";
+                byte[] content = bytes("class File" + i + " {}");
+                writeQueue.write(repoRoot, "Add " + path, changes -> changes.addFile(path, content));
+            }
+            return null;
+        });
+        for (Future<?> result : results) {
+            result.get();
+        }
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            assertThat(gitTreeReader.listDirectory(repoRoot, null, "t" + thread)).hasSize(WRITES_PER_THREAD);
+        }
+        // Writes that were pending together share a commit
+        assertThat(commitCount()).isBetween(1L, (long) THREADS * WRITES_PER_THREAD - 1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"worktree", "bare"})
+    void testWrite_ConflictingConcurrentWrites_ShouldFailOnlyTheLosers(String storage) throws Exception {
+        setUp(storage);
+
+        List<Future<?>> results = runConcurrently(THREADS, thread -> {
+            writeQueue.write(repoRoot, "Add Shared.java from " + thread,
+                    changes -> changes.addFile("Shared.java", bytes("class Shared" + thread + " {}")));
+            return null;
+        });
+
+        int succeeded = 0;
+        for (Future<?> result : results) {
+            try {
+                result.get();
+                succeeded++;
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).hasMessageContaining("File already exists");
+            }
+        }
+
+        assertThat(succeeded).isEqualTo(1);
+        assertThat(gitTreeReader.readFile(repoRoot, null, "Shared.java").content()).startsWith(bytes("class Shared"));
+        assertThat(commitCount()).isEqualTo(1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"worktree", "bare"})
+    void testRunExclusive_WriteSubmittedDuringTask_ShouldWaitForTask(String storage) throws Exception {
+        setUp(storage);
+        writeQueue.write(repoRoot, "Add A.java", changes -> changes.addFile("A.java", bytes("class A {}")));
+        CountDownLatch taskStarted = new CountDownLatch(1);
+        CountDownLatch releaseTask = new CountDownLatch(1);
+
+        Future<?> task = callers.submit(() -> writeQueue.runExclusive(repoRoot, () -> {
+            taskStarted.countDown();
+            try {
+                releaseTask.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        taskStarted.await();
+        Future<?> write = callers.submit(() ->
+                writeQueue.write(repoRoot, "Add B.java", changes -> changes.addFile("B.java", bytes("class B {}"))));
+
+        Thread.sleep(100);
+        assertThat(write).isNotDone();
+        assertThat(commitCount()).isEqualTo(1);
+
+        releaseTask.countDown();
+        task.get();
+        write.get();
+        assertThat(commitCount()).isEqualTo(2);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"worktree", "bare"})
+    void testWrite_WriteFailsHalfway_ShouldNotCommitItsLeftovers(String storage) throws Exception {
+        setUp(storage);
+        writeQueue.write(repoRoot, "Add A.java", changes -> changes.addFile("A.java", bytes("class A {}")));
+
+        assertThatThrownBy(() -> writeQueue.write(repoRoot, "Add B.java, then fail", changes -> {
+            changes.addFile("B.java", bytes("class B {}"));
+            throw new IllegalStateException("Disk failure");
+        })).hasMessageContaining("Disk failure");
+
+        // The next write commits only its own change
+        writeQueue.write(repoRoot, "Add C.java", changes -> changes.addFile("C.java", bytes("class C {}")));
+        assertThat(gitTreeReader.listDirectory(repoRoot, null, ""))
+                .extracting(Entry::getName)
+                .containsExactlyInAnyOrder("A.java", "C.java");
+        assertThat(commitCount()).isEqualTo(2);
+    }
+
+    @Test
+    void testWrite_WorkTreeCommitFails_ShouldRestoreWorkingTree() throws Exception {
+        setUp("worktree");
+        writeQueue.write(repoRoot, "Add A.java", changes -> changes.addFile("A.java", bytes("class A {}")));
+
+        // A held branch lock makes the commit fail after the changes were written and staged
+        Path branchLock;
+        try (Git git = Git.open(repoRoot.toFile())) {
+            branchLock = repoRoot.resolve(".git").resolve(git.getRepository().getFullBranch() + ".lock");
+        }
+        Files.createFile(branchLock);
+        try {
+            assertThatThrownBy(() -> writeQueue.write(repoRoot, "Add B.java, update A.java", changes -> {
+                changes.addFile("B.java", bytes("class B {}"));
+                changes.updateFile("A.java", bytes("class A2 {}"));
+            })).hasMessageContaining("Failed to commit changes");
+        } finally {
+            Files.delete(branchLock);
+        }
+
+        assertThat(repoRoot.resolve("B.java")).doesNotExist();
+        assertThat(repoRoot.resolve("A.java")).hasContent("class A {}");
+        try (Git git = Git.open(repoRoot.toFile())) {
+            assertThat(git.status().call().isClean()).isTrue();
+        }
+
+        // The next write commits only its own change
+        writeQueue.write(repoRoot, "Add C.java", changes -> changes.addFile("C.java", bytes("class C {}")));
+        assertThat(gitTreeReader.listDirectory(repoRoot, null, ""))
+                .extracting(Entry::getName)
+                .containsExactlyInAnyOrder("A.java", "C.java");
+        assertThat(commitCount()).isEqualTo(2);
+    }
+
+    /**
+     * Run {@code task} on {@code threads} threads, released at the same time
+     */
+    private List<Future<?>> runConcurrently(int threads, ThreadTask task) {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            int index = thread;
+            results.add(callers.submit((Callable<Void>) () -> {
+                start.await();
+                return task.run(index);
+            }));
+        }
+        start.countDown();
+        return results;
+    }
+
+    private long commitCount() throws Exception {
+        try (Git git = Git.open(repoRoot.toFile())) {
+            return StreamSupport.stream(git.log().call().spliterator(), false).count();
+        }
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    private interface ThreadTask {
+        Void run(int thread) throws Exception;
+    }
+}
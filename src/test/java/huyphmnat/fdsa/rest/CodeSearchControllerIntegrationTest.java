@@ -14,6 +14,8 @@ import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
 import java.time.Instant;
 import java.util.Arrays;
@@ -21,6 +23,7 @@ import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -83,9 +86,19 @@ class CodeSearchControllerIntegrationTest extends OpenSearchIntegrationTest {
         indexingService.refreshIndexes();
     }
 
+    /**
+     * Search endpoints complete asynchronously, so dispatch the async result before asserting on it
+     */
+    private ResultActions performSearch(MockHttpServletRequestBuilder requestBuilder) throws Exception {
+        MvcResult started = mockMvc.perform(requestBuilder)
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        return mockMvc.perform(asyncDispatch(started));
+    }
+
     @Test
     void testSearchCodeGet_WithQuery_ShouldReturn200() throws Exception {
-        mockMvc.perform(get("/api/search/code")
+        performSearch(get("/api/search/code")
                 .param("q", "Hello World")
                 .param("page", "0")
                 .param("size", "10"))
@@ -101,7 +114,7 @@ class CodeSearchControllerIntegrationTest extends OpenSearchIntegrationTest {
 
     @Test
     void testSearchCodeGet_WithFilters_ShouldReturnFilteredResults() throws Exception {
-        MvcResult result = mockMvc.perform(get("/api/search/code")
+        MvcResult result = performSearch(get("/api/search/code")
                 .param("q", "class")
                 .param("language", "Java")
                 .param("page", "0")
@@ -124,7 +137,7 @@ class CodeSearchControllerIntegrationTest extends OpenSearchIntegrationTest {
 
     @Test
     void testSearchCodeGet_WithHighlighting_ShouldReturnHighlights() throws Exception {
-        mockMvc.perform(get("/api/search/code")
+        performSearch(get("/api/search/code")
                 .param("q", "Hello World")
                 .param("highlight", "content,file_name")
                 .param("page", "0")
@@ -135,7 +148,7 @@ class CodeSearchControllerIntegrationTest extends OpenSearchIntegrationTest {
 
     @Test
     void testSearchCodeGet_WithRepositoryIdentifier_ShouldFilterByRepo() throws Exception {
-        MvcResult result = mockMvc.perform(get("/api/search/code")
+        MvcResult result = performSearch(get("/api/search/code")
                 .param("q", "class")
                 .param("repositoryIdentifier", testRepositoryIdentifier)
                 .param("page", "0")
@@ -154,7 +167,7 @@ class CodeSearchControllerIntegrationTest extends OpenSearchIntegrationTest {
 
     @Test
     void testSearchCodeGet_WithFilePathPattern_ShouldMatchPattern() throws Exception {
-        mockMvc.perform(get("/api/search/code")
+        performSearch(get("/api/search/code")
                 .param("q", "class")
                 .param("filePathPattern", "*/main/*")
                 .param("page", "0")
@@ -165,7 +178,7 @@ class CodeSearchControllerIntegrationTest extends OpenSearchIntegrationTest {
 
     @Test
     void testSearchCodeGet_WithPagination_ShouldRespectPageSize() throws Exception {
-        MvcResult result = mockMvc.perform(get("/api/search/code")
+        MvcResult result = performSearch(get("/api/search/code")
                 .param("q", "class")
                 .param("page", "0")
                 .param("size", "1"))
@@ -189,7 +202,7 @@ class CodeSearchControllerIntegrationTest extends OpenSearchIntegrationTest {
             .size(10)
             .build();
 
-        mockMvc.perform(post("/api/search/code")
+        performSearch(post("/api/search/code")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request)))
             .andExpect(status().isOk())
@@ -211,7 +224,7 @@ class CodeSearchControllerIntegrationTest extends OpenSearchIntegrationTest {
             .highlightFields(List.of("content"))
             .build();
 
-        MvcResult result = mockMvc.perform(post("/api/search/code")
+        MvcResult result = performSearch(post("/api/search/code")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request)))
             .andExpect(status().isOk())
@@ -233,7 +246,7 @@ class CodeSearchControllerIntegrationTest extends OpenSearchIntegrationTest {
     @Test
     void testSearchCodeGet_WithNoQuery_ShouldStillReturnResults() throws Exception {
         // Some search implementations allow empty queries to return all documents
-        mockMvc.perform(get("/api/search/code")
+        performSearch(get("/api/search/code")
                 .param("q", "")
                 .param("page", "0")
                 .param("size", "10"))
@@ -243,7 +256,7 @@ class CodeSearchControllerIntegrationTest extends OpenSearchIntegrationTest {
 
     @Test
     void testSearchCodeGet_WithInvalidPage_ShouldReturn200WithEmptyResults() throws Exception {
-        mockMvc.perform(get("/api/search/code")
+        performSearch(get("/api/search/code")
                 .param("q", "class")
                 .param("page", "999")
                 .param("size", "10"))
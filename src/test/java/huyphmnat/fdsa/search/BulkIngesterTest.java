@@ -0,0 +1,196 @@
+package huyphmnat.fdsa.search;
+
+import huyphmnat.fdsa.search.dtos.CodeFileDocument;
+import huyphmnat.fdsa.search.internal.entites.BulkDeadLetterEntity;
+import huyphmnat.fdsa.search.internal.repositories.BulkDeadLetterRepository;
+import huyphmnat.fdsa.search.internal.services.BulkIndexResult;
+import huyphmnat.fdsa.search.internal.services.BulkIngester;
+import huyphmnat.fdsa.search.internal.services.IngestionExecutor;
+import huyphmnat.fdsa.search.internal.services.OpenSearchIndexingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class BulkIngesterTest {
+
+    private final UUID repositoryId = UUID.randomUUID();
+    private final List<List<String>> requests = Collections.synchronizedList(new ArrayList<>());
+    private final List<BulkDeadLetterEntity> deadLetters = Collections.synchronizedList(new ArrayList<>());
+
+    private IngestionExecutor ingestionExecutor;
+    private SimpleMeterRegistry meterRegistry;
+    private BulkIngester bulkIngester;
+    private volatile Function<List<CodeFileDocument>, BulkIndexResult> cluster;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        OpenSearchIndexingService indexingService = mock(OpenSearchIndexingService.class);
+        doAnswer(invocation -> {
+            List<CodeFileDocument> documents = invocation.getArgument(0);
+            requests.add(documents.stream().map(CodeFileDocument::getFilePath).toList());
+            try {
+                return CompletableFuture.completedFuture(cluster.apply(documents));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }).when(indexingService).bulkIndexCodeFilesAsync(any());
+
+        BulkDeadLetterRepository deadLetterRepository = mock(BulkDeadLetterRepository.class);
+        doAnswer(invocation -> {
+            ((Iterable<BulkDeadLetterEntity>) invocation.getArgument(0)).forEach(deadLetters::add);
+            return List.of();
+        }).when(deadLetterRepository).saveAll(any());
+
+        ingestionExecutor = new IngestionExecutor();
+        ingestionExecutor.init();
+
+        meterRegistry = new SimpleMeterRegistry();
+        bulkIngester = new BulkIngester(indexingService, deadLetterRepository, meterRegistry, ingestionExecutor);
+        ReflectionTestUtils.setField(bulkIngester, "maxDocuments", 10);
+        ReflectionTestUtils.setField(bulkIngester, "maxBytes", 64 * 1024L);
+        ReflectionTestUtils.setField(bulkIngester, "flushIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(bulkIngester, "maxInFlight", 2);
+        ReflectionTestUtils.setField(bulkIngester, "maxRetries", 3);
+        ReflectionTestUtils.setField(bulkIngester, "initialBackoffMs", 1L);
+        ReflectionTestUtils.setField(bulkIngester, "maxBackoffMs", 5L);
+        bulkIngester.init();
+
+        cluster = documents -> BulkIndexResult.success(documents.size());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        ingestionExecutor.shutdown();
+    }
+
+    @Test
+    void testAdd_LargeDocuments_ShouldFlushOnPayloadSize() throws Exception {
+        BulkIngester.Session session = bulkIngester.openSession();
+        for (int i = 0; i < 6; i++) {
+            session.add(document("Large" + i + ".java", "x".repeat(20 * 1024)));
+        }
+        session.close();
+
+        assertThat(requests).hasSizeGreaterThan(1);
+        assertThat(requests.stream().mapToInt(List::size).sum()).isEqualTo(6);
+        assertThat(session.getIndexed()).isEqualTo(6);
+    }
+
+    @Test
+    void testFlush_TooManyRequests_ShouldRetryOnlyRejectedItems() throws Exception {
+        // Given - the cluster rejects B once
+        List<String> rejectedOnce = Collections.synchronizedList(new ArrayList<>(List.of("B.java")));
+        cluster = documents -> rejectItems(documents, rejectedOnce, 429, "es_rejected_execution_exception");
+
+        // When
+        BulkIngester.Session session = bulkIngester.openSession();
+        for (String name : List.of("A.java", "B.java", "C.java")) {
+            session.add(document(name, "class X {}"));
+        }
+        session.close();
+
+        // Then
+        assertThat(requests).containsExactly(List.of("A.java", "B.java", "C.java"), List.of("B.java"));
+        assertThat(session.getIndexed()).isEqualTo(3);
+        assertThat(deadLetters).isEmpty();
+        assertThat(meterRegistry.get("search.ingestion.bulk.documents").tag("result", "retried").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void testFlush_MappingError_ShouldDeadLetterWithoutRetry() throws Exception {
+        cluster = documents -> rejectItems(documents, new ArrayList<>(List.of("Bad.java")), 400, "mapper_parsing_exception");
+
+        BulkIngester.Session session = bulkIngester.openSession();
+        session.add(document("Good.java", "class Good {}"));
+        session.add(document("Bad.java", "class Bad {}"));
+        session.close();
+
+        assertThat(requests).hasSize(1);
+        assertThat(session.getIndexed()).isEqualTo(1);
+        assertThat(session.getDeadLettered()).isEqualTo(1);
+        assertThat(deadLetters).singleElement().satisfies(deadLetter -> {
+            assertThat(deadLetter.getFilePath()).isEqualTo("Bad.java");
+            assertThat(deadLetter.getRepositoryId()).isEqualTo(repositoryId);
+            assertThat(deadLetter.getStatus()).isEqualTo(400);
+            assertThat(deadLetter.getReason()).isEqualTo("mapper_parsing_exception");
+            assertThat(deadLetter.getAttempts()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void testFlush_PersistentOverload_ShouldDeadLetterAfterMaxRetries() throws Exception {
+        cluster = documents -> new BulkIndexResult(0, documents.stream()
+                .map(document -> new BulkIndexResult.ItemFailure(document, 429, "es_rejected_execution_exception"))
+                .toList());
+
+        BulkIngester.Session session = bulkIngester.openSession();
+        session.add(document("Hot.java", "class Hot {}"));
+        session.close();
+
+        assertThat(requests).hasSize(4);
+        assertThat(deadLetters).singleElement()
+                .satisfies(deadLetter -> assertThat(deadLetter.getAttempts()).isEqualTo(4));
+    }
+
+    @Test
+    void testFlush_RequestFailure_ShouldRetryWholeBatch() throws Exception {
+        // Given - the first request fails without a response
+        AtomicBoolean failed = new AtomicBoolean();
+        cluster = documents -> {
+            if (failed.compareAndSet(false, true)) {
+                throw new RuntimeException("Connection reset");
+            }
+            return BulkIndexResult.success(documents.size());
+        };
+
+        BulkIngester.Session session = bulkIngester.openSession();
+        session.add(document("A.java", "class A {}"));
+        session.add(document("B.java", "class B {}"));
+        session.close();
+
+        assertThat(requests).hasSize(2);
+        assertThat(session.getIndexed()).isEqualTo(2);
+        assertThat(deadLetters).isEmpty();
+    }
+
+    private BulkIndexResult rejectItems(List<CodeFileDocument> documents, List<String> rejected, int status, String reason) {
+        List<BulkIndexResult.ItemFailure> failures = new ArrayList<>();
+        for (CodeFileDocument document : documents) {
+            if (rejected.remove(document.getFilePath())) {
+                failures.add(new BulkIndexResult.ItemFailure(document, status, reason));
+            }
+        }
+        return new BulkIndexResult(documents.size() - failures.size(), failures);
+    }
+
+    private CodeFileDocument document(String filePath, String content) {
+        return CodeFileDocument.builder()
+                .id(UUID.randomUUID())
+                .repositoryId(repositoryId)
+                .repositoryIdentifier("test-owner/bulk-repo")
+                .filePath(filePath)
+                .fileName(filePath)
+                .content(content)
+                .createdAt(Instant.now())
+                .updatedAt(Instant.now())
+                .build();
+    }
+}
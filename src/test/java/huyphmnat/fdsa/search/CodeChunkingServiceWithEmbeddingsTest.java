@@ -138,5 +138,33 @@ class CodeChunkingServiceWithEmbeddingsTest {
             }
         }
     }
-}
 
+    @Test
+    void testChunkCodeWithMetadata_WithPreviousChunks_ShouldReuseUnchangedEmbeddings() {
+        StringBuilder largeCode = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            largeCode.append("public class Class").append(i).append(" {\n");
+            largeCode.append("    private String field").append(i).append(";\n");
+            largeCode.append("}\n\n");
+        }
+        String original = largeCode.toString();
+
+        // Mark previous embeddings so reuse is observable
+        List<Float> sentinel = List.of(42f);
+        List<CodeFileDocument.CodeChunk> previousChunks = chunkingService.chunkCodeWithMetadata(original).stream()
+                .peek(chunk -> chunk.setEmbedding(sentinel))
+                .toList();
+        assertThat(previousChunks.size()).isGreaterThan(1);
+        assertThat(previousChunks).allSatisfy(chunk -> assertThat(chunk.getContentHash()).isNotBlank());
+
+        String updated = original + "public class Appended { }\n";
+        List<CodeFileDocument.CodeChunk> chunks = chunkingService.chunkCodeWithMetadata(updated, previousChunks);
+
+        assertThat(chunks).hasSizeGreaterThanOrEqualTo(previousChunks.size());
+        // Every chunk but the last one is unchanged and keeps its previous embedding
+        for (int i = 0; i < chunks.size() - 1; i++) {
+            assertThat(chunks.get(i).getEmbedding()).isSameAs(sentinel);
+        }
+        assertThat(chunks.get(chunks.size() - 1).getEmbedding()).hasSize(1536);
+    }
+}
@@ -0,0 +1,66 @@
+package huyphmnat.fdsa.search;
+
+import huyphmnat.fdsa.search.dtos.CodeSearchRequest;
+import huyphmnat.fdsa.search.internal.services.CodeSearchKeyGenerator;
+import huyphmnat.fdsa.search.internal.services.IndexGenerations;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CodeSearchKeyGeneratorTest {
+
+    private IndexGenerations indexGenerations;
+    private CodeSearchKeyGenerator keyGenerator;
+
+    @BeforeEach
+    void setUp() {
+        indexGenerations = new IndexGenerations();
+        ReflectionTestUtils.setField(indexGenerations, "refreshDelayMs", 0L);
+        keyGenerator = new CodeSearchKeyGenerator(indexGenerations);
+    }
+
+    @Test
+    void testKeyOf_EquivalentRequests_ShouldShareKey() {
+        CodeSearchRequest first = CodeSearchRequest.builder()
+            .query("  Parse   JSON ")
+            .repositoryIdentifier("owner/repo")
+            .highlightFields(List.of("content", "file_name"))
+            .build();
+        CodeSearchRequest second = CodeSearchRequest.builder()
+            .query("parse json")
+            .repositoryIdentifier("owner/repo")
+            .language("")
+            .highlightFields(List.of("file_name", "content"))
+            .build();
+
+        assertThat(keyGenerator.keyOf(first)).isEqualTo(keyGenerator.keyOf(second));
+    }
+
+    @Test
+    void testKeyOf_DifferentPage_ShouldNotShareKey() {
+        CodeSearchRequest first = CodeSearchRequest.builder().query("parse json").page(0).build();
+        CodeSearchRequest second = CodeSearchRequest.builder().query("parse json").page(1).build();
+
+        assertThat(keyGenerator.keyOf(first)).isNotEqualTo(keyGenerator.keyOf(second));
+    }
+
+    @Test
+    void testBump_ShouldOnlyInvalidateAffectedRepositoryAndGlobalSearches() {
+        CodeSearchRequest repoA = CodeSearchRequest.builder().query("q").repositoryIdentifier("owner/a").build();
+        CodeSearchRequest repoB = CodeSearchRequest.builder().query("q").repositoryIdentifier("owner/b").build();
+        CodeSearchRequest global = CodeSearchRequest.builder().query("q").build();
+        Object keyA = keyGenerator.keyOf(repoA);
+        Object keyB = keyGenerator.keyOf(repoB);
+        Object keyGlobal = keyGenerator.keyOf(global);
+
+        indexGenerations.bump("owner/a");
+
+        assertThat(keyGenerator.keyOf(repoA)).isNotEqualTo(keyA);
+        assertThat(keyGenerator.keyOf(repoB)).isEqualTo(keyB);
+        assertThat(keyGenerator.keyOf(global)).isNotEqualTo(keyGlobal);
+    }
+}
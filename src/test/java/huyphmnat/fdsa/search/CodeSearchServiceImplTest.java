@@ -1,21 +1,28 @@
 package huyphmnat.fdsa.search;
 
+import huyphmnat.fdsa.base.MockEmbeddingModel;
 import huyphmnat.fdsa.base.OpenSearchIntegrationTest;
+import huyphmnat.fdsa.search.dtos.CodeFileContent;
 import huyphmnat.fdsa.search.dtos.CodeFileDocument;
 import huyphmnat.fdsa.search.dtos.CodeSearchRequest;
 import huyphmnat.fdsa.search.dtos.CodeSearchResponse;
 import huyphmnat.fdsa.search.dtos.CodeSearchResult;
+import huyphmnat.fdsa.search.exceptions.CodeFileNotFoundException;
 import huyphmnat.fdsa.search.interfaces.CodeSearchService;
+import huyphmnat.fdsa.search.internal.services.IndexGenerations;
 import huyphmnat.fdsa.search.internal.services.OpenSearchIndexingService;
 import net.datafaker.Faker;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.*;
 
@@ -27,6 +34,9 @@ class CodeSearchServiceImplTest extends OpenSearchIntegrationTest {
     @Autowired
     private OpenSearchIndexingService indexingService;
 
+    @Autowired
+    private IndexGenerations indexGenerations;
+
     private final Faker faker = new Faker();
 
     private UUID testRepositoryId;
@@ -50,6 +60,9 @@ class CodeSearchServiceImplTest extends OpenSearchIntegrationTest {
         // Index test documents
         indexTestDocuments();
         indexingService.refreshIndexes();
+        // Documents are indexed directly here, so do what the indexing event listeners would
+        indexGenerations.bump(testRepositoryIdentifier);
+        indexGenerations.bump(otherRepositoryIdentifier);
     }
 
     private void indexTestDocuments() {
@@ -203,6 +216,101 @@ class CodeSearchServiceImplTest extends OpenSearchIntegrationTest {
         assertThat(response.getTookMs()).isGreaterThan(0);
     }
 
+    @Test
+    void testSearchCodeAsync_WithSimpleQuery_ShouldMatchBlockingSearch() throws Exception {
+        // Given
+        CodeSearchRequest request = CodeSearchRequest.builder()
+            .query("Hello World")
+            .page(0)
+            .size(10)
+            .build();
+
+        // When
+        CodeSearchResponse response = codeSearchService.searchCodeAsync(request).get(30, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(response).isNotNull();
+        assertThat(response.getTotalHits()).isGreaterThan(0);
+        assertThat(response.getResults()).isNotEmpty();
+        assertThat(response.getPage()).isEqualTo(0);
+    }
+
+    @Test
+    void testSearchCode_EmbeddingMissesDeadline_ShouldStillReturnKeywordResults() {
+        // Given - the embedding stage can never make its deadline
+        Object service = AopTestUtils.getTargetObject(codeSearchService);
+        ReflectionTestUtils.setField(service, "embeddingDeadlineMs", 0L);
+        ReflectionTestUtils.setField(service, "speculativeKeywordSearch", true);
+
+        CodeSearchRequest request = CodeSearchRequest.builder()
+            .query("Hello")
+            .repositoryIdentifier(testRepositoryIdentifier)
+            .page(0)
+            .size(10)
+            .build();
+
+        try {
+            // When
+            CodeSearchResponse response = codeSearchService.searchCode(request);
+
+            // Then
+            assertThat(response.getTotalHits()).isGreaterThan(0);
+            response.getResults().forEach(result ->
+                assertThat(result.getRepositoryIdentifier()).isEqualTo(testRepositoryIdentifier)
+            );
+        } finally {
+            ReflectionTestUtils.setField(service, "embeddingDeadlineMs", 500L);
+            ReflectionTestUtils.setField(service, "speculativeKeywordSearch", false);
+        }
+    }
+
+    @Test
+    void testSearchCode_EmbeddingMissesDeadline_ShouldNotCacheDegradedResponse() {
+        // Given - the first search misses the embedding deadline
+        Object service = AopTestUtils.getTargetObject(codeSearchService);
+        CodeSearchRequest request = CodeSearchRequest.builder()
+            .query("degraded " + UUID.randomUUID())
+            .repositoryIdentifier(testRepositoryIdentifier)
+            .page(0)
+            .size(10)
+            .build();
+
+        ReflectionTestUtils.setField(service, "embeddingDeadlineMs", 0L);
+        CodeSearchResponse degraded;
+        try {
+            degraded = codeSearchService.searchCode(request);
+        } finally {
+            ReflectionTestUtils.setField(service, "embeddingDeadlineMs", 500L);
+        }
+
+        // When - the same search is repeated once the embedding is fast again
+        CodeSearchResponse repeated = codeSearchService.searchCode(request);
+
+        // Then - it runs again instead of being served the degraded response from the cache
+        assertThat(degraded.isDegraded()).isTrue();
+        assertThat(repeated.isDegraded()).isFalse();
+    }
+
+    @Test
+    void testSearchCode_WithDebug_ShouldReturnStageTimings() {
+        // Given
+        CodeSearchRequest request = CodeSearchRequest.builder()
+            .query("Hello World")
+            .page(0)
+            .size(10)
+            .debug(true)
+            .build();
+
+        // When
+        CodeSearchResponse response = codeSearchService.searchCode(request);
+        CodeSearchResponse withoutDebug = codeSearchService.searchCode(request.toBuilder().debug(false).build());
+
+        // Then
+        assertThat(response.getTimingsMs()).containsKeys("opensearch", "mapping", "total");
+        assertThat(response.getTimingsMs().get("total")).isGreaterThanOrEqualTo(response.getTimingsMs().get("opensearch"));
+        assertThat(withoutDebug.getTimingsMs()).isNull();
+    }
+
     @Test
     void testSearchCode_WithLanguageFilter_ShouldReturnOnlyMatchingLanguage() {
         // Given
@@ -218,12 +326,31 @@ class CodeSearchServiceImplTest extends OpenSearchIntegrationTest {
 
         // Then
         assertThat(response).isNotNull();
-//        assertThat(response.getTotalHits()).isGreaterThan(0); // At least some Python files
+        assertThat(response.getTotalHits()).isGreaterThan(0); // At least some Python files
         response.getResults().forEach(result ->
             assertThat(result.getLanguage()).isEqualTo("Python")
         );
     }
 
+    @Test
+    void testSearchCode_WithRepositoryFilter_ShouldFillPageFromRepositoryOnly() {
+        // Given
+        CodeSearchRequest request = CodeSearchRequest.builder()
+            .query("Hello")
+            .repositoryIdentifier(otherRepositoryIdentifier)
+            .page(0)
+            .size(20)
+            .build();
+
+        // When
+        CodeSearchResponse response = codeSearchService.searchCode(request);
+
+        // Then - filters are part of the query, so the page is filled from the repository alone
+        assertThat(response.getTotalHits()).isGreaterThan(0);
+        assertThat(response.getResults()).hasSize((int) Math.min(20, response.getTotalHits()))
+            .allSatisfy(result -> assertThat(result.getRepositoryIdentifier()).isEqualTo(otherRepositoryIdentifier));
+    }
+
     @Test
     void testSearchCode_WithFileExtensionFilter_ShouldReturnOnlyMatchingExtension() {
         // Given
@@ -358,6 +485,7 @@ class CodeSearchServiceImplTest extends OpenSearchIntegrationTest {
             .query("class")
             .page(0)
             .size(10)
+            .includeContent(true)
             .build();
 
 
@@ -380,4 +508,290 @@ class CodeSearchServiceImplTest extends OpenSearchIntegrationTest {
         assertThat(result.getSize()).isNotNull();
         assertThat(result.getScore()).isNotNull();
     }
+
+    @Test
+    void testSearchCode_ByDefault_ShouldLeaveOutContent() {
+        // Given
+        CodeSearchRequest request = CodeSearchRequest.builder()
+            .query("class")
+            .page(0)
+            .size(10)
+            .build();
+
+        // When
+        CodeSearchResponse response = codeSearchService.searchCode(request);
+
+        // Then
+        assertThat(response.getResults()).isNotEmpty().allSatisfy(result -> {
+            assertThat(result.getFilePath()).isNotNull();
+            assertThat(result.getContent()).isNull();
+        });
+    }
+
+    @Test
+    void testGetFileContent_ForSearchResult_ShouldReturnFullContent() {
+        // Given
+        CodeSearchResult result = codeSearchService.searchCode(CodeSearchRequest.builder()
+            .query("class")
+            .page(0)
+            .size(1)
+            .build()).getResults().get(0);
+
+        // When
+        CodeFileContent content = codeSearchService.getFileContent(result.getId());
+
+        // Then
+        assertThat(content.getId()).isEqualTo(result.getId());
+        assertThat(content.getFilePath()).isEqualTo(result.getFilePath());
+        assertThat(content.getContent()).isNotBlank();
+    }
+
+    @Test
+    void testGetFileContent_UnknownId_ShouldThrowNotFound() {
+        assertThatThrownBy(() -> codeSearchService.getFileContent(UUID.randomUUID()))
+            .isInstanceOf(CodeFileNotFoundException.class);
+    }
+
+    @Test
+    void testSearchCode_ChunkVectorMatch_ShouldReturnMatchingSectionWithLineRange() {
+        // Given - a large file whose 8th chunk is semantically closest to the query; no keyword overlap
+        String query = "lookup account by mail address";
+        String repositoryIdentifier = "chunk-owner/chunk-repo";
+        MockEmbeddingModel embeddings = new MockEmbeddingModel();
+
+        List<CodeFileDocument.CodeChunk> chunks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            String chunkContent = i == 7 ? "Optional<Customer> byEmail(String e) { ... }" : "void step" + i + "() { }";
+            chunks.add(CodeFileDocument.CodeChunk.builder()
+                .index(i)
+                .content(chunkContent)
+                .startLine(i * 40 + 1)
+                .endLine(i * 40 + 40)
+                .embedding(toList(i == 7 ? embeddings.embed(query) : embeddings.embed(chunkContent)))
+                .build());
+        }
+        UUID fileId = UUID.randomUUID();
+        indexingService.indexCodeFile(CodeFileDocument.builder()
+            .id(fileId)
+            .repositoryId(UUID.randomUUID())
+            .repositoryIdentifier(repositoryIdentifier)
+            .filePath("src/main/java/AccountService.java")
+            .fileName("AccountService.java")
+            .fileExtension("java")
+            .language("Java")
+            .content("class AccountService { }")
+            .codeChunks(chunks)
+            .createdAt(Instant.now())
+            .updatedAt(Instant.now())
+            .build());
+        indexingService.refreshIndexes();
+
+        // When
+        CodeSearchResponse response = codeSearchService.searchCode(CodeSearchRequest.builder()
+            .query(query)
+            .repositoryIdentifier(repositoryIdentifier)
+            .page(0)
+            .size(10)
+            .build());
+
+        // Then
+        assertThat(response.getResults()).singleElement().satisfies(result -> {
+            assertThat(result.getId()).isEqualTo(fileId);
+            assertThat(result.getMatchedChunks())
+                .anySatisfy(chunk -> {
+                    assertThat(chunk.getIndex()).isEqualTo(7);
+                    assertThat(chunk.getStartLine()).isEqualTo(281);
+                    assertThat(chunk.getEndLine()).isEqualTo(320);
+                })
+                .allSatisfy(chunk -> assertThat(chunk.getContent()).isNotNull());
+        });
+    }
+
+    @Test
+    void testSearchCode_ChunkVectorMatchOutsideGlobalTopK_ShouldStillFindFilteredFile() {
+        // Given - other repositories hold more chunks closer to the query than the k nearest chunks overall
+        String query = "sum the totals of an invoice";
+        String repositoryIdentifier = "filtered-owner/filtered-repo";
+        MockEmbeddingModel embeddings = new MockEmbeddingModel();
+        List<Float> queryVector = toList(embeddings.embed(query));
+
+        for (int i = 0; i < 100; i++) {
+            indexingService.indexCodeFile(CodeFileDocument.builder()
+                .id(UUID.randomUUID())
+                .repositoryId(UUID.randomUUID())
+                .repositoryIdentifier("decoy-owner/decoy-repo-" + i)
+                .filePath("src/Decoy" + i + ".java")
+                .fileName("Decoy" + i + ".java")
+                .fileExtension("java")
+                .language("Java")
+                .content("class Decoy" + i + " { }")
+                .codeChunks(List.of(CodeFileDocument.CodeChunk.builder()
+                    .index(0)
+                    .content("class Decoy" + i + " { }")
+                    .startLine(1)
+                    .endLine(1)
+                    .embedding(queryVector)
+                    .build()))
+                .createdAt(Instant.now())
+                .updatedAt(Instant.now())
+                .build());
+        }
+        String chunkContent = "BigDecimal total(List<Line> lines) { ... }";
+        UUID fileId = UUID.randomUUID();
+        indexingService.indexCodeFile(CodeFileDocument.builder()
+            .id(fileId)
+            .repositoryId(UUID.randomUUID())
+            .repositoryIdentifier(repositoryIdentifier)
+            .filePath("src/main/java/Billing.java")
+            .fileName("Billing.java")
+            .fileExtension("java")
+            .language("Java")
+            .content("class Billing { }")
+            .codeChunks(List.of(CodeFileDocument.CodeChunk.builder()
+                .index(0)
+                .content(chunkContent)
+                .startLine(1)
+                .endLine(40)
+                .embedding(toList(embeddings.embed(chunkContent)))
+                .build()))
+            .createdAt(Instant.now())
+            .updatedAt(Instant.now())
+            .build());
+        indexingService.refreshIndexes();
+
+        // When - k is 10 * chunkKnnKFactor, far fewer than the closer chunks of other repositories
+        CodeSearchResponse response = codeSearchService.searchCode(CodeSearchRequest.builder()
+            .query(query)
+            .repositoryIdentifier(repositoryIdentifier)
+            .page(0)
+            .size(10)
+            .build());
+
+        // Then
+        assertThat(response.getResults()).singleElement().satisfies(result -> {
+            assertThat(result.getId()).isEqualTo(fileId);
+            assertThat(result.getMatchedChunks()).anySatisfy(chunk -> assertThat(chunk.getIndex()).isZero());
+        });
+    }
+
+    @Test
+    void testSearchCode_IdentifierParts_ShouldMatchCamelCaseIdentifier() {
+        // Given - the words only occur inside a camelCase identifier
+        String repositoryIdentifier = "identifier-owner/identifier-repo";
+        UUID fileId = UUID.randomUUID();
+        indexingService.indexCodeFile(CodeFileDocument.builder()
+            .id(fileId)
+            .repositoryId(UUID.randomUUID())
+            .repositoryIdentifier(repositoryIdentifier)
+            .filePath("src/main/java/AccountLookup.java")
+            .fileName("AccountLookup.java")
+            .fileExtension("java")
+            .language("Java")
+            .content("return accountRepository.findByEmailAddress(addr);")
+            .createdAt(Instant.now())
+            .updatedAt(Instant.now())
+            .build());
+        indexingService.refreshIndexes();
+
+        // When
+        CodeSearchResponse response = codeSearchService.searchCode(CodeSearchRequest.builder()
+            .query("email address")
+            .repositoryIdentifier(repositoryIdentifier)
+            .highlightFields(List.of("content"))
+            .page(0)
+            .size(10)
+            .build());
+
+        // Then - highlights only come from the keyword match, not from the vector match
+        assertThat(response.getResults()).singleElement().satisfies(result -> {
+            assertThat(result.getId()).isEqualTo(fileId);
+            assertThat(result.getHighlights()).isNotEmpty();
+        });
+    }
+
+    @Test
+    void testSearchCode_WithCursor_ShouldPageWithoutDuplicates() {
+        // Given
+        CodeSearchRequest firstPage = CodeSearchRequest.builder()
+            .query("class")
+            .repositoryIdentifier(testRepositoryIdentifier)
+            .size(50)
+            .useCursor(true)
+            .build();
+
+        // When - read three pages
+        List<UUID> seen = new ArrayList<>();
+        CodeSearchResponse response = codeSearchService.searchCode(firstPage);
+        for (int page = 0; page < 3; page++) {
+            assertThat(response.getPage()).isEqualTo(page);
+            assertThat(response.getResults()).hasSize(50);
+            response.getResults().forEach(result -> seen.add(result.getId()));
+            assertThat(response.getNextCursor()).isNotNull();
+
+            response = codeSearchService.searchCode(firstPage.toBuilder()
+                .useCursor(false)
+                .cursor(response.getNextCursor())
+                .build());
+        }
+
+        // Then
+        assertThat(seen).hasSize(150).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void testSearchCode_WithCursor_DeadlinesMissedOnLaterPages_ShouldKeepTheFirstPagesQuery() {
+        // Given - the first page runs the hybrid query
+        CodeSearchRequest firstPage = CodeSearchRequest.builder()
+            .query("class")
+            .repositoryIdentifier(testRepositoryIdentifier)
+            .size(50)
+            .useCursor(true)
+            .build();
+        CodeSearchResponse response = codeSearchService.searchCode(firstPage);
+        List<UUID> seen = new ArrayList<>();
+        response.getResults().forEach(result -> seen.add(result.getId()));
+
+        // When - later pages would miss every fan-out deadline
+        Object service = AopTestUtils.getTargetObject(codeSearchService);
+        ReflectionTestUtils.setField(service, "embeddingDeadlineMs", 0L);
+        ReflectionTestUtils.setField(service, "rewriteDeadlineMs", 0L);
+        ReflectionTestUtils.setField(service, "speculativeKeywordSearch", true);
+        try {
+            for (int page = 1; page < 3; page++) {
+                response = codeSearchService.searchCode(firstPage.toBuilder()
+                    .useCursor(false)
+                    .cursor(response.getNextCursor())
+                    .build());
+                assertThat(response.getPage()).isEqualTo(page);
+                assertThat(response.getResults()).hasSize(50);
+                response.getResults().forEach(result -> seen.add(result.getId()));
+            }
+        } finally {
+            ReflectionTestUtils.setField(service, "embeddingDeadlineMs", 500L);
+            ReflectionTestUtils.setField(service, "rewriteDeadlineMs", 500L);
+            ReflectionTestUtils.setField(service, "speculativeKeywordSearch", false);
+        }
+
+        // Then - every page continued the same ranking
+        assertThat(seen).hasSize(150).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void testSearchCode_WithInvalidCursor_ShouldRejectRequest() {
+        CodeSearchRequest request = CodeSearchRequest.builder()
+            .query("class")
+            .cursor("not-a-cursor")
+            .build();
+
+        assertThatThrownBy(() -> codeSearchService.searchCode(request))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<Float> toList(float[] vector) {
+        List<Float> values = new ArrayList<>(vector.length);
+        for (float value : vector) {
+            values.add(value);
+        }
+        return values;
+    }
 }
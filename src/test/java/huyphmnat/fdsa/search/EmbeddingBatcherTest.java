@@ -0,0 +1,122 @@
+package huyphmnat.fdsa.search;
+
+import huyphmnat.fdsa.search.internal.services.EmbeddingBatcher;
+import huyphmnat.fdsa.search.internal.services.IngestionExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmbeddingBatcherTest {
+
+    private final List<List<String>> requests = Collections.synchronizedList(new ArrayList<>());
+    private volatile boolean failing;
+
+    private IngestionExecutor ingestionExecutor;
+    private EmbeddingBatcher batcher;
+
+    @BeforeEach
+    void setUp() {
+        // Each vector encodes its text, so misrouted results are detectable
+        EmbeddingModel model = new EmbeddingModel() {
+            @Override
+            public EmbeddingResponse call(EmbeddingRequest request) {
+                requests.add(List.copyOf(request.getInstructions()));
+                if (failing) {
+                    throw new IllegalStateException("provider unavailable");
+                }
+                List<Embedding> embeddings = new ArrayList<>();
+                for (int i = 0; i < request.getInstructions().size(); i++) {
+                    embeddings.add(new Embedding(new float[]{request.getInstructions().get(i).hashCode()}, i));
+                }
+                return new EmbeddingResponse(embeddings);
+            }
+
+            @Override
+            public float[] embed(Document document) {
+                return new float[]{document.getText().hashCode()};
+            }
+        };
+
+        ingestionExecutor = new IngestionExecutor();
+        ingestionExecutor.init();
+        batcher = new EmbeddingBatcher(model, ingestionExecutor, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(batcher, "maxItems", 50);
+        ReflectionTestUtils.setField(batcher, "maxTokens", 1000);
+        ReflectionTestUtils.setField(batcher, "maxWaitMs", 100L);
+        batcher.init();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        batcher.shutdown();
+        ingestionExecutor.shutdown();
+    }
+
+    @Test
+    void testEmbedAll_ConcurrentCallers_ShouldCoalesceRequestsAndRouteVectorsBack() throws Exception {
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> files = new ArrayList<>();
+            for (int file = 0; file < 40; file++) {
+                List<String> texts = List.of("file" + file + "-chunk0", "file" + file + "-chunk1", "file" + file + "-summary");
+                files.add(callers.submit(() -> {
+                    List<float[]> vectors = batcher.embedAll(texts);
+                    for (int i = 0; i < texts.size(); i++) {
+                        assertThat(vectors.get(i)).containsExactly((float) texts.get(i).hashCode());
+                    }
+                }));
+            }
+            for (Future<?> file : files) {
+                file.get(10, TimeUnit.SECONDS);
+            }
+        }
+
+        assertThat(requests.stream().mapToInt(List::size).sum()).isEqualTo(120);
+        assertThat(requests).hasSizeLessThan(40);
+        assertThat(requests).allSatisfy(request -> assertThat(request).hasSizeLessThanOrEqualTo(50));
+    }
+
+    @Test
+    void testSubmit_PartialBatch_ShouldFlushAfterMaxWait() throws Exception {
+        float[] vector = batcher.submit("lonely").get(2, TimeUnit.SECONDS);
+
+        assertThat(vector).containsExactly((float) "lonely".hashCode());
+        assertThat(requests).containsExactly(List.of("lonely"));
+    }
+
+    @Test
+    void testSubmit_TokenBudgetExceeded_ShouldSplitBatches() {
+        // ~600 estimated tokens each, so no two fit in one request
+        String large = "x".repeat(2400);
+
+        batcher.embedAll(List.of(large + "a", large + "b", large + "c"));
+
+        assertThat(requests).hasSize(3);
+    }
+
+    @Test
+    void testEmbedAll_ProviderFailure_ShouldFailEveryCallerInBatch() {
+        failing = true;
+
+        assertThatThrownBy(() -> batcher.embedAll(List.of("a", "b")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("provider unavailable");
+    }
+}
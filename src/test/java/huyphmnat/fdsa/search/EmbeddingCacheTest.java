@@ -0,0 +1,151 @@
+package huyphmnat.fdsa.search;
+
+import huyphmnat.fdsa.base.MockEmbeddingModel;
+import huyphmnat.fdsa.search.internal.entites.EmbeddingCacheEntity;
+import huyphmnat.fdsa.search.internal.repositories.EmbeddingCacheRepository;
+import huyphmnat.fdsa.search.internal.services.CachingEmbeddingModel;
+import huyphmnat.fdsa.search.internal.services.EmbeddingCacheImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EmbeddingCacheTest {
+
+    private final List<List<String>> delegateCalls = new ArrayList<>();
+    private final Map<String, EmbeddingCacheEntity> persistedRows = new HashMap<>();
+
+    private SimpleMeterRegistry meterRegistry;
+    private EmbeddingCacheImpl embeddingCache;
+    private EmbeddingModel cachingModel;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        embeddingCache = newCache(inMemoryRepository());
+
+        MockEmbeddingModel mockModel = new MockEmbeddingModel();
+        EmbeddingModel countingModel = new EmbeddingModel() {
+            @Override
+            public EmbeddingResponse call(EmbeddingRequest request) {
+                delegateCalls.add(List.copyOf(request.getInstructions()));
+                return mockModel.call(request);
+            }
+
+            @Override
+            public float[] embed(Document document) {
+                return mockModel.embed(document);
+            }
+        };
+        cachingModel = new CachingEmbeddingModel(countingModel, () -> embeddingCache);
+    }
+
+    @Test
+    void testCall_RepeatedTexts_ShouldOnlyEmbedMisses() {
+        EmbeddingResponse first = cachingModel.call(new EmbeddingRequest(List.of("alpha", "beta"), null));
+        EmbeddingResponse second = cachingModel.call(new EmbeddingRequest(List.of("beta", "gamma", "alpha"), null));
+
+        assertThat(delegateCalls).containsExactly(List.of("alpha", "beta"), List.of("gamma"));
+        assertThat(second.getResults()).hasSize(3);
+        assertThat(second.getResults().get(0).getOutput()).isEqualTo(first.getResults().get(1).getOutput());
+        assertThat(second.getResults().get(2).getOutput()).isEqualTo(first.getResults().get(0).getOutput());
+        assertThat(second.getResults().get(2).getIndex()).isEqualTo(2);
+    }
+
+    @Test
+    void testCall_DuplicateTextsInOneRequest_ShouldEmbedOnce() {
+        EmbeddingResponse response = cachingModel.call(new EmbeddingRequest(List.of("same", "same", "other"), null));
+
+        assertThat(delegateCalls).containsExactly(List.of("same", "other"));
+        assertThat(response.getResults()).hasSize(3);
+        assertThat(response.getResults().get(0).getOutput()).isEqualTo(response.getResults().get(1).getOutput());
+    }
+
+    @Test
+    void testCall_AfterRestart_ShouldServeFromPersistentTier() {
+        float[] original = cachingModel.embed("persisted text");
+        assertThat(persistedRows).hasSize(1);
+
+        // A fresh cache instance has an empty memory tier but shares the persisted rows
+        embeddingCache = newCache(inMemoryRepository());
+        float[] reloaded = cachingModel.embed("persisted text");
+
+        assertThat(reloaded).isEqualTo(original);
+        assertThat(delegateCalls).hasSize(1);
+        assertThat(meterRegistry.get("search.embeddings.cache")
+                .tag("tier", "persistent").tag("result", "hit").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testCall_DifferentModel_ShouldMiss() {
+        ReflectionTestUtils.setField(embeddingCache, "defaultModel", "model-a");
+        cachingModel.embed("shared text");
+
+        ReflectionTestUtils.setField(embeddingCache, "defaultModel", "model-b");
+        cachingModel.embed("shared text");
+
+        assertThat(delegateCalls).hasSize(2);
+    }
+
+    @Test
+    void testInvalidateAll_ShouldForceReembedding() {
+        cachingModel.embed("text");
+        embeddingCache.invalidateAll();
+        cachingModel.embed("text");
+
+        assertThat(delegateCalls).hasSize(2);
+        assertThat(meterRegistry.get("search.embeddings.cache")
+                .tag("tier", "memory").tag("result", "hit").counter().count()).isZero();
+    }
+
+    private EmbeddingCacheImpl newCache(EmbeddingCacheRepository repository) {
+        EmbeddingCacheImpl cache = new EmbeddingCacheImpl(repository, meterRegistry);
+        ReflectionTestUtils.setField(cache, "defaultModel", "text-embedding-3-small");
+        ReflectionTestUtils.setField(cache, "defaultDimension", 1536);
+        ReflectionTestUtils.setField(cache, "memoryMaxEntries", 100L);
+        ReflectionTestUtils.setField(cache, "persistentEnabled", true);
+        cache.init();
+        return cache;
+    }
+
+    @SuppressWarnings("unchecked")
+    private EmbeddingCacheRepository inMemoryRepository() {
+        EmbeddingCacheRepository repository = mock(EmbeddingCacheRepository.class);
+        when(repository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<EmbeddingCacheEntity> found = new ArrayList<>();
+            for (String key : (Iterable<String>) invocation.getArgument(0)) {
+                if (persistedRows.containsKey(key)) {
+                    found.add(persistedRows.get(key));
+                }
+            }
+            return found;
+        });
+        when(repository.saveAll(any())).thenAnswer(invocation -> {
+            for (EmbeddingCacheEntity entity : (Iterable<EmbeddingCacheEntity>) invocation.getArgument(0)) {
+                persistedRows.put(entity.getCacheKey(), entity);
+            }
+            return List.of();
+        });
+        doAnswer(invocation -> {
+            persistedRows.clear();
+            return null;
+        }).when(repository).deleteAllInBatch();
+        return repository;
+    }
+}
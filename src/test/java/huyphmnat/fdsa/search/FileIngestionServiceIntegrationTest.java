@@ -0,0 +1,175 @@
+package huyphmnat.fdsa.search;
+
+import huyphmnat.fdsa.base.OpenSearchIntegrationTest;
+import huyphmnat.fdsa.repository.dtos.FileContent;
+import huyphmnat.fdsa.repository.interfaces.RepositoryFileService;
+import huyphmnat.fdsa.search.dtos.CodeFileDocument;
+import huyphmnat.fdsa.search.interfaces.FileIngestionService;
+import huyphmnat.fdsa.search.internal.services.CodeFileIds;
+import huyphmnat.fdsa.search.internal.services.CodeSummarizationService;
+import huyphmnat.fdsa.search.internal.services.OpenSearchIndexingService;
+import huyphmnat.fdsa.shared.utils.HashUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.FieldValue;
+import org.opensearch.client.opensearch.core.SearchResponse;
+import org.opensearch.client.opensearch.core.search.Hit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+
+class FileIngestionServiceIntegrationTest extends OpenSearchIntegrationTest {
+
+    @Autowired
+    private FileIngestionService fileIngestionService;
+
+    @Autowired
+    private OpenSearchIndexingService indexingService;
+
+    @Autowired
+    private OpenSearchClient openSearchClient;
+
+    @MockitoBean
+    private RepositoryFileService repositoryFileService;
+
+    @MockitoBean
+    private CodeSummarizationService summarizationService;
+
+    private UUID repositoryId;
+    private String repositoryIdentifier;
+
+    @BeforeEach
+    void setUp() {
+        repositoryId = UUID.randomUUID();
+        repositoryIdentifier = "test-owner/ingestion-" + repositoryId;
+        when(summarizationService.summarizeCode(anyString(), any(), anyString())).thenReturn("Test summary");
+    }
+
+    @Test
+    void testIndexFile_RepeatedUpdates_ShouldNotAccumulateDuplicates() throws Exception {
+        // Given - a document left behind under a random ID by an older version
+        String filePath = "src/main/java/Service.java";
+        indexingService.indexCodeFile(CodeFileDocument.builder()
+            .id(UUID.randomUUID())
+            .repositoryId(repositoryId)
+            .repositoryIdentifier(repositoryIdentifier)
+            .filePath(filePath)
+            .fileName("Service.java")
+            .content("class Service { /* legacy */ }")
+            .createdAt(Instant.now())
+            .updatedAt(Instant.now())
+            .build());
+        indexingService.refreshIndexes();
+
+        // When
+        for (int version = 1; version <= 3; version++) {
+            givenFile(filePath, "class Service { int version = " + version + "; }");
+            fileIngestionService.indexFile(repositoryId, repositoryIdentifier, filePath);
+        }
+        indexingService.refreshIndexes();
+
+        // Then
+        List<CodeFileDocument> documents = findRepositoryDocuments();
+        assertThat(documents).hasSize(1);
+        assertThat(documents.get(0).getContent()).isEqualTo("class Service { int version = 3; }");
+    }
+
+    @Test
+    void testIndexFile_UnchangedFileIndexedWithoutEmbeddings_ShouldFillThemIn() throws Exception {
+        // Given - indexed while the embedding provider was failing
+        String filePath = "src/main/java/Unchanged.java";
+        String content = "class Unchanged {}";
+        indexingService.indexCodeFile(CodeFileDocument.builder()
+            .id(CodeFileIds.of(repositoryId, filePath))
+            .repositoryId(repositoryId)
+            .repositoryIdentifier(repositoryIdentifier)
+            .filePath(filePath)
+            .fileName("Unchanged.java")
+            .content(content)
+            .contentHash(HashUtils.sha256Hex(content))
+            .createdAt(Instant.now())
+            .updatedAt(Instant.now())
+            .build());
+        indexingService.refreshIndexes();
+        givenFile(filePath, content);
+
+        // When
+        fileIngestionService.indexFile(repositoryId, repositoryIdentifier, filePath);
+        indexingService.refreshIndexes();
+
+        // Then
+        List<CodeFileDocument> documents = findRepositoryDocuments();
+        assertThat(documents).hasSize(1);
+        assertThat(documents.get(0).getContentEmbedding()).isNotEmpty();
+    }
+
+    @Test
+    void testRemoveFile_ShouldRemoveIndexedDocument() throws Exception {
+        // Given
+        String filePath = "src/Removed.java";
+        givenFile(filePath, "class Removed {}");
+        fileIngestionService.indexFile(repositoryId, repositoryIdentifier, filePath);
+        indexingService.refreshIndexes();
+        assertThat(findRepositoryDocuments()).hasSize(1);
+
+        // When
+        fileIngestionService.removeFile(repositoryId, filePath);
+        indexingService.refreshIndexes();
+
+        // Then
+        assertThat(findRepositoryDocuments()).isEmpty();
+    }
+
+    @Test
+    void testRemoveFolder_ShouldOnlyRemoveFilesUnderFolder() throws Exception {
+        // Given
+        for (String filePath : List.of("src/main/A.java", "src/main/nested/B.java", "src/mainframe/C.java", "src/D.java")) {
+            givenFile(filePath, "class X { String path = \"" + filePath + "\"; }");
+            fileIngestionService.indexFile(repositoryId, repositoryIdentifier, filePath);
+        }
+        indexingService.refreshIndexes();
+
+        // When
+        fileIngestionService.removeFolder(repositoryId, "src/main/");
+        indexingService.refreshIndexes();
+
+        // Then
+        assertThat(findRepositoryDocuments())
+            .extracting(CodeFileDocument::getFilePath)
+            .containsExactlyInAnyOrder("src/mainframe/C.java", "src/D.java");
+    }
+
+    private void givenFile(String filePath, String content) {
+        when(repositoryFileService.readFile(eq(repositoryId), eq(filePath), isNull())).thenReturn(FileContent.builder()
+            .path(filePath)
+            .name(filePath.substring(filePath.lastIndexOf('/') + 1))
+            .size((long) content.length())
+            .content(content)
+            .build());
+    }
+
+    private List<CodeFileDocument> findRepositoryDocuments() throws Exception {
+        SearchResponse<CodeFileDocument> response = openSearchClient.search(s -> s
+            .index(Indexes.CODE_FILE_INDEX)
+            .size(100)
+            .query(q -> q
+                .term(t -> t
+                    .field(FieldNames.REPOSITORY_ID)
+                    .value(FieldValue.of(repositoryId.toString()))
+                )
+            ), CodeFileDocument.class);
+
+        return response.hits().hits().stream().map(Hit::source).toList();
+    }
+}
@@ -2,6 +2,7 @@ package huyphmnat.fdsa.search;
 
 import huyphmnat.fdsa.base.OpenSearchIntegrationTest;
 import huyphmnat.fdsa.search.dtos.CodeFileDocument;
+import huyphmnat.fdsa.search.internal.services.CodeFileIds;
 import huyphmnat.fdsa.search.internal.services.OpenSearchIndexingService;
 import org.junit.jupiter.api.Test;
 import org.opensearch.client.opensearch.OpenSearchClient;
@@ -156,5 +157,52 @@ class OpenSearchIndexingServiceTest extends OpenSearchIntegrationTest {
         assertThat(searchResponse.hits()).isNotNull();
         assertThat(searchResponse.hits().total()).isNotNull();
     }
-}
 
+    @Test
+    void testIndexCodeFile_SamePathTwice_ShouldOverwriteSingleDocument() throws Exception {
+        // Given
+        UUID repositoryId = UUID.randomUUID();
+        String repoIdentifier = "test-owner/upsert-repo";
+        String filePath = "src/main/java/Upsert.java";
+        UUID documentId = CodeFileIds.of(repositoryId, filePath);
+
+        assertThat(CodeFileIds.of(repositoryId, "/" + filePath)).isEqualTo(documentId);
+        assertThat(CodeFileIds.of(UUID.randomUUID(), filePath)).isNotEqualTo(documentId);
+
+        // When
+        for (String content : List.of("class Upsert { int v1; }", "class Upsert { int v2; }")) {
+            indexingService.indexCodeFile(CodeFileDocument.builder()
+                .id(documentId)
+                .repositoryId(repositoryId)
+                .repositoryIdentifier(repoIdentifier)
+                .filePath(filePath)
+                .fileName("Upsert.java")
+                .fileExtension("java")
+                .language("Java")
+                .content(content)
+                .size((long) content.length())
+                .createdAt(Instant.now())
+                .updatedAt(Instant.now())
+                .build());
+        }
+        indexingService.refreshIndexes();
+
+        // Then
+        SearchResponse<CodeFileDocument> searchResponse = openSearchClient.search(s -> s
+            .index(FILES_INDEX_NAME)
+            .query(q -> q
+                .term(t -> t
+                    .field(FieldNames.REPOSITORY_IDENTIFIER_KEYWORD)
+                    .value(FieldValue.of(repoIdentifier))
+                )
+            ), CodeFileDocument.class);
+
+        assertThat(searchResponse.hits().total().value()).isEqualTo(1);
+        assertThat(indexingService.getCodeFile(documentId))
+            .hasValueSatisfying(doc -> assertThat(doc.getContent()).isEqualTo("class Upsert { int v2; }"));
+
+        indexingService.deleteCodeFile(documentId);
+        assertThat(indexingService.getCodeFile(documentId)).isEmpty();
+        assertThatCode(() -> indexingService.deleteCodeFile(documentId)).doesNotThrowAnyException();
+    }
+}
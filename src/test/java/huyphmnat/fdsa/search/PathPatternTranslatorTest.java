@@ -0,0 +1,78 @@
+package huyphmnat.fdsa.search;
+
+import huyphmnat.fdsa.search.internal.services.PathPatternTranslator;
+import org.junit.jupiter.api.Test;
+import org.opensearch.client.opensearch._types.query_dsl.Query;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PathPatternTranslatorTest {
+
+    @Test
+    void testToFilter_NoWildcard_ShouldUseTermOnPath() {
+        Query query = PathPatternTranslator.toFilter("src/main/Foo.java");
+
+        assertThat(query.isTerm()).isTrue();
+        assertThat(query.term().field()).isEqualTo(FieldNames.FILE_PATH_KEYWORD);
+        assertThat(query.term().value().stringValue()).isEqualTo("src/main/Foo.java");
+    }
+
+    @Test
+    void testToFilter_TrailingWildcard_ShouldUsePrefixOnPath() {
+        Query query = PathPatternTranslator.toFilter("src/main/**");
+
+        assertThat(query.isPrefix()).isTrue();
+        assertThat(query.prefix().field()).isEqualTo(FieldNames.FILE_PATH_KEYWORD);
+        assertThat(query.prefix().value()).isEqualTo("src/main/");
+    }
+
+    @Test
+    void testToFilter_LiteralPrefixWithInnerWildcard_ShouldKeepWildcardOnPath() {
+        Query query = PathPatternTranslator.toFilter("src/*/Foo.java");
+
+        assertThat(query.isWildcard()).isTrue();
+        assertThat(query.wildcard().field()).isEqualTo(FieldNames.FILE_PATH_KEYWORD);
+        assertThat(query.wildcard().value()).isEqualTo("src/*/Foo.java");
+    }
+
+    @Test
+    void testToFilter_FileNameSuffix_ShouldUsePrefixOnReversedFileName() {
+        Query query = PathPatternTranslator.toFilter("*Service.java");
+
+        assertThat(query.isPrefix()).isTrue();
+        assertThat(query.prefix().field()).isEqualTo(FieldNames.FILE_NAME_REVERSED);
+        assertThat(query.prefix().value()).isEqualTo("avaj.ecivreS");
+    }
+
+    @Test
+    void testToFilter_PathSuffix_ShouldUsePrefixOnReversedPath() {
+        Query query = PathPatternTranslator.toFilter("*/test/Foo.java");
+
+        assertThat(query.isPrefix()).isTrue();
+        assertThat(query.prefix().field()).isEqualTo(FieldNames.FILE_PATH_REVERSED);
+        assertThat(query.prefix().value()).isEqualTo("avaj.ooF/tset/");
+    }
+
+    @Test
+    void testToFilter_LeadingWildcardWithInnerWildcard_ShouldUseReversedWildcard() {
+        Query query = PathPatternTranslator.toFilter("**/test/*.java");
+
+        assertThat(query.isWildcard()).isTrue();
+        assertThat(query.wildcard().field()).isEqualTo(FieldNames.FILE_PATH_REVERSED);
+        assertThat(query.wildcard().value()).isEqualTo("avaj.*/tset/*");
+    }
+
+    @Test
+    void testToFilter_WildcardsOnBothEnds_ShouldKeepWildcardOnPath() {
+        Query query = PathPatternTranslator.toFilter("*rvice*");
+
+        assertThat(query.isWildcard()).isTrue();
+        assertThat(query.wildcard().field()).isEqualTo(FieldNames.FILE_PATH_KEYWORD);
+        assertThat(query.wildcard().value()).isEqualTo("*rvice*");
+    }
+
+    @Test
+    void testToFilter_OnlyWildcards_ShouldMatchAll() {
+        assertThat(PathPatternTranslator.toFilter("**").isMatchAll()).isTrue();
+    }
+}
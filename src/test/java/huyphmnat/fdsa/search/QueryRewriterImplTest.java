@@ -0,0 +1,124 @@
+package huyphmnat.fdsa.search;
+
+import huyphmnat.fdsa.search.internal.services.QueryRewriterImpl;
+import huyphmnat.fdsa.search.internal.services.SearchExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class QueryRewriterImplTest {
+
+    private static final String QUERY = "find the function that parses json";
+    private static final String REWRITE = "json parse function";
+
+    private final AtomicInteger llmCalls = new AtomicInteger();
+    private final CountDownLatch llmRelease = new CountDownLatch(1);
+    private volatile boolean blockLlm;
+    private volatile boolean failing;
+
+    private SearchExecutor searchExecutor;
+    private SimpleMeterRegistry meterRegistry;
+    private QueryRewriterImpl queryRewriter;
+
+    @BeforeEach
+    void setUp() {
+        ChatClient chatClient = mock(ChatClient.class, RETURNS_DEEP_STUBS);
+        when(chatClient.prompt(any(Prompt.class)).call().content()).thenAnswer(invocation -> {
+            llmCalls.incrementAndGet();
+            if (blockLlm) {
+                llmRelease.await(10, TimeUnit.SECONDS);
+            }
+            if (failing) {
+                throw new IllegalStateException("provider unavailable");
+            }
+            return "\"" + REWRITE + "\"";
+        });
+        ChatClient.Builder chatClientBuilder = mock(ChatClient.Builder.class);
+        when(chatClientBuilder.build()).thenReturn(chatClient);
+
+        searchExecutor = new SearchExecutor();
+        meterRegistry = new SimpleMeterRegistry();
+        queryRewriter = new QueryRewriterImpl(chatClientBuilder, searchExecutor, meterRegistry);
+        ReflectionTestUtils.setField(queryRewriter, "queryRewriterEnabled", true);
+        ReflectionTestUtils.setField(queryRewriter, "latencyBudgetMs", 2000L);
+        queryRewriter.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        llmRelease.countDown();
+        searchExecutor.shutdown();
+    }
+
+    @Test
+    void testRewriteQuery_SameQueryDifferentCaseAndSpacing_ShouldCallLlmOnce() {
+        assertThat(queryRewriter.rewriteQuery(QUERY)).isEqualTo(REWRITE);
+        assertThat(queryRewriter.rewriteQuery("  Find the   function that PARSES json ")).isEqualTo(REWRITE);
+
+        assertThat(llmCalls).hasValue(1);
+    }
+
+    @Test
+    void testRewriteQuery_ConcurrentIdenticalQueries_ShouldShareSingleLlmCall() throws Exception {
+        blockLlm = true;
+
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                results.add(callers.submit(() -> queryRewriter.rewriteQuery(QUERY)));
+            }
+            await().atMost(5, TimeUnit.SECONDS).until(() -> llmCalls.get() > 0);
+            llmRelease.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(REWRITE);
+            }
+        }
+
+        assertThat(llmCalls).hasValue(1);
+    }
+
+    @Test
+    void testRewriteQuery_LatencyBudgetExceeded_ShouldReturnOriginalAndCacheRewriteInBackground() {
+        blockLlm = true;
+        ReflectionTestUtils.setField(queryRewriter, "latencyBudgetMs", 50L);
+
+        assertThat(queryRewriter.rewriteQuery(QUERY)).isEqualTo(QUERY);
+        assertThat(meterRegistry.get("search.query-rewriter.budget-exceeded").counter().count()).isEqualTo(1.0);
+
+        // Once the slow call finishes, later searches get the rewrite without another LLM call
+        llmRelease.countDown();
+        await().atMost(5, TimeUnit.SECONDS).until(() -> REWRITE.equals(queryRewriter.rewriteQuery(QUERY)));
+        assertThat(llmCalls).hasValue(1);
+    }
+
+    @Test
+    void testRewriteQuery_LlmFailure_ShouldReturnOriginalAndNotCacheFailure() {
+        failing = true;
+        assertThat(queryRewriter.rewriteQuery(QUERY)).isEqualTo(QUERY);
+
+        failing = false;
+        await().atMost(5, TimeUnit.SECONDS).until(() -> REWRITE.equals(queryRewriter.rewriteQuery(QUERY)));
+        assertThat(llmCalls).hasValueGreaterThanOrEqualTo(2);
+    }
+}
@@ -0,0 +1,325 @@
+package huyphmnat.fdsa.search;
+
+import huyphmnat.fdsa.base.MockEmbeddingModel;
+import huyphmnat.fdsa.repository.dtos.DirectoryContent;
+import huyphmnat.fdsa.repository.dtos.DirectoryEntry;
+import huyphmnat.fdsa.repository.dtos.Entry;
+import huyphmnat.fdsa.repository.dtos.FileChange;
+import huyphmnat.fdsa.repository.dtos.FileChangeType;
+import huyphmnat.fdsa.repository.dtos.FileContent;
+import huyphmnat.fdsa.repository.dtos.FileEntry;
+import huyphmnat.fdsa.repository.dtos.FileEntryType;
+import huyphmnat.fdsa.repository.interfaces.RepositoryFileService;
+import huyphmnat.fdsa.search.dtos.CodeFileDocument;
+import huyphmnat.fdsa.search.interfaces.FileIngestionService;
+import huyphmnat.fdsa.search.internal.entites.BulkDeadLetterEntity;
+import huyphmnat.fdsa.search.internal.repositories.BulkDeadLetterRepository;
+import huyphmnat.fdsa.search.internal.services.BulkIndexResult;
+import huyphmnat.fdsa.search.internal.services.BulkIngester;
+import huyphmnat.fdsa.search.internal.services.CodeChunkingServiceImpl;
+import huyphmnat.fdsa.search.internal.services.CodeSummarizationService;
+import huyphmnat.fdsa.search.internal.services.EmbeddingBatcher;
+import huyphmnat.fdsa.search.internal.services.IngestionExecutor;
+import huyphmnat.fdsa.search.internal.services.LanguageDetectionServiceImpl;
+import huyphmnat.fdsa.search.internal.services.OpenSearchIndexingService;
+import huyphmnat.fdsa.search.internal.services.RepositoryIndexingServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the staged repository ingestion pipeline
+ */
+class RepositoryIndexingServiceTest {
+
+    private static final int FOLDERS = 5;
+    private static final int FILES_PER_FOLDER = 60;
+    private static final int QUEUE_CAPACITY = 2;
+    private static final int BULK_SIZE = 25;
+    private static final int SYNC_WORKERS = 2;
+
+    private final UUID repositoryId = UUID.randomUUID();
+
+    private RepositoryFileService repositoryFileService;
+    private CodeSummarizationService summarizationService;
+    private IngestionExecutor ingestionExecutor;
+    private FileIngestionService fileIngestionService;
+    private BulkDeadLetterRepository deadLetterRepository;
+    private RepositoryIndexingServiceImpl ingestionService;
+
+    private final AtomicInteger filesRead = new AtomicInteger();
+    private final List<List<CodeFileDocument>> bulkRequests = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        repositoryFileService = mock(RepositoryFileService.class);
+        summarizationService = mock(CodeSummarizationService.class);
+        OpenSearchIndexingService indexingService = mock(OpenSearchIndexingService.class);
+        fileIngestionService = mock(FileIngestionService.class);
+        deadLetterRepository = mock(BulkDeadLetterRepository.class);
+
+        givenRepositoryTree();
+        when(summarizationService.summarizeCode(anyString(), any(), anyString())).thenReturn("Test summary");
+        doAnswer(invocation -> {
+            List<CodeFileDocument> documents = invocation.getArgument(0);
+            bulkRequests.add(List.copyOf(documents));
+            return CompletableFuture.completedFuture(BulkIndexResult.success(documents.size()));
+        }).when(indexingService).bulkIndexCodeFilesAsync(any());
+
+        ingestionExecutor = new IngestionExecutor();
+        ingestionExecutor.init();
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MockEmbeddingModel embeddingModel = new MockEmbeddingModel();
+        EmbeddingBatcher embeddingBatcher = new EmbeddingBatcher(embeddingModel, ingestionExecutor, meterRegistry);
+        embeddingBatcher.init();
+
+        BulkIngester bulkIngester = new BulkIngester(indexingService, deadLetterRepository, meterRegistry, ingestionExecutor);
+        ReflectionTestUtils.setField(bulkIngester, "maxDocuments", BULK_SIZE);
+        ReflectionTestUtils.setField(bulkIngester, "flushIntervalMs", 200L);
+        bulkIngester.init();
+        ingestionService = new RepositoryIndexingServiceImpl(
+                repositoryFileService,
+                indexingService,
+                new LanguageDetectionServiceImpl(),
+                new CodeChunkingServiceImpl(embeddingModel),
+                embeddingBatcher,
+                summarizationService,
+                ingestionExecutor,
+                bulkIngester,
+                fileIngestionService);
+        ReflectionTestUtils.setField(ingestionService, "queueCapacity", QUEUE_CAPACITY);
+        ReflectionTestUtils.setField(ingestionService, "readers", 2);
+        ReflectionTestUtils.setField(ingestionService, "chunkers", 1);
+        ReflectionTestUtils.setField(ingestionService, "summarizers", 3);
+        ReflectionTestUtils.setField(ingestionService, "embedders", 2);
+        ReflectionTestUtils.setField(ingestionService, "syncWorkers", SYNC_WORKERS);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        ingestionExecutor.shutdown();
+    }
+
+    @Test
+    void testIngestRepository_ShouldIndexEveryFileExactlyOnceInBoundedBatches() {
+        ingestionService.ingestRepository(repositoryId, "test-owner/pipeline-repo");
+
+        List<CodeFileDocument> indexed = bulkRequests.stream().flatMap(List::stream).toList();
+        assertThat(indexed).hasSize(FOLDERS * FILES_PER_FOLDER);
+        assertThat(indexed).extracting(CodeFileDocument::getId).doesNotHaveDuplicates();
+        assertThat(bulkRequests).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(BULK_SIZE));
+        assertThat(indexed).allSatisfy(document -> {
+            assertThat(document.getContentSummary()).isEqualTo("Test summary");
+            assertThat(document.getContentEmbedding()).hasSize(1536);
+            assertThat(document.getCodeChunks()).allSatisfy(chunk -> assertThat(chunk.getEmbedding()).hasSize(1536));
+        });
+    }
+
+    @Test
+    void testIngestRepository_SlowSummarizer_ShouldApplyBackpressureToReads() throws Exception {
+        // Given - the summarize stage is stalled
+        CountDownLatch release = new CountDownLatch(1);
+        when(summarizationService.summarizeCode(anyString(), any(), anyString())).thenAnswer(invocation -> {
+            release.await(30, TimeUnit.SECONDS);
+            return "Test summary";
+        });
+
+        // When
+        CompletableFuture<Void> ingestion = CompletableFuture.runAsync(
+                () -> ingestionService.ingestRepository(repositoryId, "test-owner/pipeline-repo"));
+
+        // Then - reads stop once the chunk and summarize queues and every upstream worker's hands are full
+        int maxInFlight = 2 * QUEUE_CAPACITY + 2 + 1 + 3;
+        await().atMost(5, TimeUnit.SECONDS).until(() -> filesRead.get() >= maxInFlight);
+        TimeUnit.MILLISECONDS.sleep(500);
+        assertThat(filesRead.get()).isLessThanOrEqualTo(maxInFlight);
+
+        release.countDown();
+        ingestion.get(30, TimeUnit.SECONDS);
+        assertThat(bulkRequests.stream().mapToInt(List::size).sum()).isEqualTo(FOLDERS * FILES_PER_FOLDER);
+    }
+
+    @Test
+    void testIngestRepository_ConcurrentIngestions_ShouldShareExecutor() throws Exception {
+        CompletableFuture<Void> first = CompletableFuture.runAsync(
+                () -> ingestionService.ingestRepository(repositoryId, "test-owner/pipeline-repo"));
+        CompletableFuture<Void> second = CompletableFuture.runAsync(
+                () -> ingestionService.ingestRepository(repositoryId, "test-owner/pipeline-repo"));
+
+        CompletableFuture.allOf(first, second).get(30, TimeUnit.SECONDS);
+        assertThat(bulkRequests.stream().mapToInt(List::size).sum()).isEqualTo(2 * FOLDERS * FILES_PER_FOLDER);
+    }
+
+    @Test
+    void testIngestRepository_FileFails_ShouldDeadLetterItAndIndexOthers() {
+        // Given
+        when(repositoryFileService.readFile(repositoryId, "module2/Class7.java"))
+                .thenThrow(new RuntimeException("read failed"));
+
+        // When - one bad file must not make every later sync re-ingest the whole repository
+        ingestionService.ingestRepository(repositoryId, "test-owner/pipeline-repo");
+
+        // Then
+        assertThat(bulkRequests.stream().mapToInt(List::size).sum()).isEqualTo(FOLDERS * FILES_PER_FOLDER - 1);
+        verify(deadLetterRepository).saveAll(argThat((Iterable<BulkDeadLetterEntity> deadLetters) -> {
+            BulkDeadLetterEntity deadLetter = deadLetters.iterator().next();
+            return deadLetter.getFilePath().equals("module2/Class7.java")
+                    && deadLetter.getReason().contains("read failed");
+        }));
+    }
+
+    @Test
+    void testIngestRepository_DirectoryCannotBeListed_ShouldFailIngestion() {
+        // Given
+        when(repositoryFileService.listDirectory(repositoryId, "module3"))
+                .thenThrow(new RuntimeException("list failed"));
+
+        // When / Then - the files below it have no record, so the ingestion is retried
+        assertThatThrownBy(() -> ingestionService.ingestRepository(repositoryId, "test-owner/pipeline-repo"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("1 directories");
+    }
+
+    @Test
+    void testSyncRepository_ShouldOnlyApplyChangedFiles() {
+        // Given
+        when(repositoryFileService.listChanges(repositoryId, "old", "new")).thenReturn(List.of(
+                FileChange.builder().type(FileChangeType.ADDED).path("module0/Added.java").build(),
+                FileChange.builder().type(FileChangeType.MODIFIED).path("module1/Class3.java").build(),
+                FileChange.builder().type(FileChangeType.DELETED).path("module2/Class4.java").build(),
+                FileChange.builder().type(FileChangeType.RENAMED).path("module3/Renamed.java").oldPath("module3/Class5.java").build()));
+
+        // When
+        ingestionService.syncRepository(repositoryId, "test-owner/pipeline-repo", "old", "new");
+
+        // Then - no full walk, only the changed paths
+        verify(fileIngestionService).indexFile(repositoryId, "test-owner/pipeline-repo", "module0/Added.java", "new");
+        verify(fileIngestionService).indexFile(repositoryId, "test-owner/pipeline-repo", "module1/Class3.java", "new");
+        verify(fileIngestionService).removeFile(repositoryId, "module2/Class4.java");
+        verify(fileIngestionService).removeFile(repositoryId, "module3/Class5.java");
+        verify(fileIngestionService).indexFile(repositoryId, "test-owner/pipeline-repo", "module3/Renamed.java", "new");
+        verify(repositoryFileService, never()).listDirectory(any(), anyString());
+        assertThat(bulkRequests).isEmpty();
+    }
+
+    @Test
+    void testSyncRepository_ManyChanges_ShouldApplyAtMostSyncWorkersAtOnce() {
+        // Given
+        List<FileChange> changes = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            changes.add(FileChange.builder().type(FileChangeType.MODIFIED).path("module0/Changed" + i + ".java").build());
+        }
+        when(repositoryFileService.listChanges(repositoryId, "old", "new")).thenReturn(changes);
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(5);
+            running.decrementAndGet();
+            return null;
+        }).when(fileIngestionService).indexFile(eq(repositoryId), eq("test-owner/pipeline-repo"), anyString(), eq("new"));
+
+        // When
+        ingestionService.syncRepository(repositoryId, "test-owner/pipeline-repo", "old", "new");
+
+        // Then
+        verify(fileIngestionService, times(changes.size())).indexFile(eq(repositoryId), eq("test-owner/pipeline-repo"), anyString(), eq("new"));
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(SYNC_WORKERS);
+    }
+
+    @Test
+    void testSyncRepository_FileFails_ShouldFailSyncAfterApplyingOthers() {
+        // Given
+        when(repositoryFileService.listChanges(repositoryId, "old", "new")).thenReturn(List.of(
+                FileChange.builder().type(FileChangeType.MODIFIED).path("module0/Broken.java").build(),
+                FileChange.builder().type(FileChangeType.MODIFIED).path("module0/Class1.java").build()));
+        doThrow(new RuntimeException("indexing failed"))
+                .when(fileIngestionService).indexFile(repositoryId, "test-owner/pipeline-repo", "module0/Broken.java", "new");
+
+        // When / Then - the sync must not count as done, so the indexed commit is not advanced
+        assertThatThrownBy(() -> ingestionService.syncRepository(repositoryId, "test-owner/pipeline-repo", "old", "new"))
+                .isInstanceOf(RuntimeException.class);
+        verify(fileIngestionService).indexFile(repositoryId, "test-owner/pipeline-repo", "module0/Class1.java", "new");
+    }
+
+    @Test
+    void testSyncRepository_UnknownPreviousCommit_ShouldIngestFully() {
+        // Given
+        when(repositoryFileService.listChanges(repositoryId, "gone", "new"))
+                .thenThrow(new IllegalArgumentException("Unknown commit: gone"));
+
+        // When
+        ingestionService.syncRepository(repositoryId, "test-owner/pipeline-repo", "gone", "new");
+
+        // Then
+        assertThat(bulkRequests.stream().mapToInt(List::size).sum()).isEqualTo(FOLDERS * FILES_PER_FOLDER);
+    }
+
+    private void givenRepositoryTree() {
+        List<Entry> rootEntries = new ArrayList<>();
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+
+        for (int folder = 0; folder < FOLDERS; folder++) {
+            String folderPath = "module" + folder;
+            rootEntries.add(DirectoryEntry.builder()
+                    .path(folderPath)
+                    .name(folderPath)
+                    .type(FileEntryType.DIRECTORY)
+                    .build());
+
+            List<Entry> fileEntries = new ArrayList<>();
+            for (int file = 0; file < FILES_PER_FOLDER; file++) {
+                String name = "Class" + file + ".java";
+                String path = folderPath + "/" + name;
+                String content = "public class Class" + file + " { String module = \"" + folderPath + "\"; }";
+                fileEntries.add(FileEntry.builder()
+                        .path(path)
+                        .name(name)
+                        .type(FileEntryType.FILE)
+                        .size((long) content.length())
+                        .build());
+                when(repositoryFileService.readFile(eq(repositoryId), eq(path))).thenAnswer(invocation -> {
+                    if (seen.add(path)) {
+                        filesRead.incrementAndGet();
+                    }
+                    return FileContent.builder().path(path).name(name).size((long) content.length()).content(content).build();
+                });
+            }
+            when(repositoryFileService.listDirectory(repositoryId, folderPath))
+                    .thenReturn(DirectoryContent.builder().path(folderPath).entries(fileEntries).build());
+        }
+
+        when(repositoryFileService.listDirectory(repositoryId, "/"))
+                .thenReturn(DirectoryContent.builder().path("/").entries(rootEntries).build());
+    }
+}